@@ -0,0 +1,153 @@
+package com.automation.browser.benchmarks;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file with the stored baseline and exits with status 1 if any benchmark
+ * got slower than the tolerance allows, beyond the measurement error of both runs. Benchmarks that
+ * are missing from either side are listed but never fail the check.
+ * <p>
+ * Usage: BaselineCheck &lt;results.json&gt; &lt;baseline.json&gt; [tolerance, default 0.20] [updateBaseline]
+ * <p>
+ * With updateBaseline=true the results become the new baseline. A missing baseline fails the check
+ * like a regression does, so a lost or misnamed baseline file cannot let a run pass unchecked.
+ */
+public class BaselineCheck {
+    private static final Json JSON = new Json();
+
+    private BaselineCheck() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * One benchmark's score; keyed by benchmark name plus parameters.
+     */
+    private static final class Score {
+        private final String mode;
+        private final double value;
+        private final double error;
+        private final String unit;
+
+        private Score(String mode, double value, double error, String unit) {
+            this.mode = mode;
+            this.value = value;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        /**
+         * Throughput modes report operations per time unit; every other mode reports time per operation.
+         */
+        private boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCheck <results.json> <baseline.json> [tolerance] [updateBaseline]");
+            System.exit(2);
+        }
+        Path results = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.20;
+        boolean update = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (update) {
+            Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Updated baseline " + baseline + " from " + results
+                    + "; commit it to compare future runs against these numbers.");
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            System.out.println("No baseline at " + baseline + " to compare " + results + " with. Record one with"
+                    + " -Dbenchmark.updateBaseline=true (updateBaseline argument) and commit it.");
+            System.exit(1);
+        }
+
+        int regressions = compare(read(baseline), read(results), tolerance);
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + Math.round(tolerance * 100)
+                    + "% against " + baseline);
+            System.exit(1);
+        }
+        System.out.println("No regressions against " + baseline);
+    }
+
+    private static int compare(Map<String, Score> baseline, Map<String, Score> current, double tolerance) {
+        System.out.println(String.format("%-72s %14s %14s %8s", "benchmark", "baseline", "current", "change"));
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println(String.format("%-72s %14s %14s %8s", entry.getKey(), "-", format(now), "new"));
+                continue;
+            }
+            // Positive means slower, whichever direction the mode counts in
+            double change = now.higherIsBetter()
+                    ? (before.value - now.value) / before.value
+                    : (now.value - before.value) / before.value;
+            boolean beyondNoise = Math.abs(now.value - before.value) > before.error + now.error;
+            boolean regressed = change > tolerance && beyondNoise;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format("%-72s %14s %14s %+7.1f%%%s", entry.getKey(), format(before), format(now),
+                    change * 100, regressed ? "  REGRESSION" : ""));
+        }
+        for (String missing : baseline.keySet()) {
+            if (!current.containsKey(missing)) {
+                System.out.println(String.format("%-72s %14s %14s %8s", missing, format(baseline.get(missing)), "-", "not run"));
+            }
+        }
+        return regressions;
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        List<Map<String, Object>> runs = JSON.toType(content, Json.LIST_OF_MAPS_TYPE);
+        Map<String, Score> scores = new TreeMap<>();
+        for (Map<String, Object> run : runs) {
+            StringBuilder key = new StringBuilder(String.valueOf(run.get("benchmark")));
+            Object params = run.get("params");
+            if (params instanceof Map) {
+                new TreeMap<>((Map<?, ?>) params).forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+            scores.put(key.toString(), new Score(String.valueOf(run.get("mode")), number(metric.get("score")),
+                    number(metric.get("scoreError")), String.valueOf(metric.get("scoreUnit"))));
+        }
+        return scores;
+    }
+
+    /**
+     * JMH writes NaN (e.g. the error of a single iteration) as a string.
+     */
+    private static double number(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            double parsed = Double.parseDouble(String.valueOf(value));
+            return Double.isNaN(parsed) ? 0 : parsed;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String format(Score score) {
+        return String.format("%.3f %s", score.value, score.unit);
+    }
+}
@@ -0,0 +1,36 @@
+package com.automation.browser.benchmarks;
+
+import com.automation.browser.config.TestConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration lookups made on every session lease and page transition.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = ShiftSession.QUIET_LOGGING)
+public class ConfigBenchmark {
+
+    /**
+     * The configured browser.path contains %LOCALAPPDATA%; it is expanded when the configuration loads, not here.
+     */
+    @Benchmark
+    public String browserPath() {
+        return TestConfig.getBrowserPath();
+    }
+
+    @Benchmark
+    public int implicitWait() {
+        return TestConfig.getImplicitWait();
+    }
+}
@@ -0,0 +1,78 @@
+package com.automation.browser.benchmarks;
+
+import com.automation.browser.utils.PageElements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.FindBy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locator resolution as the page objects do it: direct finds per strategy, and a page element proxy,
+ * which finds its element again on every call before running the actual command.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = ShiftSession.QUIET_LOGGING)
+public class LocatorBenchmark {
+
+    /**
+     * Same kind of field declarations as the page objects.
+     */
+    public static class Toolbar {
+        @FindBy(name = "Back")
+        WebElement backButton;
+
+        @FindBy(id = "omnibox-textbox")
+        WebElement addressBar;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Proxies {
+        Toolbar toolbar;
+
+        @Setup(Level.Trial)
+        public void init(ShiftSession session) {
+            toolbar = new Toolbar();
+            PageElements.init(session.getDriver(), toolbar);
+        }
+    }
+
+    @Benchmark
+    public WebElement findByName(ShiftSession session) {
+        return session.getDriver().findElement(By.name("Back"));
+    }
+
+    @Benchmark
+    public WebElement findById(ShiftSession session) {
+        return session.getDriver().findElement(By.id("omnibox-textbox"));
+    }
+
+    @Benchmark
+    public WebElement findByXPath(ShiftSession session) {
+        return session.getDriver().findElement(By.xpath("//Button[@Name='Refresh']"));
+    }
+
+    @Benchmark
+    public boolean proxyElementByName(Proxies proxies) {
+        return proxies.toolbar.backButton.isEnabled();
+    }
+
+    @Benchmark
+    public boolean proxyElementById(Proxies proxies) {
+        return proxies.toolbar.addressBar.isDisplayed();
+    }
+}
@@ -0,0 +1,41 @@
+package com.automation.browser.benchmarks;
+
+import com.automation.browser.pages.AdvancedSettingsPage;
+import com.automation.browser.pages.BrowserPage;
+import com.automation.browser.pages.SetupPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page object construction, i.e. BasePage's constructor with its PageFactory.initElements call.
+ * Pages are rebuilt whenever a thread's lease moves to another session, so this is paid per test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = ShiftSession.QUIET_LOGGING)
+public class PageFactoryBenchmark {
+
+    @Benchmark
+    public BrowserPage browserPage(ShiftSession session) {
+        return new BrowserPage(session.getDriver());
+    }
+
+    @Benchmark
+    public SetupPage setupPage(ShiftSession session) {
+        return new SetupPage(session.getDriver());
+    }
+
+    @Benchmark
+    public AdvancedSettingsPage advancedSettingsPage(ShiftSession session) {
+        return new AdvancedSettingsPage(session.getDriver());
+    }
+}
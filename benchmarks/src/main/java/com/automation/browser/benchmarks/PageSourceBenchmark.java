@@ -0,0 +1,67 @@
+package com.automation.browser.benchmarks;
+
+import com.automation.browser.utils.FakeWinAppDriver;
+import com.automation.browser.utils.UiSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UI snapshots: parsing page source into a UiSnapshot, fetching and parsing it in one go, and
+ * answering a lookup from a parsed snapshot. The window is padded with extra list items to show
+ * how the cost grows with the size of the tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = ShiftSession.QUIET_LOGGING)
+public class PageSourceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Tree {
+        @Param({"0", "1000"})
+        int extraNodes;
+
+        String pageSource;
+        UiSnapshot snapshot;
+
+        @Setup(Level.Trial)
+        public void build(ShiftSession session) {
+            FakeWinAppDriver.Node window = session.getServer().getWindows().get(0);
+            FakeWinAppDriver.Node list = window.add("List", "Benchmark items");
+            for (int i = 0; i < extraNodes; i++) {
+                list.add("ListItem", "Item " + i).automationId("item-" + i);
+            }
+            pageSource = session.getDriver().getPageSource();
+            snapshot = UiSnapshot.parse(pageSource);
+        }
+    }
+
+    @Benchmark
+    public UiSnapshot parse(Tree tree) {
+        return UiSnapshot.parse(tree.pageSource);
+    }
+
+    @Benchmark
+    public UiSnapshot capture(ShiftSession session, Tree tree) {
+        return UiSnapshot.capture(session.getDriver());
+    }
+
+    @Benchmark
+    public boolean lookup(Tree tree) {
+        return tree.snapshot.isDisplayed(By.name("Refresh"));
+    }
+}
@@ -0,0 +1,124 @@
+package com.automation.browser.benchmarks;
+
+import com.automation.browser.utils.ScreenshotStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.OutputType;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The screenshot path behind ScreenshotUtil: the capture round trip, decoding the PNG, and
+ * ScreenshotStore's encode and write for a new keyframe and for a repeated frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 2, jvmArgsAppend = ShiftSession.QUIET_LOGGING)
+public class ScreenshotBenchmark {
+
+    @State(Scope.Thread)
+    public static class Frames {
+        Path directory;
+        BufferedImage[] alternating;
+        byte[] capturedPng;
+        int next;
+
+        @Setup(Level.Trial)
+        public void prepare(ShiftSession session) throws IOException {
+            directory = Files.createTempDirectory("screenshot-benchmark");
+            // Inverted frames never pass as duplicates or deltas of each other, so each store is a keyframe
+            BufferedImage frame = desktopLikeFrame(1920, 1080);
+            alternating = new BufferedImage[] {frame, inverted(frame)};
+            capturedPng = session.getDriver().getScreenshotAs(OutputType.BYTES);
+        }
+
+        @TearDown(Level.Trial)
+        public void cleanUp() throws IOException {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+
+        BufferedImage nextFrame() {
+            next ^= 1;
+            return alternating[next];
+        }
+    }
+
+    @Benchmark
+    public byte[] capture(ShiftSession session) {
+        return session.getDriver().getScreenshotAs(OutputType.BYTES);
+    }
+
+    @Benchmark
+    public BufferedImage decode(Frames frames) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(frames.capturedPng));
+    }
+
+    @Benchmark
+    public ScreenshotStore.Stored storeKeyframe(Frames frames) throws IOException {
+        BufferedImage frame = frames.nextFrame();
+        return ScreenshotStore.store("keyframes", frame, frames.directory.resolve("keyframe-" + frames.next + ".png"), 0);
+    }
+
+    @Benchmark
+    public ScreenshotStore.Stored storeDuplicate(Frames frames) throws IOException {
+        return ScreenshotStore.store("duplicates", frames.alternating[0], frames.directory.resolve("duplicate.png"), 0);
+    }
+
+    /**
+     * Flat backgrounds with a toolbar, text-like detail and a content area, so PNG compression
+     * behaves as it does on real captures rather than on noise or a single colour.
+     */
+    private static BufferedImage desktopLikeFrame(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(new Color(0xF3F3F3));
+            graphics.fillRect(0, 0, width, height);
+            graphics.setColor(new Color(0x2B579A));
+            graphics.fillRect(0, 0, width, 80);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(200, 20, width - 400, 40);
+            graphics.setColor(Color.DARK_GRAY);
+            for (int line = 0; line < 40; line++) {
+                graphics.drawString("Lorem ipsum dolor sit amet, consectetur adipiscing elit " + line, 60, 130 + line * 22);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static BufferedImage inverted(BufferedImage source) {
+        BufferedImage image = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                image.setRGB(x, y, ~source.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,63 @@
+package com.automation.browser.benchmarks;
+
+import com.automation.browser.utils.DriverFactory;
+import com.automation.browser.utils.FakeShift;
+import com.automation.browser.utils.FakeWinAppDriver;
+import io.appium.java_client.windows.WindowsDriver;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Shift browser session on a local fake WinAppDriver, standing in for the real server so the
+ * numbers measure the framework's own overhead plus one loopback round trip per command.
+ */
+@State(Scope.Benchmark)
+public class ShiftSession {
+    /**
+     * JVM flag for every fork: the framework logs each command at INFO, which would dominate the numbers.
+     */
+    public static final String QUIET_LOGGING = "-Dlogback.configurationFile=logback-benchmarks.xml";
+
+    private static final String APP_PATH = "C:\\Benchmarks\\Shift\\chromium\\shift.exe";
+
+    private FakeWinAppDriver server;
+    private WindowsDriver<WebElement> driver;
+
+    @Setup(Level.Trial)
+    public void start() {
+        server = FakeWinAppDriver.start(0);
+        // UI reactions land immediately; the benchmarks do not wait on transitions
+        new FakeShift(server, APP_PATH, "1.0.0", true, 0);
+
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("app", APP_PATH);
+        caps.setCapability("platformName", "Windows");
+        caps.setCapability("deviceName", "WindowsPC");
+        driver = DriverFactory.newWindowsDriver(server.getUrl(), caps);
+        driver.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        try {
+            driver.quit();
+        } finally {
+            server.close();
+        }
+    }
+
+    public FakeWinAppDriver getServer() {
+        return server;
+    }
+
+    public WindowsDriver<WebElement> getDriver() {
+        return driver;
+    }
+}
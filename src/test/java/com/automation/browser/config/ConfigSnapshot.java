@@ -0,0 +1,159 @@
+package com.automation.browser.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One immutable view of the configuration with every typed value parsed up front, so reads are
+ * field loads. Building a snapshot fails on a malformed value, which keeps a bad edit from being
+ * published by a reload.
+ */
+final class ConfigSnapshot {
+    private static final Pattern ENV_VARIABLE = Pattern.compile("%([^%]+)%");
+
+    private final Map<String, String> values;
+
+    final String browserPath;
+    final List<String> winAppDriverUrls;
+    final boolean fakeWinAppDriver;
+    final long fakeWinAppDriverLatencyMillis;
+    final long fakeWinAppDriverUiDelayMillis;
+    final long fakeWinAppDriverPageLoadMillis;
+    final String winAppDriverTrafficMode;
+    final String winAppDriverTrafficFile;
+    final boolean winAppDriverTrafficReplayTimed;
+    final String shiftExecutable;
+    final int endpointFailureThreshold;
+    final int endpointOpenSeconds;
+    final int implicitWait;
+    final int explicitWait;
+    final boolean locatorCacheEnabled;
+    final Integer sessionPoolMaxSize;
+    final int sessionPoolAcquireTimeout;
+    final boolean sessionPrewarmEnabled;
+    final boolean screenshotOnFailure;
+    final String screenshotDir;
+    final int screenshotWorkers;
+    final int screenshotQueueCapacity;
+    final boolean screenshotRingEnabled;
+    final int screenshotRingFrames;
+    final long screenshotRingIntervalMillis;
+    final int screenshotRingBudgetBytes;
+    final boolean screenshotDedupeEnabled;
+    final int screenshotDeltaMaxDistance;
+    final double screenshotDeltaMaxChangedFraction;
+    final String installerUrl;
+    final String installerDownloadMode;
+    final String installerPageUrl;
+    final String installerLinkPattern;
+    final String installerSha256;
+    final String installerCacheDir;
+    final long installerCacheMaxMegabytes;
+    final long installerCacheMaxAgeMinutes;
+    final boolean useAppiumServer;
+    final boolean reloadEnabled;
+
+    ConfigSnapshot(Map<String, String> values) {
+        this.values = Collections.unmodifiableMap(new HashMap<>(values));
+
+        browserPath = expandEnvironment(get("browser.path"));
+        winAppDriverUrls = Collections.unmodifiableList(urls(get("winappdriver.urls"), get("winappdriver.url")));
+        fakeWinAppDriver = Boolean.parseBoolean(get("winappdriver.fake", "false"));
+        fakeWinAppDriverLatencyMillis = Long.parseLong(get("winappdriver.fake.latency.ms", "0"));
+        fakeWinAppDriverUiDelayMillis = Long.parseLong(get("winappdriver.fake.ui.delay.ms", "50"));
+        fakeWinAppDriverPageLoadMillis = Long.parseLong(get("winappdriver.fake.page.load.ms", "200"));
+        winAppDriverTrafficMode = get("winappdriver.traffic.mode", "off").trim().toLowerCase();
+        winAppDriverTrafficFile = get("winappdriver.traffic.file", "target/winappdriver.traffic");
+        winAppDriverTrafficReplayTimed = Boolean.parseBoolean(get("winappdriver.traffic.replay.timed", "true"));
+        shiftExecutable = blankToNull(get("shift.executable"));
+        endpointFailureThreshold = Integer.parseInt(get("winappdriver.circuit.failure.threshold", "3"));
+        endpointOpenSeconds = Integer.parseInt(get("winappdriver.circuit.open.seconds", "60"));
+        implicitWait = Integer.parseInt(get("implicit.wait"));
+        explicitWait = Integer.parseInt(get("explicit.wait"));
+        locatorCacheEnabled = Boolean.parseBoolean(get("locator.cache", "false"));
+        String poolSize = get("session.pool.max.size");
+        sessionPoolMaxSize = poolSize == null ? null : Integer.valueOf(poolSize);
+        sessionPoolAcquireTimeout = Integer.parseInt(get("session.pool.acquire.timeout", "300"));
+        sessionPrewarmEnabled = Boolean.parseBoolean(get("session.prewarm", "false"));
+        screenshotOnFailure = Boolean.parseBoolean(get("take.screenshot.on.failure"));
+        screenshotDir = get("screenshot.dir", "screenshots");
+        screenshotWorkers = Integer.parseInt(get("screenshot.workers", "2"));
+        screenshotQueueCapacity = Integer.parseInt(get("screenshot.queue.capacity", "8"));
+        screenshotRingEnabled = Boolean.parseBoolean(get("screenshot.ring.enabled", "false"));
+        screenshotRingFrames = Integer.parseInt(get("screenshot.ring.frames", "20"));
+        screenshotRingIntervalMillis = Long.parseLong(get("screenshot.ring.interval.ms", "1000"));
+        screenshotRingBudgetBytes = Integer.parseInt(get("screenshot.ring.budget.mb", "32")) * 1024 * 1024;
+        screenshotDedupeEnabled = Boolean.parseBoolean(get("screenshot.dedupe", "true"));
+        screenshotDeltaMaxDistance = Integer.parseInt(get("screenshot.delta.max.distance", "10"));
+        screenshotDeltaMaxChangedFraction = Double.parseDouble(get("screenshot.delta.max.changed", "0.3"));
+        installerUrl = blankToNull(get("installer.url"));
+        installerDownloadMode = get("installer.download.mode", "http").trim().toLowerCase();
+        installerPageUrl = get("installer.page.url", "https://shift.com/download/");
+        installerLinkPattern = get("installer.link.pattern", "(?i)\\.exe(\\?.*)?$");
+        installerSha256 = blankToNull(get("installer.sha256"));
+        installerCacheDir = get("installer.cache.dir",
+                System.getProperty("user.home") + java.io.File.separator + ".shift-automation" + java.io.File.separator + "installers");
+        installerCacheMaxMegabytes = Long.parseLong(get("installer.cache.max.mb", "2048"));
+        installerCacheMaxAgeMinutes = Long.parseLong(get("installer.cache.max.age.minutes", "0"));
+        useAppiumServer = Boolean.parseBoolean(get("use.appium.server"));
+        reloadEnabled = Boolean.parseBoolean(get("config.reload", "false"));
+    }
+
+    String get(String key) {
+        return values.get(key);
+    }
+
+    String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * This snapshot's values with the given ones replacing them.
+     */
+    ConfigSnapshot with(Map<String, String> overrides) {
+        Map<String, String> merged = new HashMap<>(values);
+        merged.putAll(overrides);
+        return new ConfigSnapshot(merged);
+    }
+
+    /**
+     * Replaces %NAME% with the environment variable's value (e.g. %LOCALAPPDATA%); unknown names stay as they are.
+     */
+    private static String expandEnvironment(String value) {
+        if (value == null || value.indexOf('%') < 0) {
+            return value;
+        }
+        Matcher matcher = ENV_VARIABLE.matcher(value);
+        StringBuffer expanded = new StringBuffer();
+        while (matcher.find()) {
+            String variable = System.getenv(matcher.group(1));
+            matcher.appendReplacement(expanded, Matcher.quoteReplacement(variable != null ? variable : matcher.group()));
+        }
+        matcher.appendTail(expanded);
+        return expanded.toString();
+    }
+
+    private static List<String> urls(String configured, String fallback) {
+        List<String> urls = new ArrayList<>();
+        if (configured != null) {
+            for (String url : configured.split(",")) {
+                if (!url.trim().isEmpty()) {
+                    urls.add(url.trim());
+                }
+            }
+        }
+        if (urls.isEmpty()) {
+            urls.add(fallback);
+        }
+        return urls;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
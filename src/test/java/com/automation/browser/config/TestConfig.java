@@ -2,68 +2,468 @@ package com.automation.browser.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Configuration from config.properties, layered as: the bundled file, the file named by -Dconfig.file,
+ * system properties (-Dkey=value), {@link #setProperty} and finally the calling thread's {@link #override}s.
+ * <p>
+ * Values are parsed once into an immutable snapshot that is swapped atomically whenever a layer changes,
+ * so getters are plain field reads and never see a half-applied change. With 'config.reload' enabled the
+ * files are watched and edits take effect for values read after the change.
+ */
 public class TestConfig {
     private static final Logger logger = LoggerFactory.getLogger(TestConfig.class);
-    private static final Properties properties = new Properties();
     private static final String CONFIG_FILE = "config.properties";
+    // Editors truncate and rewrite in several steps; wait for them to finish before reading
+    private static final long RELOAD_SETTLE_MILLIS = 200;
+
+    private static final Map<String, String> suiteOverrides = new ConcurrentHashMap<>();
+    private static final AtomicReference<ConfigSnapshot> snapshot = new AtomicReference<>();
+    private static final ThreadLocal<ThreadOverrides> threadOverrides = new ThreadLocal<>();
 
     static {
-        loadProperties();
+        publish();
+        if (snapshot.get().reloadEnabled) {
+            startWatching();
+        }
+    }
+
+    /**
+     * One thread's overrides, merged into a snapshot that is rebuilt when the shared one changes.
+     */
+    private static final class ThreadOverrides {
+        private final Map<String, String> values = new HashMap<>();
+        private ConfigSnapshot base;
+        private ConfigSnapshot merged;
+
+        private ConfigSnapshot against(ConfigSnapshot current) {
+            if (current != base) {
+                merged = current.with(values);
+                base = current;
+            }
+            return merged;
+        }
     }
 
-    private static void loadProperties() {
+    private static ConfigSnapshot current() {
+        ConfigSnapshot shared = snapshot.get();
+        ThreadOverrides local = threadOverrides.get();
+        return local == null ? shared : local.against(shared);
+    }
+
+    /**
+     * Rebuilds the shared snapshot from the files, system properties and suite overrides.
+     */
+    private static synchronized void publish() {
+        Map<String, String> values = new HashMap<>();
+        loadProperties(values);
+        for (String key : System.getProperties().stringPropertyNames()) {
+            values.put(key, System.getProperty(key));
+        }
+        values.putAll(suiteOverrides);
+        snapshot.set(new ConfigSnapshot(values));
+    }
+
+    private static void loadProperties(Map<String, String> values) {
+        Properties properties = new Properties();
         try (InputStream input = TestConfig.class.getClassLoader().getResourceAsStream(CONFIG_FILE)) {
             if (input == null) {
                 logger.error("Sorry, unable to find " + CONFIG_FILE);
                 throw new RuntimeException("Configuration file not found: " + CONFIG_FILE);
             }
             properties.load(input);
+            String external = System.getProperty("config.file");
+            if (external != null) {
+                try (InputStream file = Files.newInputStream(Paths.get(external))) {
+                    properties.load(file);
+                }
+            }
         } catch (IOException e) {
             logger.error("Error loading configuration properties", e);
             throw new RuntimeException("Failed to load configuration", e);
         }
+        for (String key : properties.stringPropertyNames()) {
+            values.put(key, properties.getProperty(key));
+        }
     }
 
-    public static String getProperty(String key) {
-        return properties.getProperty(key);
+    /**
+     * Reads the configuration files again and publishes them. A change that does not parse is
+     * logged and the previous configuration stays in effect.
+     */
+    public static void reload() {
+        try {
+            publish();
+            logger.info("Configuration reloaded");
+        } catch (RuntimeException e) {
+            logger.error("Ignoring configuration change, keeping the previous configuration", e);
+        }
     }
 
-    public static String getBrowserPath() {
-        String path = getProperty("browser.path");
-        if (path != null && path.contains("%")) {
-            // Simple expansion for %LOCALAPPDATA% and other environment variables
-            for (java.util.Map.Entry<String, String> entry : System.getenv().entrySet()) {
-                path = path.replace("%" + entry.getKey() + "%", entry.getValue());
+    private static void startWatching() {
+        Set<Path> files = new LinkedHashSet<>();
+        URL bundled = TestConfig.class.getClassLoader().getResource(CONFIG_FILE);
+        if (bundled != null && "file".equals(bundled.getProtocol())) {
+            try {
+                files.add(Paths.get(bundled.toURI()).toAbsolutePath().normalize());
+            } catch (URISyntaxException e) {
+                logger.warn("Cannot watch {}: {}", bundled, e.getMessage());
+            }
+        }
+        if (System.getProperty("config.file") != null) {
+            files.add(Paths.get(System.getProperty("config.file")).toAbsolutePath().normalize());
+        }
+        if (files.isEmpty()) {
+            logger.warn("'config.reload' is on but no configuration file is on the file system");
+            return;
+        }
+        Thread watcher = new Thread(() -> watch(files), "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("Watching {} for configuration changes", files);
+    }
+
+    private static void watch(Set<Path> files) {
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            Set<Path> directories = new LinkedHashSet<>();
+            files.forEach(file -> directories.add(file.getParent()));
+            for (Path directory : directories) {
+                directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            while (true) {
+                boolean changed = changed(service.take(), files);
+                if (!changed) {
+                    continue;
+                }
+                Thread.sleep(RELOAD_SETTLE_MILLIS);
+                for (WatchKey key = service.poll(); key != null; key = service.poll()) {
+                    changed(key, files);
+                }
+                reload();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("Stopped watching configuration files", e);
         }
-        return path;
+    }
+
+    private static boolean changed(WatchKey key, Set<Path> files) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // Overflow events carry no file name; treat them as a change
+            changed |= !(event.context() instanceof Path)
+                    || files.contains(((Path) key.watchable()).resolve((Path) event.context()));
+        }
+        key.reset();
+        return changed;
+    }
+
+    public static String getProperty(String key) {
+        return current().get(key);
+    }
+
+    public static String getProperty(String key, String defaultValue) {
+        return current().get(key, defaultValue);
+    }
+
+    /**
+     * 'browser.path' with %VARIABLE% references (e.g. %LOCALAPPDATA%) replaced from the environment.
+     */
+    public static String getBrowserPath() {
+        return current().browserPath;
     }
 
     public static String getWinAppDriverUrl() {
         return getProperty("winappdriver.url");
     }
 
+    /**
+     * All WinAppDriver endpoints new sessions may be scheduled on.
+     * Reads the comma-separated 'winappdriver.urls', falling back to the single 'winappdriver.url'.
+     */
+    public static List<String> getWinAppDriverUrls() {
+        return new ArrayList<>(current().winAppDriverUrls);
+    }
+
+    /**
+     * Runs against an in-process fake WinAppDriver with a scripted Shift instead of a Windows desktop.
+     * Can also be switched on with -Dwinappdriver.fake=true.
+     */
+    public static boolean isFakeWinAppDriver() {
+        return current().fakeWinAppDriver;
+    }
+
+    public static long getFakeWinAppDriverLatencyMillis() {
+        return current().fakeWinAppDriverLatencyMillis;
+    }
+
+    /**
+     * Delay before the fake Shift UI reacts to an action.
+     */
+    public static long getFakeWinAppDriverUiDelayMillis() {
+        return current().fakeWinAppDriverUiDelayMillis;
+    }
+
+    /**
+     * How long the fake Shift shows Stop instead of Refresh while a page loads.
+     */
+    public static long getFakeWinAppDriverPageLoadMillis() {
+        return current().fakeWinAppDriverPageLoadMillis;
+    }
+
+    /**
+     * 'record' writes every WinAppDriver command and response to the traffic file, 'replay' answers
+     * commands from it without a server, 'off' does neither. Can also be set with -Dwinappdriver.traffic.mode.
+     */
+    public static String getWinAppDriverTrafficMode() {
+        return current().winAppDriverTrafficMode;
+    }
+
+    public static String getWinAppDriverTrafficFile() {
+        return current().winAppDriverTrafficFile;
+    }
+
+    /**
+     * Whether replayed responses take as long as they did when recorded.
+     */
+    public static boolean isWinAppDriverTrafficReplayTimed() {
+        return current().winAppDriverTrafficReplayTimed;
+    }
+
+    /**
+     * Installed Shift executable, or null for the default location under LOCALAPPDATA.
+     */
+    public static String getShiftExecutable() {
+        return current().shiftExecutable;
+    }
+
+    public static int getEndpointFailureThreshold() {
+        return current().endpointFailureThreshold;
+    }
+
+    public static int getEndpointOpenSeconds() {
+        return current().endpointOpenSeconds;
+    }
+
     public static int getImplicitWait() {
-        return Integer.parseInt(getProperty("implicit.wait"));
+        return current().implicitWait;
     }
 
     public static int getExplicitWait() {
-        return Integer.parseInt(getProperty("explicit.wait"));
+        return current().explicitWait;
+    }
+
+    /**
+     * Whether page element proxies reuse the element they found until the next page transition.
+     */
+    public static boolean isLocatorCacheEnabled() {
+        return current().locatorCacheEnabled;
+    }
+
+    /**
+     * Max pooled sessions; defaults to one session per WinAppDriver endpoint.
+     */
+    public static int getSessionPoolMaxSize(int endpointCount) {
+        Integer configured = current().sessionPoolMaxSize;
+        return configured != null ? configured : endpointCount;
+    }
+
+    public static int getSessionPoolAcquireTimeout() {
+        return current().sessionPoolAcquireTimeout;
+    }
+
+    public static boolean isSessionPrewarmEnabled() {
+        return current().sessionPrewarmEnabled;
     }
 
     public static boolean isScreenshotOnFailure() {
-        return Boolean.parseBoolean(getProperty("take.screenshot.on.failure"));
+        return current().screenshotOnFailure;
+    }
+
+    public static String getScreenshotDir() {
+        return current().screenshotDir;
+    }
+
+    public static int getScreenshotWorkers() {
+        return current().screenshotWorkers;
+    }
+
+    /**
+     * Screenshots that may wait for a writer before capture blocks the test thread.
+     */
+    public static int getScreenshotQueueCapacity() {
+        return current().screenshotQueueCapacity;
+    }
+
+    public static boolean isScreenshotRingEnabled() {
+        return current().screenshotRingEnabled;
+    }
+
+    public static int getScreenshotRingFrames() {
+        return current().screenshotRingFrames;
+    }
+
+    public static long getScreenshotRingIntervalMillis() {
+        return current().screenshotRingIntervalMillis;
+    }
+
+    /**
+     * Off-heap bytes reserved per test thread for recorded frames.
+     */
+    public static int getScreenshotRingBudgetBytes() {
+        return current().screenshotRingBudgetBytes;
+    }
+
+    public static boolean isScreenshotDedupeEnabled() {
+        return current().screenshotDedupeEnabled;
+    }
+
+    /**
+     * Max differing bits (of 64) between perceptual hashes for a frame to be compared pixel by pixel.
+     */
+    public static int getScreenshotDeltaMaxDistance() {
+        return current().screenshotDeltaMaxDistance;
+    }
+
+    /**
+     * Max share of changed tiles for a frame to be stored as a delta rather than a new keyframe.
+     */
+    public static double getScreenshotDeltaMaxChangedFraction() {
+        return current().screenshotDeltaMaxChangedFraction;
+    }
+
+    /**
+     * Direct link to the installer, or null to download it through the browser.
+     */
+    public static String getInstallerUrl() {
+        return current().installerUrl;
+    }
+
+    /**
+     * "http" resolves the installer link from the download page without a browser, falling back to
+     * Chrome when the page has no direct link; "chrome" always downloads through the browser.
+     */
+    public static String getInstallerDownloadMode() {
+        return current().installerDownloadMode;
+    }
+
+    public static String getInstallerPageUrl() {
+        return current().installerPageUrl;
+    }
+
+    public static String getInstallerLinkPattern() {
+        return current().installerLinkPattern;
+    }
+
+    /**
+     * Expected SHA-256 of the installer, or null to accept whatever the server sends.
+     */
+    public static String getInstallerSha256() {
+        return current().installerSha256;
+    }
+
+    public static String getInstallerCacheDir() {
+        return current().installerCacheDir;
+    }
+
+    public static long getInstallerCacheMaxMegabytes() {
+        return current().installerCacheMaxMegabytes;
+    }
+
+    /**
+     * Minutes a cached installer is used without asking the server whether it changed.
+     */
+    public static long getInstallerCacheMaxAgeMinutes() {
+        return current().installerCacheMaxAgeMinutes;
     }
 
     public static boolean useAppiumServer() {
-        return Boolean.parseBoolean(getProperty("use.appium.server"));
+        return current().useAppiumServer;
     }
 
+    /**
+     * Changes a value for every thread, e.g. to point the whole suite at a fake server.
+     * Tests should use {@link #override} instead, so parallel tests do not see each other's values.
+     */
     public static void setProperty(String key, String value) {
-        properties.setProperty(key, value);
+        String previous = suiteOverrides.put(key, value);
+        try {
+            publish();
+        } catch (RuntimeException e) {
+            if (previous == null) {
+                suiteOverrides.remove(key);
+            } else {
+                suiteOverrides.put(key, previous);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Changes a value for the calling thread only, until {@link #clearOverrides()}; BaseTest clears them after each test.
+     */
+    public static void override(String key, String value) {
+        ThreadOverrides local = threadOverrides.get();
+        if (local == null) {
+            local = new ThreadOverrides();
+        }
+        Map<String, String> values = new HashMap<>(local.values);
+        values.put(key, value);
+        // Parse before applying, so a malformed value fails here rather than on the next read
+        ConfigSnapshot shared = snapshot.get();
+        ConfigSnapshot merged = shared.with(values);
+        local.values.put(key, value);
+        local.base = shared;
+        local.merged = merged;
+        threadOverrides.set(local);
+    }
+
+    public static void clearOverrides() {
+        threadOverrides.remove();
+    }
+
+    /**
+     * The calling thread's overrides, for work it hands to other threads; see {@link #applyOverrides}.
+     */
+    public static Map<String, String> captureOverrides() {
+        ThreadOverrides local = threadOverrides.get();
+        return local == null ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(local.values));
+    }
+
+    /**
+     * Replaces the calling thread's overrides with ones captured on another thread, so a worker sees the
+     * same configuration as the test that started it. Workers clear them with {@link #clearOverrides()}.
+     */
+    public static void applyOverrides(Map<String, String> overrides) {
+        if (overrides.isEmpty()) {
+            threadOverrides.remove();
+            return;
+        }
+        ThreadOverrides local = new ThreadOverrides();
+        local.values.putAll(overrides);
+        threadOverrides.set(local);
     }
 }
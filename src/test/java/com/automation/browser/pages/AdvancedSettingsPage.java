@@ -1,13 +1,15 @@
 package com.automation.browser.pages;
 
+import com.automation.browser.utils.UiSnapshot;
 import io.appium.java_client.windows.WindowsDriver;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.FindBy;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.testng.Assert;
 
+import java.util.concurrent.TimeUnit;
+
 public class AdvancedSettingsPage extends BasePage<AdvancedSettingsPage> {
 
     @FindBy(name = "Quick Settings")
@@ -20,7 +22,9 @@ public class AdvancedSettingsPage extends BasePage<AdvancedSettingsPage> {
     @FindBy(id = "about-menu") 
     private WebElement aboutShiftBtn;
 
-    @FindBy(xpath = "//*[starts-with(@Name, 'Version ')]")
+    private static final String VERSION_PREFIX = "Version ";
+
+    @FindBy(xpath = "//*[starts-with(@Name, '" + VERSION_PREFIX + "')]")
     private WebElement versionText;
 
     public AdvancedSettingsPage(WindowsDriver<WebElement> driver) {
@@ -35,28 +39,33 @@ public class AdvancedSettingsPage extends BasePage<AdvancedSettingsPage> {
             logger.warn("Actions click failed, fallback to standard click", e);
             click(quickSettingsBtn);
         }
-        sleep(1000);
+        transition("quick settings menu opened", appears(advancedSettingsBtn));
         return this;
     }
 
     public AdvancedSettingsPage openAdvancedSettings() {
         logger.info("Clicking 'Advanced Settings'...");
         click(advancedSettingsBtn);
-        sleep(1000);
+        transition("advanced settings opened", appears(aboutShiftBtn));
         return this;
     }
 
     public AdvancedSettingsPage openAboutShift() {
         logger.info("Clicking 'About Shift'...");
         driver.findElement(By.id("about-menu")).click();
-        sleep(1000);
+        transition("about page opened", appears(versionText));
         return this;
     }
 
     public String getVersionText() {
         logger.info("Getting version text...");
-        wait.until(ExpectedConditions.visibilityOf(versionText));
-        String text = versionText.getAttribute("Name");
+        // Each poll is one page-source read answered by the prefix index, instead of an
+        // XPath starts-with search over the whole tree followed by a getAttribute call
+        String text = waitEngine.until("version text", () -> {
+            UiSnapshot snapshot = UiSnapshot.capture(driver);
+            int node = snapshot.findNameStartingWith(VERSION_PREFIX);
+            return node >= 0 && !snapshot.isOffscreen(node) ? snapshot.name(node) : null;
+        }, WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         logger.info("Found version text: {}", text);
         return text;
     }
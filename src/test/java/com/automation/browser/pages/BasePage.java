@@ -1,48 +1,51 @@
 package com.automation.browser.pages;
 
+import com.automation.browser.config.TestConfig;
+import com.automation.browser.utils.PageElements;
+import com.automation.browser.utils.UiSnapshot;
+import com.automation.browser.utils.WaitEngine;
 import io.appium.java_client.windows.WindowsDriver;
 import org.openqa.selenium.*;
-import org.openqa.selenium.support.PageFactory;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 public class BasePage<T> {
+    protected static final int WAIT_TIMEOUT_SECONDS = 30;
+
     protected WindowsDriver<WebElement> driver;
     protected WebDriverWait wait;
+    protected final WaitEngine waitEngine = WaitEngine.getInstance();
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     public BasePage(WindowsDriver<WebElement> driver) {
         this.driver = driver;
         // Selenium 3 uses timeout in seconds (long), Selenium 4 uses Duration. 
         // Assuming Selenium 3 based on existing code (new WebDriverWait(driver, 30))
-        this.wait = new WebDriverWait(driver, 30);
-        PageFactory.initElements(driver, this);
+        this.wait = new WebDriverWait(driver, WAIT_TIMEOUT_SECONDS);
+        // Field scan and locator parsing happen once per page class, not per page object
+        PageElements.init(driver, this);
     }
 
     @SuppressWarnings("unchecked")
     public T waitForVisibility(WebElement element) {
-        try {
-            wait.until(ExpectedConditions.visibilityOf(element));
-        } catch (WebDriverException e) {
-            logger.warn("WebDriverException occurred while waiting for visibility: {}", e.getMessage());
-            try {
-                wait.until(ExpectedConditions.visibilityOf(element));
-            } catch (Exception retryEx) {
-                 logger.error("Failed to wait for visibility after retry: {}", retryEx.getMessage());
-                 throw retryEx;
-            }
-        }
+        // Transient WebDriverExceptions are retried by the engine's polling, no second full wait needed
+        waitEngine.until("visibility of " + WaitEngine.keyOf(element), WaitEngine.visible(element),
+                WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         return (T) this;
     }
 
     @SuppressWarnings("unchecked")
     public T click(WebElement element) {
-        waitForVisibility(element);
+        // Clickable implies visible; one combined wait instead of two back-to-back waits
         waitForElementToBeClickable(element);
         try {
             element.click();
+            invalidateSnapshot();
             logger.info("Clicked element: {}", getElementName(element));
         } catch (Exception e) {
             logger.error("Failed to click element: {}", getElementName(element), e);
@@ -57,6 +60,7 @@ public class BasePage<T> {
         try {
             element.clear();
             element.sendKeys(text);
+            invalidateSnapshot();
             logger.info("Typed '{}' into element: {}", text, getElementName(element));
         } catch (Exception e) {
             logger.error("Failed to type into element: {}", getElementName(element), e);
@@ -68,7 +72,8 @@ public class BasePage<T> {
     @SuppressWarnings("unchecked")
     public T waitForElementToBeClickable(WebElement element) {
         try {
-            wait.until(ExpectedConditions.elementToBeClickable(element));
+            waitEngine.until("clickability of " + WaitEngine.keyOf(element), WaitEngine.clickable(element),
+                    WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         } catch (Exception e) {
             logger.warn("Element not clickable: {}", e.getMessage());
             throw e;
@@ -76,6 +81,75 @@ public class BasePage<T> {
         return (T) this;
     }
 
+    /**
+     * Waits for the readiness signal of a UI transition (element appearing, property change,
+     * window title change) and returns as soon as it fires. Polls with the implicit wait
+     * switched off so absent elements answer immediately instead of after the implicit wait.
+     */
+    protected <V> V transition(String name, Supplier<V> readySignal) {
+        return transition(name, readySignal, WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    protected <V> V transition(String name, Supplier<V> readySignal, long timeout, TimeUnit unit) {
+        // Whatever triggered the transition has changed the UI
+        invalidateSnapshot();
+        PageElements.invalidate(driver);
+        driver.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS);
+        try {
+            return waitEngine.until("transition '" + name + "'", readySignal, timeout, unit);
+        } finally {
+            driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWait(), TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Like {@link #transition(String, Supplier)} but reports a missing signal instead of failing.
+     */
+    protected boolean tryTransition(String name, Supplier<?> readySignal, long timeout, TimeUnit unit) {
+        try {
+            transition(name, readySignal, timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            logger.info("Transition '{}' did not happen: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    protected Supplier<Boolean> appears(WebElement element) {
+        return WaitEngine.visible(element);
+    }
+
+    protected Supplier<Boolean> readyToClick(WebElement element) {
+        return WaitEngine.clickable(element);
+    }
+
+    protected Supplier<Boolean> disappears(WebElement element) {
+        return WaitEngine.gone(element);
+    }
+
+    protected Supplier<Boolean> windowTitleChangesFrom(String previousTitle) {
+        return () -> !Objects.equals(previousTitle, driver.getTitle());
+    }
+
+    /**
+     * Read-only presence check answered from the session's shared UI snapshot, so a missing
+     * element costs no implicit wait and repeated checks cost no round trips.
+     */
+    public boolean isElementPresent(By locator) {
+        return snapshot().isDisplayed(locator);
+    }
+
+    /**
+     * The session's shared UI snapshot; captured on first use after the last UI change.
+     */
+    protected UiSnapshot snapshot() {
+        return UiSnapshot.of(driver);
+    }
+
+    protected void invalidateSnapshot() {
+        UiSnapshot.invalidate(driver);
+    }
+
     public boolean isElementPresent(WebElement element) {
         try {
             return element.isDisplayed();
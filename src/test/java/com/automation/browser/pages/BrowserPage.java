@@ -1,11 +1,18 @@
 package com.automation.browser.pages;
 
+import com.automation.browser.utils.UiSnapshot;
+import com.automation.browser.utils.WaitEngine;
 import io.appium.java_client.windows.WindowsDriver;
+import org.openqa.selenium.By;
 import org.openqa.selenium.Keys;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.FindBy;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
 public class BrowserPage extends BasePage<BrowserPage> {
 
     @FindBy(id = "omnibox-textbox")
@@ -26,21 +33,30 @@ public class BrowserPage extends BasePage<BrowserPage> {
     @FindBy(name = "Save")
     private WebElement saveBookmarkButton;
 
-    @FindBy(name = "Bookmarks bar")
+    private static final By RELOAD_BUTTON = By.name("Refresh");
+    private static final String BOOKMARKS_BAR_FOLDER = "Bookmarks bar";
+    private static final String BOOKMARKS_BAR = "Bookmarks";
+
+    @FindBy(name = BOOKMARKS_BAR_FOLDER)
     private WebElement bookmarksBarFolder;
 
-    @FindBy(name = "Bookmarks")
+    @FindBy(name = BOOKMARKS_BAR)
     private WebElement bookmarksBar;
 
     @FindBy(name = "Show Bookmarks Bar")
     private WebElement showBookmarksBarText;
 
+    private String titleBeforeNavigation;
+    private String navigationTarget;
+
     public BrowserPage(WindowsDriver<WebElement> driver) {
         super(driver);
     }
 
     public BrowserPage navigateTo(String url) {
         logger.info("Navigating to: {}", url);
+        titleBeforeNavigation = driver.getTitle();
+        navigationTarget = url;
         try {
             // Click to focus
             addressBar.click();
@@ -49,14 +65,17 @@ public class BrowserPage extends BasePage<BrowserPage> {
             // Send keys
             addressBar.sendKeys(url);
             addressBar.sendKeys(Keys.ENTER);
+            invalidateSnapshot();
         } catch (Exception e) {
             logger.warn("Address bar interaction failed. Error: {}", e.getMessage());
             try {
                 // Fallback: Send Ctrl+L to the active window
                 Actions actions = new Actions(driver);
                 actions.keyDown(Keys.CONTROL).sendKeys("l").keyUp(Keys.CONTROL).perform();
-                sleep(1000); 
+                tryTransition("address bar focused",
+                        WaitEngine.attribute(addressBar, "HasKeyboardFocus", "True"::equalsIgnoreCase), 2, TimeUnit.SECONDS);
                 actions.sendKeys(url).sendKeys(Keys.ENTER).perform();
+                invalidateSnapshot();
             } catch (Exception ex) {
                 logger.error("Fallback navigation failed", ex);
                 throw new RuntimeException("Failed to navigate to " + url, ex);
@@ -65,9 +84,49 @@ public class BrowserPage extends BasePage<BrowserPage> {
         return this;
     }
 
+    /**
+     * Waits until the page opened by the last navigateTo() has replaced the previous one, signalled by
+     * the window title changing. Reloads and pages titled like the previous one keep the title; for those
+     * the toolbar has to be seen loading (Stop instead of Refresh) and then offer Refresh again with the
+     * target in the address bar. Refresh alone is not enough: right after Enter the old page still shows
+     * it, and the address bar already shows what was typed.
+     */
+    public BrowserPage waitForPageLoad() {
+        Supplier<Boolean> titleChanged = windowTitleChangesFrom(titleBeforeNavigation);
+        Supplier<Boolean> addressShown = WaitEngine.attribute(addressBar, "Value.Value",
+                value -> sameAddress(value, navigationTarget));
+        AtomicBoolean loadingSeen = new AtomicBoolean();
+        transition("page loaded", () -> {
+            if (titleChanged.get()) {
+                return true;
+            }
+            // Read from a fresh snapshot: Refresh is missing while loading, and a missing element would cost the implicit wait
+            invalidateSnapshot();
+            if (!snapshot().isDisplayed(RELOAD_BUTTON)) {
+                loadingSeen.set(true);
+                return false;
+            }
+            return loadingSeen.get() && addressShown.get();
+        });
+        logger.info("Page loaded: {}", driver.getTitle());
+        return this;
+    }
+
+    /**
+     * The omnibox drops the scheme, "www." and a trailing slash from what was typed.
+     */
+    private static boolean sameAddress(String shown, String typed) {
+        return shown != null && typed != null && normalizeAddress(shown).equals(normalizeAddress(typed));
+    }
+
+    private static String normalizeAddress(String address) {
+        String normalized = address.trim().toLowerCase().replaceFirst("^https?://", "").replaceFirst("^www\\.", "");
+        return normalized.endsWith("/") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+
     public BrowserPage ensureBookmarksBarVisible() {
         logger.info("Ensuring Bookmarks Bar is visible...");
-        if (isElementPresent(bookmarksBar)) {
+        if (isElementPresent(By.name(BOOKMARKS_BAR))) {
             logger.info("Bookmarks Bar is already visible.");
             return this;
         }
@@ -75,22 +134,20 @@ public class BrowserPage extends BasePage<BrowserPage> {
         logger.info("Bookmarks Bar not found. Attempting to enable via Settings...");
         // Navigate to Appearance settings where the toggle usually resides
         navigateTo("chrome://settings/appearance");
-        sleep(2000);
 
         try {
             // Try to find the "Show Bookmarks Bar" text and click it (or its parent/toggle)
-            if (isElementPresent(showBookmarksBarText)) {
+            if (tryTransition("appearance settings loaded", appears(showBookmarksBarText), 10, TimeUnit.SECONDS)) {
                 click(showBookmarksBarText);
                 logger.info("Clicked 'Show Bookmarks Bar' option.");
-                sleep(1000);
             } else {
                 logger.warn("'Show Bookmarks Bar' text not found in Settings.");
                 // Fallback: Hotkey
                 logger.info("Using Ctrl+Shift+B shortcut.");
                 Actions actions = new Actions(driver);
                 actions.keyDown(Keys.CONTROL).keyDown(Keys.SHIFT).sendKeys("b").keyUp(Keys.SHIFT).keyUp(Keys.CONTROL).perform();
-                sleep(1000);
             }
+            tryTransition("bookmarks bar shown", appears(bookmarksBar), 5, TimeUnit.SECONDS);
         } catch (Exception e) {
              logger.error("Failed to enable Bookmarks Bar", e);
         }
@@ -138,19 +195,20 @@ public class BrowserPage extends BasePage<BrowserPage> {
         
         Actions actions = new Actions(driver);
         actions.keyDown(Keys.CONTROL).sendKeys("d").keyUp(Keys.CONTROL).perform();
-        sleep(1000); // Wait for popup
 
         try {
+            transition("bookmark popup opened", appears(saveBookmarkButton));
+
             // Attempt to select 'Bookmarks bar' folder to ensure visibility
-            if (isElementPresent(bookmarksBarFolder)) {
+            if (isElementPresent(By.name(BOOKMARKS_BAR_FOLDER))) {
                  logger.info("Selecting 'Bookmarks bar' folder...");
                  click(bookmarksBarFolder);
-                 sleep(500);
             }
             
-            waitForVisibility(saveBookmarkButton);
+            // click() waits until Save is clickable again after the folder selection
             click(saveBookmarkButton);
             logger.info("Clicked 'Save' button.");
+            transition("bookmark popup closed", disappears(saveBookmarkButton));
         } catch (Exception e) {
             logger.warn("Error interacting with bookmark popup: " + e.getMessage());
         }
@@ -160,35 +218,32 @@ public class BrowserPage extends BasePage<BrowserPage> {
     public boolean verifyBookmarkInBar(String pageTitlePart) {
         logger.info("Verifying bookmark in Bookmarks Bar for: {}", pageTitlePart);
         
-        if (!isElementPresent(bookmarksBar)) {
-             logger.warn("Bookmarks bar is not visible!");
-             return false;
-        }
-
         try {
-            // Find child with matching name
-            // We use xpath to search immediate children
-            // WinAppDriver Xpath support can be limited, but let's try finding by Name first
-            WebElement bookmark = bookmarksBar.findElement(org.openqa.selenium.By.name(pageTitlePart));
-            boolean isDisplayed = bookmark.isDisplayed();
-            logger.info("Found bookmark '{}': {}", pageTitlePart, isDisplayed);
-            return isDisplayed;
-        } catch (Exception e) {
+            // One page-source round trip answers visibility, the exact and the partial match,
+            // instead of one getAttribute call per bookmark
+            UiSnapshot snapshot = snapshot();
+            int bar = snapshot.findByName(BOOKMARKS_BAR);
+            if (bar < 0 || snapshot.isOffscreen(bar)) {
+                logger.warn("Bookmarks bar is not visible!");
+                return false;
+            }
+
+            int bookmark = snapshot.findByNameWithin(bar, pageTitlePart);
+            if (bookmark >= 0) {
+                boolean isDisplayed = !snapshot.isOffscreen(bookmark);
+                logger.info("Found bookmark '{}': {}", pageTitlePart, isDisplayed);
+                return isDisplayed;
+            }
+
             logger.info("Exact match by Name failed. Checking children of Bookmarks Bar...");
-            try {
-                // Get all children of bookmarks bar
-                java.util.List<WebElement> children = bookmarksBar.findElements(org.openqa.selenium.By.xpath(".//*"));
-                for (WebElement child : children) {
-                    String name = child.getAttribute("Name");
-                    if (name != null && name.contains(pageTitlePart)) {
-                        logger.info("Found matching bookmark child: {}", name);
-                        return true;
-                    }
-                }
-            } catch (Exception ex) {
-                logger.error("Error inspecting bookmarks bar children", ex);
+            bookmark = snapshot.findNameContainingWithin(bar, pageTitlePart);
+            if (bookmark >= 0) {
+                logger.info("Found matching bookmark child: {}", snapshot.name(bookmark));
+                return true;
             }
-            return false;
+        } catch (Exception e) {
+            logger.error("Error inspecting bookmarks bar children", e);
         }
+        return false;
     }
 }
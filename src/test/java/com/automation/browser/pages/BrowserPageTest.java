@@ -0,0 +1,72 @@
+package com.automation.browser.pages;
+
+import com.automation.browser.utils.FakeShift;
+import com.automation.browser.utils.FakeWinAppDriver;
+import io.appium.java_client.windows.WindowsDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page load detection against the fake Shift, where a page takes a configurable time to load.
+ */
+public class BrowserPageTest {
+    private static final String APP = "C:\\fake\\shift.exe";
+
+    private FakeWinAppDriver server;
+    private FakeShift shift;
+    private WindowsDriver<WebElement> driver;
+
+    @BeforeMethod
+    public void setUp() {
+        server = FakeWinAppDriver.start(0);
+        // Shift takes a moment after Enter before it starts loading, as the real browser does
+        shift = new FakeShift(server, APP, "9.9.9", true, 300);
+        shift.setPageLoadMillis(50);
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("app", APP);
+        caps.setCapability("platformName", "Windows");
+        caps.setCapability("deviceName", "WindowsPC");
+        driver = new WindowsDriver<>(server.getUrl(), caps);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        if (driver != null) {
+            driver.quit();
+        }
+        server.close();
+    }
+
+    @Test
+    public void waitsForSlowPageWithTheSameTitle() {
+        BrowserPage page = new BrowserPage(driver).navigateTo("http://example.com/first").waitForPageLoad();
+        shift.setPageLoadMillis(1000);
+
+        long start = System.nanoTime();
+        // Same host, so the same title: only the load itself tells the pages apart
+        page.navigateTo("http://example.com/second").waitForPageLoad();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertTrue(elapsed >= 900, "Returned before the page had loaded: " + elapsed + " ms");
+        Assert.assertTrue(page.isElementPresent(By.name("Refresh")), "Page should have finished loading");
+    }
+
+    @Test
+    public void waitsForSlowReload() {
+        BrowserPage page = new BrowserPage(driver).navigateTo("http://example.com/").waitForPageLoad();
+        shift.setPageLoadMillis(800);
+
+        long start = System.nanoTime();
+        page.navigateTo("http://example.com/").waitForPageLoad();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertTrue(elapsed >= 700, "Returned before the reload had finished: " + elapsed + " ms");
+    }
+}
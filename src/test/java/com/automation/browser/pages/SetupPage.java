@@ -1,22 +1,31 @@
 package com.automation.browser.pages;
 
+import com.automation.browser.config.TestConfig;
+import com.automation.browser.utils.UiSnapshot;
 import io.appium.java_client.windows.WindowsDriver;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.FindBy;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
 public class SetupPage extends BasePage<SetupPage> {
 
-    @FindBy(name = "EULA and Privacy Policy Checkbox")
+    private static final String EULA_CHECKBOX = "EULA and Privacy Policy Checkbox";
+    private static final String NEXT_BUTTON = "Go to next step";
+
+    @FindBy(name = EULA_CHECKBOX)
     private WebElement eulaCheckbox;
 
-    @FindBy(name = "Go to next step")
+    @FindBy(name = NEXT_BUTTON)
     private WebElement nextButton;
 
     @FindBy(name = "Skip without adding apps")
@@ -28,7 +37,11 @@ public class SetupPage extends BasePage<SetupPage> {
     @FindBy(name = "Select this template and continue")
     private WebElement selectTemplateButton;
 
-    // Open Shift button is dynamic/hard to find, we might handle it specially or find by xpath dynamically
+    // Open Shift button is dynamic/hard to find: it only enters the UIA tree after the mouse moves over the window
+    private static final String OPEN_SHIFT = "Open Shift";
+    private static final int SWEEP_STEPS = 100;
+    private static final int SWEEP_STEP_OFFSET = -30;
+    private static final Path SWEEP_CACHE = Paths.get("target", "open-shift-sweep.properties");
 
     public SetupPage(WindowsDriver<WebElement> driver) {
         super(driver);
@@ -36,8 +49,8 @@ public class SetupPage extends BasePage<SetupPage> {
 
     public boolean isSetupVisible() {
         try {
-            // Check for EULA checkbox or Next button
-            return isElementPresent(eulaCheckbox) || isElementPresent(nextButton);
+            // Check for EULA checkbox or Next button, both against one snapshot
+            return isElementPresent(By.name(EULA_CHECKBOX)) || isElementPresent(By.name(NEXT_BUTTON));
         } catch (Exception e) {
             return false;
         }
@@ -45,14 +58,14 @@ public class SetupPage extends BasePage<SetupPage> {
 
     public SetupPage acceptEula() {
         logger.info("Accepting EULA...");
-        wait.until(ExpectedConditions.elementToBeClickable(eulaCheckbox));
+        transition("EULA step shown", readyToClick(eulaCheckbox));
         
         // Retry logic for checkbox as in CommonFlows
         for (int attempts = 0; attempts < 2; attempts++) {
             if (isChecked(eulaCheckbox)) break;
             eulaCheckbox.click();
-            sleep(300);
-            // Refresh element if needed (PageFactory proxies handle re-finding usually, but explicit find might be safer if stale)
+            // Wait for the toggle state to flip rather than a fixed delay; retry the click if it never does
+            tryTransition("EULA checkbox checked", () -> isChecked(eulaCheckbox), 2, TimeUnit.SECONDS);
         }
         
         if (!isChecked(eulaCheckbox)) {
@@ -69,24 +82,23 @@ public class SetupPage extends BasePage<SetupPage> {
 
     public SetupPage clickNextAgain() {
         logger.info("Clicking Next again...");
-        sleep(1000); // Wait for transition
-        wait.until(ExpectedConditions.elementToBeClickable(nextButton));
+        // The same Next button is reused by the following step, so wait for the EULA step to leave first
+        transition("EULA step closed", disappears(eulaCheckbox));
+        transition("second step shown", readyToClick(nextButton));
         click(nextButton);
         return this;
     }
 
     public SetupPage skipApps() {
         logger.info("Skipping apps...");
-        sleep(1000);
-        wait.until(ExpectedConditions.elementToBeClickable(skipAppsButton));
+        transition("apps step shown", readyToClick(skipAppsButton));
         click(skipAppsButton);
         return this;
     }
 
     public SetupPage clickNextAfterSkip() {
         logger.info("Clicking Next after skip...");
-        sleep(1000);
-        wait.until(ExpectedConditions.elementToBeClickable(nextAfterSkipButton));
+        transition("post-skip step shown", readyToClick(nextAfterSkipButton));
         
         // Ensure we click the center of the element to avoid hovering on the edge
         // The user reported the mouse hovers right above the button, likely due to coordinate offset.
@@ -94,6 +106,7 @@ public class SetupPage extends BasePage<SetupPage> {
         try {
             Actions actions = new Actions(driver);
             actions.moveToElement(nextAfterSkipButton).click().perform();
+            invalidateSnapshot();
         } catch (Exception e) {
             logger.warn("Actions click failed, falling back to standard click", e);
             click(nextAfterSkipButton);
@@ -103,15 +116,14 @@ public class SetupPage extends BasePage<SetupPage> {
 
     public SetupPage selectTemplate() {
         logger.info("Selecting template...");
-        sleep(1000);
-        wait.until(ExpectedConditions.elementToBeClickable(selectTemplateButton));
+        transition("template step shown", readyToClick(selectTemplateButton));
         click(selectTemplateButton);
         return this;
     }
 
     public SetupPage openShift() {
         logger.info("Waiting for 'Open Shift'...");
-        sleep(3000);
+        transition("template step closed", disappears(selectTemplateButton));
 
         WebElement openShiftBtn = findOpenShiftButtonWithSweep();
         
@@ -120,6 +132,7 @@ public class SetupPage extends BasePage<SetupPage> {
             // Use Actions for a more robust click, as direct click can be flaky for this element
             Actions actions = new Actions(driver);
             actions.moveToElement(openShiftBtn).click().perform();
+            invalidateSnapshot();
         } else {
             throw new RuntimeException("Could not find 'Open Shift' button even after mouse sweep.");
         }
@@ -135,33 +148,90 @@ public class SetupPage extends BasePage<SetupPage> {
         Actions actions = new Actions(driver);
         WebElement openShift = null;
 
-        // Save original implicit wait
+        // Single queries below must answer immediately; the original wait is restored afterwards
         driver.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS);
         actions.moveByOffset(0, -100).perform();
         
         try {
+            openShift = locateOpenShift();
+            if (openShift != null) {
+                return openShift;
+            }
+
+            // Jump straight to where the button showed up last time before sweeping everything
+            Integer rememberedStep = loadRememberedSweepStep();
+            if (rememberedStep != null && rememberedStep > 0) {
+                actions.moveByOffset(SWEEP_STEP_OFFSET * rememberedStep, 0).perform();
+                openShift = locateOpenShift();
+                if (openShift != null) {
+                    logger.info("Element found at remembered sweep step " + rememberedStep);
+                    return openShift;
+                }
+                actions.moveByOffset(-SWEEP_STEP_OFFSET * rememberedStep, 0).perform();
+            }
+
             logger.info("Sweeping mouse left and looking for 'Open Shift'...");
-            for (int i = 0; i < 100; i++) { 
-                try {
-                    List<WebElement> elements = driver.findElements(By.xpath("//*[contains(@Name, 'Open Shift')]"));
-                    if (!elements.isEmpty()) {
-                        WebElement el = elements.get(0);
-                        if (el.isDisplayed()) {
-                            openShift = el;
-                            logger.info("Element found at sweep step " + i);
-                            break;
-                        }
-                    }
-                } catch (Exception e) {}
-
-                actions.moveByOffset(-30, 0).perform();
-                sleep(10);
+            // The button only exists while the pointer hovers over it, so look after every step
+            for (int step = 1; step <= SWEEP_STEPS; step++) {
+                actions.moveByOffset(SWEEP_STEP_OFFSET, 0).perform();
+                openShift = locateOpenShift();
+                if (openShift != null) {
+                    logger.info("Element found at sweep step " + step);
+                    rememberSweepStep(step);
+                    break;
+                }
             }
         } catch (Exception e) {
             logger.error("Error during sweep: " + e.getMessage());
         } finally {
-            driver.manage().timeouts().implicitlyWait(10, TimeUnit.SECONDS);
+            driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWait(), TimeUnit.SECONDS);
         }
         return openShift;
     }
+
+    /**
+     * Takes a fresh snapshot (the pointer moved, so hover-only elements come and go) and only asks
+     * WinAppDriver for the element (by exact name, no XPath) when it shows an on-screen 'Open Shift' node.
+     */
+    private WebElement locateOpenShift() {
+        invalidateSnapshot();
+        UiSnapshot ui = snapshot();
+        int node = ui.findOnScreenNameContaining(OPEN_SHIFT);
+        if (node < 0) {
+            return null;
+        }
+        for (WebElement element : driver.findElementsByName(ui.name(node))) {
+            if (element.isDisplayed()) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static synchronized Integer loadRememberedSweepStep() {
+        if (!Files.exists(SWEEP_CACHE)) {
+            return null;
+        }
+        Properties cache = new Properties();
+        try (InputStream in = Files.newInputStream(SWEEP_CACHE)) {
+            cache.load(in);
+            String step = cache.getProperty(OPEN_SHIFT);
+            return step == null ? null : Integer.valueOf(step);
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static synchronized void rememberSweepStep(int step) {
+        Properties cache = new Properties();
+        cache.setProperty(OPEN_SHIFT, String.valueOf(step));
+        try {
+            Files.createDirectories(SWEEP_CACHE.getParent());
+            try (OutputStream out = Files.newOutputStream(SWEEP_CACHE)) {
+                cache.store(out, "Mouse sweep step at which the setup button appeared");
+            }
+        } catch (IOException ignored) {
+            // Only an optimisation for the next run
+        }
+    }
 }
@@ -1,10 +1,15 @@
 package com.automation.browser.testBase;
 
+import com.automation.browser.config.TestConfig;
+import com.automation.browser.utils.FakeShift;
 import com.automation.browser.utils.PageGenerator;
+import com.automation.browser.utils.ReplayCommandExecutor;
 import com.automation.browser.utils.DriverFactory;
+import com.automation.browser.utils.ScreenshotPipeline;
+import com.automation.browser.utils.ScreenshotStore;
 import com.automation.browser.utils.ScreenshotUtil;
+import com.automation.browser.utils.WaitEngine;
 import io.appium.java_client.windows.WindowsDriver;
-import io.qameta.allure.Allure;
 import io.qameta.allure.Step;
 import org.openqa.selenium.WebElement;
 import org.slf4j.Logger;
@@ -14,21 +19,29 @@ import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeSuite;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class BaseTest {
-    protected static WindowsDriver<WebElement> driver;
-    protected PageGenerator on;
+    // Pages resolve the calling thread's leased driver, so one generator is safe to share across parallel methods
+    protected final PageGenerator on = new PageGenerator();
     private static final Logger logger = LoggerFactory.getLogger(BaseTest.class);
 
     @BeforeSuite
     public void setUp() {
         logger.info("Setting up Test Suite...");
+        if (TestConfig.isFakeWinAppDriver()) {
+            // Must happen before DriverFactory reads the endpoint configuration
+            FakeShift.startForSuite();
+        } else if ("replay".equals(TestConfig.getWinAppDriverTrafficMode())) {
+            // Sessions are answered from the recording; only the installed-executable check touches the disk
+            ReplayCommandExecutor.prepareSuite();
+        }
         try {
-            driver = DriverFactory.getDriver();
+            // Warm the pool with one session, then hand it back for the first test thread to pick up
+            DriverFactory.getDriver();
+            DriverFactory.releaseDriver();
         } catch (Exception e) {
             logger.warn("Driver initialization failed in BeforeSuite. This is expected if the application is not yet installed. Error: " + e.getMessage());
         }
@@ -36,23 +49,30 @@ public class BaseTest {
     
     @BeforeMethod
     public void setUpMethod() {
-        // Initialize the 'on' object before each test method
-        if (driver == null) {
-            try {
-                driver = DriverFactory.getDriver();
-            } catch (Exception e) {
-                logger.warn("Driver initialization failed in BeforeMethod. Continuing execution as test might handle installation.");
-            }
+        // Lease a session for this test thread up front
+        try {
+            DriverFactory.getDriver();
+        } catch (Exception e) {
+            logger.warn("Driver initialization failed in BeforeMethod. Continuing execution as test might handle installation.");
         }
-        
-        // Always initialize PageGenerator, even if driver is null (it handles null driver gracefully or throws when used)
-        on = new PageGenerator(driver);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void releaseDriver() {
+        DriverFactory.releaseDriver();
+        // Configuration a test changed for itself must not leak into the next test on this thread
+        TestConfig.clearOverrides();
     }
 
     @AfterSuite
     public void tearDown() {
         logger.info("Tearing down Test Suite...");
-        DriverFactory.quitDriver();
+        DriverFactory.shutdown();
+        // Screenshot writes and attachments complete in the background; make sure none are lost
+        ScreenshotPipeline.flush(60, TimeUnit.SECONDS);
+        ScreenshotStore.logSummary();
+        WaitEngine.getInstance().logSummary();
+        FakeShift.stopForSuite();
     }
     
     // Helper method to add short delays if needed for UI stability
@@ -67,20 +87,14 @@ public class BaseTest {
     @Step("Capture Screenshot: {name}")
     public void saveScreenshot(String name) {
         // Force screenshot capture regardless of 'take.screenshot.on.failure' config
-        String path = ScreenshotUtil.takeScreenshot(name, true);
+        CompletableFuture<Path> stored = ScreenshotUtil.takeScreenshotAndAttach(name, true, name);
         
-        if (path != null) {
-            try (InputStream is = Files.newInputStream(Paths.get(path))) {
-                Allure.addAttachment(name, is);
-            } catch (IOException e) {
-                logger.error("Failed to attach screenshot to Allure report", e);
-            }
-        } else {
-            logger.warn("Screenshot was not saved (returned null). Check driver state.");
+        if (stored == null) {
+            logger.warn("Screenshot was not taken (returned null). Check driver state.");
         }
     }
     
     public WindowsDriver<WebElement> getDriver() {
-        return driver;
+        return DriverFactory.getDriver();
     }
 }
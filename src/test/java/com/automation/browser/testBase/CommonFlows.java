@@ -6,9 +6,7 @@ import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.testng.Assert;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.Map;
 import org.openqa.selenium.WebElement;
@@ -17,17 +15,125 @@ import java.net.URL;
 import org.openqa.selenium.remote.DesiredCapabilities;
 import org.openqa.selenium.interactions.Actions;
 import com.automation.browser.config.TestConfig;
+import com.automation.browser.utils.DownloadWatcher;
+import com.automation.browser.utils.DriverFactory;
+import com.automation.browser.utils.InstallMonitor;
+import com.automation.browser.utils.InstallerCache;
+import com.automation.browser.utils.InstallerDownloader;
+import com.automation.browser.utils.PeVersionInfo;
+import com.automation.browser.utils.Pipeline;
+import com.automation.browser.utils.WindowHandleCache;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 public class CommonFlows extends BaseTest {
 
     private final String DOWNLOAD_DIR = System.getProperty("user.home") + File.separator + "Downloads";
+    // Covers the download finishing, not just the file appearing
+    private static final int DOWNLOAD_TIMEOUT_SECONDS = 60;
+    // Installer run through to the application window being up
+    private static final int INSTALL_TIMEOUT_SECONDS = 300;
+    private final InstallerCache installerCache = InstallerCache.fromConfig();
 
     public String getShiftExecutablePath() {
+        String configured = TestConfig.getShiftExecutable();
+        if (configured != null) {
+            return configured;
+        }
         String localAppData = System.getenv("LOCALAPPDATA");
         return localAppData + "\\Shift\\chromium\\shift.exe";
     }
 
     public String downloadAndInstallShift() throws Exception {
+        URL winAppDriverUrl = new URL(TestConfig.getWinAppDriverUrl());
+        try (Pipeline pipeline = new Pipeline("Install Shift")) {
+            // Independent of the installer; ready by the time the install monitor polls for the window
+            Pipeline.Stage<WindowsDriver<WebElement>> rootSession = pipeline.stage("open Root session",
+                    () -> WindowHandleCache.getRootSession(winAppDriverUrl));
+            Pipeline.Stage<InstallerCache.Entry> installer = pipeline.stage("obtain installer", this::obtainInstaller);
+            // Reading the version and running the installer both only need the file, so they overlap
+            Pipeline.Stage<String> version = pipeline.stage("read installer version",
+                    () -> readInstallerVersion(installer.get()), installer);
+            Pipeline.Stage<Process> install = pipeline.stage("run installer", () -> {
+                Process process = installShift(installer.get().getFile().toFile());
+                pipeline.onAbort(process::destroyForcibly);
+                return process;
+            }, installer);
+            Pipeline.Stage<InstallMonitor.Timings> ready = pipeline.stage("wait for installation", () -> {
+                System.out.println("Waiting for installation to complete (Shift.exe, installer exit, Shift window)...");
+                return new InstallMonitor(Paths.get(getShiftExecutablePath()), install.get(),
+                        this::isShiftWindowOpen).awaitReady(INSTALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }, install, rootSession);
+            Pipeline.Stage<String> done = pipeline.stage("installed", () -> {
+                System.out.println("Shift installed and running. Phase timings (ms): " + ready.get());
+                return version.get();
+            }, version, ready);
+
+            try {
+                return pipeline.await(done, DOWNLOAD_TIMEOUT_SECONDS + INSTALL_TIMEOUT_SECONDS + 60, TimeUnit.SECONDS);
+            } finally {
+                pipeline.attachReport();
+            }
+        }
+    }
+
+    private InstallerCache.Entry obtainInstaller() throws Exception {
+        InstallerCache.Entry installer = null;
+        String installerUrl = TestConfig.getInstallerUrl();
+        if (installerUrl == null && "http".equals(TestConfig.getInstallerDownloadMode())) {
+            installerUrl = resolveInstallerLink();
+        }
+        if (installerUrl == null) {
+            // Where Chrome's download from the page led last time, if an earlier run went through Chrome
+            installerUrl = installerCache.findDownloadUrl(TestConfig.getInstallerPageUrl());
+        }
+        if (installerUrl != null) {
+            // Conditional request against the cache; Chrome is not needed when this succeeds
+            installer = installerCache.fetch(installerUrl, TestConfig.getInstallerSha256());
+        }
+        if (installer == null) {
+            System.out.println("No direct installer download available, falling back to Chrome");
+            installer = downloadInstallerWithChrome();
+        }
+        System.out.println("Installer: " + installer.getFileName() + " (sha256 " + installer.getSha256() + ")");
+        return installer;
+    }
+
+    private String readInstallerVersion(InstallerCache.Entry installer) {
+        String installerVersion = installer.getVersion();
+        if (installerVersion == null) {
+            installerVersion = getFileVersion(installer.getFile().toString());
+            if (installerVersion != null && !installerVersion.isEmpty()) {
+                installerCache.setVersion(installer, installerVersion);
+            }
+        }
+        System.out.println("Installer Version: " + installerVersion);
+        // Failing here cancels the install that is already running
+        Assert.assertNotNull(installerVersion, "Could not determine installer version.");
+        Assert.assertFalse(installerVersion.isEmpty(), "Installer version is empty.");
+        return installerVersion;
+    }
+
+    /**
+     * The installer link from the download page's HTML, or null if the page only provides it through JavaScript.
+     */
+    private String resolveInstallerLink() throws InterruptedException {
+        try {
+            return new InstallerDownloader().resolveLink(TestConfig.getInstallerPageUrl(),
+                    Pattern.compile(TestConfig.getInstallerLinkPattern()));
+        } catch (java.io.IOException e) {
+            System.out.println("Could not load the download page: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Downloads the installer through the page's own download logic and caches it under the URL the
+     * download resolved to.
+     */
+    private InstallerCache.Entry downloadInstallerWithChrome() throws InterruptedException {
+        // Only stale downloads are removed; the installer cache lives elsewhere
         cleanOldInstallers(DOWNLOAD_DIR);
 
         ChromeOptions options = new ChromeOptions();
@@ -41,38 +147,19 @@ public class CommonFlows extends BaseTest {
 
         System.out.println("Starting Chrome for download...");
         ChromeDriver chromeDriver = new ChromeDriver(options);
-        String installerVersion = "";
 
-        try {
-            chromeDriver.get("https://shift.com/download/");
+        // Watch before navigating so the download's first file events are not missed
+        try (DownloadWatcher downloads = DownloadWatcher.watch(Paths.get(DOWNLOAD_DIR),
+                name -> name.contains("Shift") && name.endsWith(".exe"))) {
+            String pageUrl = TestConfig.getInstallerPageUrl();
+            chromeDriver.get(pageUrl);
             System.out.println("Navigated to download page. Waiting for download...");
-            File downloadedFile = waitForDownloadToComplete(DOWNLOAD_DIR, 30);
+            File downloadedFile = downloads.awaitCompleted(DOWNLOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             Assert.assertNotNull(downloadedFile, "Shift installer was not downloaded successfully.");
             System.out.println("Downloaded file: " + downloadedFile.getAbsolutePath());
-
-            installerVersion = getFileVersion(downloadedFile.getAbsolutePath());
-            System.out.println("Installer Version: " + installerVersion);
-            Assert.assertNotNull(installerVersion, "Could not determine installer version.");
-            Assert.assertFalse(installerVersion.isEmpty(), "Installer version is empty.");
-
-            System.out.println("Installing Shift...");
-            installShift(downloadedFile);
-
-            File installedFile = new File(getShiftExecutablePath());
-
-            System.out.println("Waiting for installation to complete (Shift.exe to appear)...");
-            int waitTime = 0;
-            while (!installedFile.exists() && waitTime < 240) {
-                Thread.sleep(1000);
-                waitTime++;
-            }
-            Assert.assertTrue(installedFile.exists(), "Shift executable not found at: " + getShiftExecutablePath());
-
-            System.out.println("Shift installed. Waiting 20 seconds for the app to launch and initialize...");
-            Thread.sleep(20000);
-
-            return installerVersion;
-
+            String downloadUrl = downloadUrl(chromeDriver);
+            System.out.println("Download URL: " + (downloadUrl != null ? downloadUrl : "unknown"));
+            return installerCache.put(downloadedFile.toPath(), downloadUrl, pageUrl);
         } finally {
             if (chromeDriver != null) {
                 chromeDriver.quit();
@@ -80,18 +167,33 @@ public class CommonFlows extends BaseTest {
         }
     }
 
+    /**
+     * The URL of Chrome's most recent download as chrome://downloads lists it, or null if the page
+     * cannot be read (its markup differs between Chrome versions).
+     */
+    private String downloadUrl(ChromeDriver chromeDriver) {
+        try {
+            chromeDriver.get("chrome://downloads/");
+            Object url = chromeDriver.executeScript(
+                    "const manager = document.querySelector('downloads-manager');"
+                            + "const item = manager && manager.shadowRoot.querySelector('downloads-item');"
+                            + "const url = item && item.data && item.data.url;"
+                            + "return typeof url === 'string' ? url : (url && url.url) || null;");
+            return url instanceof String && !((String) url).isEmpty() ? (String) url : null;
+        } catch (RuntimeException e) {
+            System.out.println("Could not read the download URL from Chrome: " + e.getMessage());
+            return null;
+        }
+    }
+
     public void handleSetup() {
+        // Each step waits for its own screen to be ready, no pauses needed in between
         on.SetupPage().acceptEula()
                 .clickNext()
-                .pause(500)
                 .clickNextAgain()
-                .pause(500)
                 .skipApps()
-                .pause(500)
                 .clickNextAfterSkip()
-                .pause(500)
                 .selectTemplate()
-                .pause(500)
                 .openShift();
     }
 
@@ -118,7 +220,7 @@ public class CommonFlows extends BaseTest {
                     caps.setCapability("deviceName", "WindowsPC");
                     
                     // Ensure WinAppDriver is running and accessible
-                    rootDriver = new WindowsDriver<>(new URL(TestConfig.getWinAppDriverUrl()), caps);
+                    rootDriver = DriverFactory.newWindowsDriver(new URL(TestConfig.getWinAppDriverUrl()), caps);
 
                     // Find "Yes" button by AccessibilityId (AutomationId)
                     WebElement yesButton = rootDriver.findElementByAccessibilityId("6");
@@ -177,47 +279,32 @@ public class CommonFlows extends BaseTest {
         }
     }
 
-    private File waitForDownloadToComplete(String dirPath, int timeoutSeconds) throws InterruptedException {
-        File dir = new File(dirPath);
-        int time = 0;
-        while (time < timeoutSeconds) {
-            if (dir.exists() && dir.isDirectory()) {
-                File[] files = dir.listFiles((d, name) -> name.contains("Shift") && name.endsWith(".exe"));
-               if(files != null && files.length > 0) {
-                return files[0];
-               }
-            }
-            Thread.sleep(1000);
-            time++;
-        }
-        return null;
-    }
-
     private String getFileVersion(String filePath) {
         try {
-            String command = "(Get-Item '" + filePath + "').VersionInfo.ProductVersion";
-            ProcessBuilder builder = new ProcessBuilder("powershell.exe", "-Command", command);
-            builder.redirectErrorStream(true);
-            Process process = builder.start();
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String version = reader.readLine();
-            process.waitFor();
-
-            if (version != null) {
-                return version.trim();
-            }
+            // Read straight from the PE version resource; no PowerShell process needed
+            return PeVersionInfo.read(Paths.get(filePath)).getProductVersion();
         } catch (Exception e) {
             e.printStackTrace();
         }
         return null;
     }
 
-    private void installShift(File installer) {
+    private boolean isShiftWindowOpen() {
+        try {
+            URL url = new URL(TestConfig.getWinAppDriverUrl());
+            // Also primes the handle cache the next session attaches through
+            return WindowHandleCache.findWindowHandle(url, getShiftExecutablePath(), DriverFactory.getShiftWindowNames()) != null;
+        } catch (java.net.MalformedURLException e) {
+            throw new RuntimeException("Invalid WinAppDriver URL", e);
+        }
+    }
+
+    private Process installShift(File installer) {
         try {
+            System.out.println("Installing Shift...");
             System.out.println("Running installer: " + installer.getAbsolutePath());
             ProcessBuilder pb = new ProcessBuilder(installer.getAbsolutePath());
-            pb.start();
+            return pb.start();
         } catch (Exception e) {
             throw new RuntimeException("Failed to run installer", e);
         }
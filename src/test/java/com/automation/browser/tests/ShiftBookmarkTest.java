@@ -3,7 +3,6 @@ package com.automation.browser.tests;
 import com.automation.browser.config.TestConfig;
 import com.automation.browser.testBase.CommonFlows;
 import com.automation.browser.utils.DriverFactory;
-import com.automation.browser.utils.PageGenerator;
 import com.automation.browser.utils.TestListener;
 import io.qameta.allure.Epic;
 import io.qameta.allure.Feature;
@@ -35,10 +34,8 @@ public class ShiftBookmarkTest extends CommonFlows {
             downloadAndInstallShift();
             
             // Re-initialize driver after install to point to the new executable
-            TestConfig.setProperty("browser.path", shiftPath);
+            TestConfig.override("browser.path", shiftPath);
             DriverFactory.quitDriver();
-            driver = DriverFactory.getDriver();
-            on = new PageGenerator(driver);
             
             try {
                 handleSetup();
@@ -49,37 +46,30 @@ public class ShiftBookmarkTest extends CommonFlows {
              System.out.println("Shift browser found.");
              
              // Ensure driver is pointing to the correct executable and is running
-             TestConfig.setProperty("browser.path", shiftPath);
-             if (driver == null) {
-                  driver = DriverFactory.getDriver();
-                  on = new PageGenerator(driver);
-             }
+             TestConfig.override("browser.path", shiftPath);
         }
 
         // Maximize window for better visibility
         try {
-            driver.manage().window().maximize();
+            getDriver().manage().window().maximize();
         } catch (Exception e) {
             System.out.println("Could not maximize window: " + e.getMessage());
         }
 
         // 1. Enable Bookmarks Bar
         on.BrowserPage().ensureBookmarksBarVisible();
-        sleep(2);
 
         // 2. Navigate to https://www.rdbrck.com/
         String url = "https://www.rdbrck.com/";
         System.out.println("Navigating to: " + url);
-        on.BrowserPage().navigateTo(url);
-        
-        // Wait for page load
-        sleep(5);
+        on.BrowserPage().navigateTo(url)
+                .waitForPageLoad();
         saveScreenshot("Page Loaded - Redbrick");
 
         // 3. Save bookmark
         System.out.println("Saving bookmark...");
+        // saveBookmark() returns once the bookmark popup has closed
         on.BrowserPage().saveBookmark();
-        sleep(2); // Wait for animation/popup
         saveScreenshot("Bookmark Action Performed");
 
         // 4. Verify bookmark in Bookmarks Bar
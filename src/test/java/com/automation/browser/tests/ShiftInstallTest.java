@@ -3,7 +3,6 @@ package com.automation.browser.tests;
 import com.automation.browser.config.TestConfig;
 import com.automation.browser.testBase.CommonFlows;
 import com.automation.browser.utils.DriverFactory;
-import com.automation.browser.utils.PageGenerator;
 import com.automation.browser.utils.TestListener;
 import io.qameta.allure.Epic;
 import io.qameta.allure.Feature;
@@ -27,15 +26,11 @@ public class ShiftInstallTest extends CommonFlows {
         installerVersion = downloadAndInstallShift();
 
         String installedPath = getShiftExecutablePath();
-        TestConfig.setProperty("browser.path", installedPath);
+        TestConfig.override("browser.path", installedPath);
 
         // Initialize WinAppDriver
         DriverFactory.quitDriver();
-        driver = DriverFactory.getDriver();
-        Assert.assertNotNull(driver, "Failed to initialize WinAppDriver.");
-
-        // Re-initialize PageGenerator since driver changed
-        on = new PageGenerator(driver);
+        Assert.assertNotNull(DriverFactory.getDriver(), "Failed to initialize WinAppDriver.");
 
         // Handle Setup if needed
          try {
@@ -45,7 +40,7 @@ public class ShiftInstallTest extends CommonFlows {
          }
 
         // Maximize the browser window
-        driver.manage().window().maximize();
+        getDriver().manage().window().maximize();
 
         if (installerVersion != null && !installerVersion.isEmpty()) {
              String actualVersion = getInstalledVersion();
@@ -61,7 +56,6 @@ public class ShiftInstallTest extends CommonFlows {
     public void tearDownMethod() {
         System.out.println("Tearing down test...");
         DriverFactory.quitDriver();
-        driver = null;
         //uninstallShift(); in case we want to uninstall Shift after the test
     }
 }
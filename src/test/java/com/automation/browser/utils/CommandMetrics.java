@@ -0,0 +1,105 @@
+package com.automation.browser.utils;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms for every remote WebDriver command, keyed by command name,
+ * locator strategy and outcome. Values are recorded in microseconds.
+ * Suite-wide numbers use wait-free {@link Recorder}s shared by all threads; per-test numbers
+ * use plain histograms owned by the test thread, so recording never takes a lock.
+ */
+public class CommandMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(CommandMetrics.class);
+    private static final long HIGHEST_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final Map<String, Recorder> suite = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> suiteTotals = new TreeMap<>();
+    private static final ThreadLocal<Map<String, Histogram>> currentTest = new ThreadLocal<>();
+
+    private CommandMetrics() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void record(String command, String strategy, String outcome, long latency, TimeUnit unit) {
+        String key = command + (strategy == null ? "" : " [" + strategy + "]") + " " + outcome;
+        long micros = Math.max(1, Math.min(HIGHEST_MICROS, unit.toMicros(latency)));
+        suite.computeIfAbsent(key, k -> new Recorder(HIGHEST_MICROS, SIGNIFICANT_DIGITS)).recordValue(micros);
+        Map<String, Histogram> test = currentTest.get();
+        if (test != null) {
+            test.computeIfAbsent(key, k -> new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS)).recordValue(micros);
+        }
+    }
+
+    /**
+     * Starts collecting per-test numbers for commands issued by the calling thread.
+     */
+    public static void startTest() {
+        currentTest.set(new TreeMap<>());
+    }
+
+    /**
+     * Stops per-test collection on the calling thread and returns its summary as JSON,
+     * or null if no test was being recorded.
+     */
+    public static String finishTest(String testName) {
+        Map<String, Histogram> test = currentTest.get();
+        currentTest.remove();
+        if (test == null) {
+            return null;
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("test", testName);
+        report.put("commands", summarize(test));
+        return new Json().toJson(report);
+    }
+
+    /**
+     * Logs suite-wide latency per command, slowest total time first.
+     */
+    public static synchronized void logSuiteSummary() {
+        suite.forEach((key, recorder) -> suiteTotals
+                .computeIfAbsent(key, k -> new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS))
+                .add(recorder.getIntervalHistogram()));
+        List<Map<String, Object>> rows = summarize(suiteTotals);
+        rows.sort((a, b) -> Double.compare((double) b.get("totalMs"), (double) a.get("totalMs")));
+        for (Map<String, Object> row : rows) {
+            logger.info("{}: count={}, p50={} ms, p99={} ms, max={} ms, total={} ms",
+                    row.get("command"), row.get("count"), row.get("p50Ms"), row.get("p99Ms"),
+                    row.get("maxMs"), row.get("totalMs"));
+        }
+    }
+
+    private static List<Map<String, Object>> summarize(Map<String, Histogram> histograms) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        histograms.forEach((key, histogram) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("command", key);
+            row.put("count", histogram.getTotalCount());
+            row.put("minMs", millis(histogram.getMinValue()));
+            row.put("p50Ms", millis(histogram.getValueAtPercentile(50)));
+            row.put("p90Ms", millis(histogram.getValueAtPercentile(90)));
+            row.put("p99Ms", millis(histogram.getValueAtPercentile(99)));
+            row.put("maxMs", millis(histogram.getMaxValue()));
+            row.put("totalMs", millis((long) (histogram.getMean() * histogram.getTotalCount())));
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    private static double millis(long micros) {
+        return Math.round(micros / 100.0) / 10.0;
+    }
+}
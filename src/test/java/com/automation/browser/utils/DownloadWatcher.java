@@ -0,0 +1,222 @@
+package com.automation.browser.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Waits for a browser download to finish in a directory, driven by file system events instead of
+ * directory listings. A matching file only counts as downloaded once its size has stopped changing
+ * and it can be locked for writing, i.e. the browser has closed it. Partial files
+ * (.crdownload, .part, .tmp) never match, but their growth is reported as progress.
+ *
+ * Open the watcher before starting the download so no event is missed:
+ * <pre>
+ * try (DownloadWatcher watcher = DownloadWatcher.watch(dir, name -&gt; name.endsWith(".exe"))) {
+ *     startDownload();
+ *     File file = watcher.awaitCompleted(60, TimeUnit.SECONDS);
+ * }
+ * </pre>
+ */
+public class DownloadWatcher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DownloadWatcher.class);
+    private static final long STABLE_MILLIS = 500;
+    private static final long CHECK_INTERVAL_MILLIS = 100;
+    private static final long PROGRESS_LOG_MILLIS = 2000;
+
+    private final Path directory;
+    private final Predicate<String> fileFilter;
+    private final WatchService watchService;
+    private final long startNanos = System.nanoTime();
+
+    // Candidate file -> last observed size and when that size was first seen
+    private final Map<Path, long[]> candidates = new LinkedHashMap<>();
+    private long bytesReceived;
+    private long lastProgressLog;
+
+    private DownloadWatcher(Path directory, Predicate<String> fileFilter) throws IOException {
+        this.directory = directory;
+        this.fileFilter = fileFilter;
+        Files.createDirectories(directory);
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    }
+
+    /**
+     * Starts watching the directory for files whose name matches the filter.
+     * Files already present are ignored unless they are written to again.
+     */
+    public static DownloadWatcher watch(Path directory, Predicate<String> fileFilter) {
+        try {
+            return new DownloadWatcher(directory, fileFilter);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to watch download directory " + directory, e);
+        }
+    }
+
+    /**
+     * Blocks until a matching file is complete and returns it, or returns null on timeout.
+     */
+    public File awaitCompleted(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            File completed = checkCandidates();
+            if (completed != null) {
+                logger.info("Download complete: {} ({} KB in {} ms, {} KB/s)", completed.getName(),
+                        completed.length() / 1024, getElapsedMillis(), Math.round(getThroughputBytesPerSecond() / 1024));
+                return completed;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                logger.warn("No completed download in {} after {} ms ({} KB received)",
+                        directory, getElapsedMillis(), getBytesReceived() / 1024);
+                return null;
+            }
+            // Wake up on the next event, or after a short interval while a candidate still has to settle
+            long wait = candidates.isEmpty() ? remaining : Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(CHECK_INTERVAL_MILLIS));
+            WatchKey key;
+            try {
+                key = watchService.poll(wait, TimeUnit.NANOSECONDS);
+            } catch (ClosedWatchServiceException e) {
+                return null;
+            }
+            if (key != null) {
+                handleEvents(key);
+            }
+            logProgress();
+        }
+    }
+
+    /**
+     * Bytes of the download written so far, whether still under a partial name or not.
+     */
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public double getThroughputBytesPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : getBytesReceived() * 1000.0 / elapsed;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close download watcher: {}", e.getMessage());
+        }
+    }
+
+    private void handleEvents(WatchKey key) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were dropped; fall back to looking at what is there now
+                rescan();
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            String name = file.getFileName().toString();
+            if (event.kind() == ENTRY_DELETE) {
+                candidates.remove(file);
+            } else if (isPartial(name)) {
+                observed(file.toFile().length());
+            } else if (fileFilter.test(name)) {
+                candidates.putIfAbsent(file, new long[]{-1, 0});
+            }
+        }
+        key.reset();
+    }
+
+    private void rescan() {
+        File[] files = directory.toFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (isPartial(file.getName())) {
+                observed(file.length());
+            } else if (fileFilter.test(file.getName())) {
+                candidates.putIfAbsent(file.toPath(), new long[]{-1, 0});
+            }
+        }
+    }
+
+
+    /**
+     * Returns the first candidate whose size has been stable long enough and that nobody holds open.
+     */
+    private File checkCandidates() {
+        long now = System.nanoTime();
+        for (Map.Entry<Path, long[]> entry : candidates.entrySet()) {
+            File file = entry.getKey().toFile();
+            long[] state = entry.getValue();
+            long size = file.length();
+            if (size != state[0]) {
+                observed(size);
+                state[0] = size;
+                state[1] = now;
+                continue;
+            }
+            if (size > 0 && now - state[1] >= TimeUnit.MILLISECONDS.toNanos(STABLE_MILLIS) && isUnlocked(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isUnlocked(File file) {
+        // On Windows the browser's open handle makes this fail until the download is closed
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+             FileLock lock = channel.tryLock()) {
+            return lock != null;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static boolean isPartial(String name) {
+        return name.endsWith(".crdownload") || name.endsWith(".part") || name.endsWith(".tmp");
+    }
+
+    /**
+     * The browser renames the same bytes through several partial names before the final one,
+     * so progress is the largest size seen rather than a sum.
+     */
+    private synchronized void observed(long size) {
+        bytesReceived = Math.max(bytesReceived, size);
+    }
+
+    private void logProgress() {
+        long elapsed = getElapsedMillis();
+        if (elapsed - lastProgressLog >= PROGRESS_LOG_MILLIS && getBytesReceived() > 0) {
+            lastProgressLog = elapsed;
+            logger.info("Downloading: {} KB received, {} KB/s", getBytesReceived() / 1024,
+                    Math.round(getThroughputBytesPerSecond() / 1024));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.automation.browser.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Drives DownloadWatcher with a synthetic writer in a temp directory, the way a browser writes a download.
+ */
+public class DownloadWatcherTest {
+    private static final int CHUNK = 64 * 1024;
+
+    private Path directory;
+    private ExecutorService writer;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("download-watcher");
+        writer = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        writer.shutdownNow();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void partialDownloadCountsOnlyAfterRename() throws Exception {
+        Path partial = directory.resolve("ShiftSetup.exe.crdownload");
+        Path target = directory.resolve("ShiftSetup.exe");
+        try (DownloadWatcher watcher = DownloadWatcher.watch(directory, name -> name.endsWith(".exe"))) {
+            writer.submit(() -> {
+                append(partial, 10, 20);
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+                return null;
+            });
+
+            File completed = watcher.awaitCompleted(15, TimeUnit.SECONDS);
+
+            Assert.assertNotNull(completed, "Renamed download was not reported");
+            Assert.assertEquals(completed.toPath(), target);
+            Assert.assertEquals(completed.length(), 10L * CHUNK);
+            Assert.assertEquals(watcher.getBytesReceived(), 10L * CHUNK, "Progress should follow the partial file");
+        }
+    }
+
+    @Test
+    public void growingFileIsReportedOnceItSettles() throws Exception {
+        Path target = directory.resolve("ShiftSetup.exe");
+        try (DownloadWatcher watcher = DownloadWatcher.watch(directory, name -> name.endsWith(".exe"))) {
+            // Written under its final name in bursts with pauses shorter than the settle time
+            Future<Long> lastWrite = writer.submit(() -> append(target, 8, 150));
+
+            File completed = watcher.awaitCompleted(15, TimeUnit.SECONDS);
+            long reportedAt = System.nanoTime();
+
+            Assert.assertNotNull(completed, "Settled download was not reported");
+            Assert.assertTrue(lastWrite.isDone(), "Reported while the file was still growing");
+            Assert.assertEquals(completed.length(), 8L * CHUNK);
+            Assert.assertTrue(reportedAt - lastWrite.get() >= TimeUnit.MILLISECONDS.toNanos(400),
+                    "Reported before the size had been stable for the settle time");
+        }
+    }
+
+    @Test
+    public void timesOutWhenNothingMatchingArrives() throws Exception {
+        try (DownloadWatcher watcher = DownloadWatcher.watch(directory, name -> name.endsWith(".exe"))) {
+            writer.submit(() -> {
+                append(directory.resolve("readme.txt"), 2, 50);
+                append(directory.resolve("ShiftSetup.exe.crdownload"), 2, 50);
+                return null;
+            });
+
+            long start = System.nanoTime();
+            File completed = watcher.awaitCompleted(1500, TimeUnit.MILLISECONDS);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assert.assertNull(completed, "Only a non-matching and a partial file were written");
+            Assert.assertTrue(elapsed >= 1400 && elapsed < 5000, "Timeout not honoured: " + elapsed + " ms");
+            Assert.assertTrue(watcher.getBytesReceived() > 0, "Partial file growth should count as progress");
+        }
+    }
+
+    /**
+     * Appends the chunks with a pause between them and returns the nanoTime of the last write.
+     */
+    private static long append(Path file, int chunks, long pauseMillis) throws IOException, InterruptedException {
+        byte[] chunk = new byte[CHUNK];
+        long lastWrite = 0;
+        for (int i = 0; i < chunks; i++) {
+            if (i > 0) {
+                Thread.sleep(pauseMillis);
+            }
+            try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(chunk);
+            }
+            lastWrite = System.nanoTime();
+        }
+        return lastWrite;
+    }
+}
@@ -2,57 +2,148 @@ package com.automation.browser.utils;
 
 import com.automation.browser.config.TestConfig;
 import io.appium.java_client.windows.WindowsDriver;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.remote.DesiredCapabilities;
 import org.openqa.selenium.By;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * DriverFactory for WinAppDriver using legacy Selenium 3.x + Appium 7.x
  * Uses WindowsDriver with plain capabilities (no vendor prefixes)
+ * Sessions are pooled and leased per thread so tests can run in parallel,
+ * and new sessions are spread across every configured WinAppDriver endpoint.
  */
 public class DriverFactory {
     private static final Logger logger = LoggerFactory.getLogger(DriverFactory.class);
-    private static WindowsDriver<WebElement> driver;
+    private static final EndpointScheduler scheduler = new EndpointScheduler(
+            parseEndpoints(TestConfig.getWinAppDriverUrls()),
+            TestConfig.getEndpointFailureThreshold(),
+            TestConfig.getEndpointOpenSeconds(),
+            TimeUnit.SECONDS);
+    private static final String trafficMode = TestConfig.getWinAppDriverTrafficMode();
+    private static final TrafficLog.Writer trafficRecorder = "record".equals(trafficMode)
+            ? TrafficLog.create(Paths.get(TestConfig.getWinAppDriverTrafficFile()))
+            : null;
+    private static final ReplayCommandExecutor.Script trafficReplay = "replay".equals(trafficMode)
+            ? ReplayCommandExecutor.Script.load(Paths.get(TestConfig.getWinAppDriverTrafficFile()), TestConfig.isWinAppDriverTrafficReplayTimed())
+            : null;
+    private static final List<String> SHIFT_WINDOW_NAMES = Arrays.asList(
+            "Untitled - Shift Browser", "Shift Browser", "Welcome to Shift", "Shift");
+    private static final Map<WindowsDriver<WebElement>, EndpointScheduler.Endpoint> sessionEndpoints = new ConcurrentHashMap<>();
+    private static final Set<WindowsDriver<WebElement>> attachedSessions = ConcurrentHashMap.newKeySet();
+    private static final WindowsSessionFactory sessionFactory = new WindowsSessionFactory();
+    private static final WarmStandby<WindowsDriver<WebElement>> standby = TestConfig.isSessionPrewarmEnabled()
+            ? new WarmStandby<>(DriverFactory::launchScheduledSession, sessionFactory::isHealthy, sessionFactory::destroy,
+                    DriverFactory::reserveStandbySlot, DriverFactory::releaseStandbySlot,
+                    TestConfig.getSessionPoolAcquireTimeout(), TimeUnit.SECONDS)
+            : null;
+    private static final SessionPool<WindowsDriver<WebElement>> pool = new SessionPool<>(
+            sessionFactory,
+            TestConfig.getSessionPoolMaxSize(scheduler.size()),
+            TestConfig.getSessionPoolAcquireTimeout(),
+            TimeUnit.SECONDS);
 
     private DriverFactory() {
         // Private constructor to prevent instantiation
     }
 
+    /**
+     * Returns the session leased by the calling thread, leasing one from the pool if needed.
+     */
     public static WindowsDriver<WebElement> getDriver() {
-        if (driver == null) {
-            initializeDriver();
-        }
+        WindowsDriver<WebElement> driver = pool.acquire();
+        FrameRecorder.follow(driver);
         return driver;
     }
 
-    private static void initializeDriver() {
-        String winAppDriverUrl = TestConfig.getWinAppDriverUrl();
-        logger.info("Initializing Windows Driver at URL: " + winAppDriverUrl);
+    /**
+     * Returns the calling thread's session, or null if it does not hold one.
+     */
+    public static WindowsDriver<WebElement> getCurrentDriver() {
+        return pool.current();
+    }
+
+    /**
+     * Returns the calling thread's session to the pool so another test can reuse it.
+     */
+    public static void releaseDriver() {
+        pool.release();
+    }
+
+    private static List<URL> parseEndpoints(List<String> urls) {
+        List<URL> endpoints = new ArrayList<>();
+        for (String url : urls) {
+            try {
+                endpoints.add(new URL(url));
+            } catch (MalformedURLException e) {
+                throw new RuntimeException("Invalid WinAppDriver URL in configuration: " + url, e);
+            }
+        }
+        return endpoints;
+    }
+
+    private static WindowsDriver<WebElement> createScheduledSession(String browserPath) {
+        return createScheduledSession(browserPath, true);
+    }
+
+    /**
+     * A session of its own for the warm standby: attaching would only yield a second handle to a
+     * window that another session is already driving.
+     */
+    private static WindowsDriver<WebElement> launchScheduledSession(String browserPath) {
+        return createScheduledSession(browserPath, false);
+    }
+
+    private static boolean reserveStandbySlot() {
+        return pool.tryReserve();
+    }
+
+    private static void releaseStandbySlot() {
+        pool.unreserve();
+    }
+
+    private static WindowsDriver<WebElement> createScheduledSession(String browserPath, boolean mayAttach) {
+        return scheduler.open(endpoint -> {
+            WindowsDriver<WebElement> driver = initializeDriver(endpoint.getUrl(), browserPath, mayAttach);
+            sessionEndpoints.put(driver, endpoint);
+            return driver;
+        });
+    }
+
+    private static WindowsDriver<WebElement> initializeDriver(URL url, String browserPath, boolean mayAttach) {
+        logger.info("Initializing Windows Driver at URL: " + url);
         try {
-            URL url = new URL(winAppDriverUrl);
-            
             // Try to attach to existing Shift window first
-            if (attachToExistingSession(url)) {
-                return;
+            WindowsDriver<WebElement> attached = mayAttach ? attachToExistingSession(url, browserPath) : null;
+            if (attached != null) {
+                attachedSessions.add(attached);
+                return attached;
             }
             
             // Fallback: Launch new session using app path
-            launchNewSession(url);
+            return launchNewSession(url, browserPath);
             
         } catch (Exception e) {
             logger.error("Failed to start Windows Driver", e);
-            throw new RuntimeException("Failed to start driver. Ensure WinAppDriver is running at " + winAppDriverUrl, e);
+            throw new RuntimeException("Failed to start driver. Ensure WinAppDriver is running at " + url, e);
         }
     }
 
-    private static void launchNewSession(URL url) {
+    private static WindowsDriver<WebElement> launchNewSession(URL url, String browserPath) {
         logger.info("Launching new Shift session...");
-        String browserPath = TestConfig.getBrowserPath();
         logger.info("Using browser path: " + browserPath);
 
         // Legacy capabilities for WinAppDriver (no prefixes needed)
@@ -61,82 +152,138 @@ public class DriverFactory {
         caps.setCapability("platformName", "Windows");
         caps.setCapability("deviceName", "WindowsPC");
         
-        driver = new WindowsDriver<>(url, caps);
+        WindowsDriver<WebElement> driver = newWindowsDriver(url, caps);
         driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWait(), TimeUnit.SECONDS);
 
         logger.info("Windows Driver initialized successfully (New Session).");
+        return driver;
     }
 
-    private static boolean attachToExistingSession(URL url) {
-        WindowsDriver<WebElement> rootDriver = null;
+    private static WindowsDriver<WebElement> attachToExistingSession(URL url, String browserPath) {
         try {
             logger.info("Attempting to attach via Root session...");
-            
-            // Create Root session to find existing windows
-            DesiredCapabilities rootCaps = new DesiredCapabilities();
-            rootCaps.setCapability("app", "Root");
-            rootCaps.setCapability("platformName", "Windows");
-            rootCaps.setCapability("deviceName", "WindowsPC");
-            
-            rootDriver = new WindowsDriver<>(url, rootCaps);
-            
-            // Search for Shift window by name
-            WebElement shiftWindow = null;
-            String[] possibleNames = {"Untitled - Shift Browser", "Shift Browser", "Welcome to Shift", "Shift"};
-            logger.info("Looking for Shift window...");
-            
-            for (String name : possibleNames) {
-                try {
-                    shiftWindow = rootDriver.findElementByName(name);
-                    if (shiftWindow != null) {
-                        logger.info("Found window with name: " + name);
-                        break;
-                    }
-                } catch (Exception ignored) {}
-            }
-            
-            if (shiftWindow != null) {
-                String windowHandle = shiftWindow.getAttribute("NativeWindowHandle");
-                logger.info("Found Shift window handle via Root: " + windowHandle);
-                
-                // Convert to hex for appTopLevelWindow
-                long handleLong = Long.parseLong(windowHandle);
-                String hex = "0x" + Long.toHexString(handleLong);
-                
-                // Quit root driver before creating new session
-                rootDriver.quit();
-                rootDriver = null;
-                
-                // Attach to existing window using appTopLevelWindow
-                DesiredCapabilities appCaps = new DesiredCapabilities();
-                appCaps.setCapability("appTopLevelWindow", hex);
-                appCaps.setCapability("platformName", "Windows");
-                appCaps.setCapability("deviceName", "WindowsPC");
-                
-                driver = new WindowsDriver<>(url, appCaps);
-                driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWait(), TimeUnit.SECONDS);
-                
-                logger.info("Attached to existing Shift session (Handle: " + hex + ")");
-                return true;
+            String windowHandle = WindowHandleCache.findWindowHandle(url, browserPath, SHIFT_WINDOW_NAMES);
+            if (windowHandle == null) {
+                return null;
             }
+            logger.info("Found Shift window handle via Root: " + windowHandle);
+
+            // Convert to hex for appTopLevelWindow
+            long handleLong = Long.parseLong(windowHandle);
+            String hex = "0x" + Long.toHexString(handleLong);
+
+            // Attach to existing window using appTopLevelWindow
+            DesiredCapabilities appCaps = new DesiredCapabilities();
+            appCaps.setCapability("appTopLevelWindow", hex);
+            appCaps.setCapability("platformName", "Windows");
+            appCaps.setCapability("deviceName", "WindowsPC");
+
+            WindowsDriver<WebElement> driver = newWindowsDriver(url, appCaps);
+            driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWait(), TimeUnit.SECONDS);
+
+            logger.info("Attached to existing Shift session (Handle: " + hex + ")");
+            return driver;
         } catch (Exception e) {
             logger.warn("Failed to attach via Root session: " + e.getMessage());
-        } finally {
-            if (rootDriver != null) {
-                try { rootDriver.quit(); } catch (Exception ignored) {}
-            }
+            WindowHandleCache.invalidate(url, browserPath);
+        }
+        return null;
+    }
+
+    /**
+     * Titles the Shift main window can have, in the order they are preferred when attaching.
+     */
+    public static List<String> getShiftWindowNames() {
+        return SHIFT_WINDOW_NAMES;
+    }
+
+    /**
+     * Opens a WindowsDriver session whose remote commands are timed into {@link CommandMetrics},
+     * and recorded or replayed according to 'winappdriver.traffic.mode'.
+     * Every session the framework opens, pooled or not, should come from here.
+     */
+    public static WindowsDriver<WebElement> newWindowsDriver(URL url, Capabilities caps) {
+        if (trafficReplay != null) {
+            return new WindowsDriver<>(new ReplayCommandExecutor(url, trafficReplay), caps);
         }
-        return false;
+        return new WindowsDriver<>(new InstrumentedCommandExecutor(url, trafficRecorder), caps);
     }
 
+    /**
+     * Quits the calling thread's session and frees its pool slot; the next getDriver() starts a new one.
+     */
     public static void quitDriver() {
-        if (driver != null) {
+        if (pool.current() != null) {
+            logger.info("Quitting Windows Driver...");
+            pool.evict();
+        }
+    }
+
+    /**
+     * Quits every pooled session, including those leased by other threads.
+     */
+    public static void shutdown() {
+        logger.info("Shutting down session pool ({} sessions)...", pool.size());
+        if (standby != null) {
+            standby.shutdown();
+            standby.logSummary();
+        }
+        pool.shutdown();
+        WindowHandleCache.shutdown();
+        scheduler.logSummary();
+        if (trafficRecorder != null) {
+            trafficRecorder.close();
+        }
+        if (trafficReplay != null) {
+            trafficReplay.logSummary();
+        }
+    }
+
+    /**
+     * Warm standby metrics, or null when 'session.prewarm' is off.
+     */
+    public static WarmStandby<WindowsDriver<WebElement>> getWarmStandby() {
+        return standby;
+    }
+
+    private static class WindowsSessionFactory implements SessionPool.SessionFactory<WindowsDriver<WebElement>> {
+        @Override
+        public WindowsDriver<WebElement> create() {
+            // Resolve the target on the requesting thread; background warm-up must not read its own config
+            String browserPath = TestConfig.getBrowserPath();
+            if (standby == null) {
+                return createScheduledSession(browserPath);
+            }
+            WindowsDriver<WebElement> driver = standby.take(browserPath);
+            if (driver == null) {
+                driver = createScheduledSession(browserPath);
+            }
+            // Start the next session while this one is in use, unless this one drives a window that was
+            // already open: a launched standby would open a second Shift instead of a spare session
+            if (!attachedSessions.contains(driver)) {
+                standby.prepare(browserPath);
+            }
+            return driver;
+        }
+
+        @Override
+        public boolean isHealthy(WindowsDriver<WebElement> session) {
+            // Cheapest round trip that fails once the session or its window is gone
+            return session.getSessionId() != null && session.getWindowHandle() != null;
+        }
+
+        @Override
+        public void destroy(WindowsDriver<WebElement> session) {
             try {
-                logger.info("Quitting Windows Driver...");
-                driver.quit();
-                driver = null;
+                session.quit();
             } catch (Exception e) {
                 logger.error("Error while quitting driver", e);
+            } finally {
+                attachedSessions.remove(session);
+                EndpointScheduler.Endpoint endpoint = sessionEndpoints.remove(session);
+                if (endpoint != null) {
+                    scheduler.release(endpoint);
+                }
             }
         }
     }
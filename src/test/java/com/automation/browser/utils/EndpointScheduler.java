@@ -0,0 +1,232 @@
+package com.automation.browser.utils;
+
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Routes new sessions across several WinAppDriver hosts.
+ * The least loaded endpoint wins, where load is outstanding sessions weighted by the
+ * endpoint's session-creation latency EWMA. Endpoints that keep failing to answer are
+ * taken out of rotation by a circuit breaker and probed again after a cool-down.
+ */
+public class EndpointScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(EndpointScheduler.class);
+    private static final double EWMA_ALPHA = 0.3;
+
+    private enum Circuit { CLOSED, OPEN, HALF_OPEN }
+
+    public static final class Endpoint {
+        private final URL url;
+        private int outstanding;
+        private double latencyEwmaMillis = Double.NaN;
+        private int consecutiveFailures;
+        private Circuit circuit = Circuit.CLOSED;
+        private long openUntilNanos;
+        private long sessionsCreated;
+
+        private Endpoint(URL url) {
+            this.url = url;
+        }
+
+        public URL getUrl() {
+            return url;
+        }
+
+        @Override
+        public String toString() {
+            return url.toString();
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    public EndpointScheduler(List<URL> urls, int failureThreshold, long openDuration, TimeUnit unit) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one WinAppDriver endpoint is required");
+        }
+        List<Endpoint> list = new ArrayList<>();
+        for (URL url : urls) {
+            list.add(new Endpoint(url));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    /**
+     * Picks the endpoint for the next session and counts the session against it.
+     * Every successful call must be paired with {@link #release(Endpoint)}.
+     */
+    public synchronized Endpoint acquire() {
+        Endpoint best = tryAcquire(Collections.emptySet());
+        if (best == null) {
+            throw new IllegalStateException("No WinAppDriver endpoint available, all circuits are open: " + endpoints);
+        }
+        return best;
+    }
+
+    /**
+     * Like {@link #acquire()}, but passes over the given endpoints (e.g. those a failover already tried)
+     * and returns null when no other endpoint is available.
+     */
+    public synchronized Endpoint tryAcquire(Collection<Endpoint> skip) {
+        long now = System.nanoTime();
+        double fallbackLatency = averageKnownLatency();
+        Endpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Endpoint endpoint : endpoints) {
+            if (skip.contains(endpoint) || !isAvailable(endpoint, now)) {
+                continue;
+            }
+            double latency = Double.isNaN(endpoint.latencyEwmaMillis) ? fallbackLatency : endpoint.latencyEwmaMillis;
+            double score = (endpoint.outstanding + 1) * latency;
+            if (score < bestScore) {
+                best = endpoint;
+                bestScore = score;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        if (best.circuit == Circuit.OPEN) {
+            // Cool-down elapsed: let exactly this request probe the endpoint
+            best.circuit = Circuit.HALF_OPEN;
+            logger.info("Probing WinAppDriver endpoint {} after cool-down", best);
+        }
+        best.outstanding++;
+        return best;
+    }
+
+    /**
+     * Opens a session with the opener on the best endpoint, counted against it until released.
+     * While endpoints do not answer, the next best one not tried yet is used; a failure from an
+     * endpoint that did answer is rethrown at once, and if none answers the last failure is.
+     */
+    public <S> S open(Function<Endpoint, S> opener) {
+        RuntimeException lastFailure = null;
+        Set<Endpoint> tried = new HashSet<>();
+        while (true) {
+            Endpoint endpoint = tryAcquire(tried);
+            if (endpoint == null) {
+                if (lastFailure != null) {
+                    throw lastFailure;
+                }
+                endpoint = acquire();
+            }
+            tried.add(endpoint);
+            long start = System.nanoTime();
+            try {
+                S session = opener.apply(endpoint);
+                recordSuccess(endpoint, System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return session;
+            } catch (RuntimeException e) {
+                release(endpoint);
+                if (!isUnreachable(e)) {
+                    recordReachable(endpoint);
+                    throw e;
+                }
+                recordFailure(endpoint);
+                logger.warn("WinAppDriver endpoint {} did not answer: {}", endpoint, e.getMessage());
+                lastFailure = e;
+            }
+        }
+    }
+
+    public synchronized void recordSuccess(Endpoint endpoint, long latency, TimeUnit unit) {
+        double millis = unit.toNanos(latency) / 1_000_000.0;
+        endpoint.latencyEwmaMillis = Double.isNaN(endpoint.latencyEwmaMillis)
+                ? millis
+                : EWMA_ALPHA * millis + (1 - EWMA_ALPHA) * endpoint.latencyEwmaMillis;
+        endpoint.sessionsCreated++;
+        recordReachable(endpoint);
+    }
+
+    /**
+     * Records that the endpoint answered, even if the session request itself was rejected.
+     */
+    public synchronized void recordReachable(Endpoint endpoint) {
+        endpoint.consecutiveFailures = 0;
+        if (endpoint.circuit != Circuit.CLOSED) {
+            logger.info("WinAppDriver endpoint {} is answering again", endpoint);
+            endpoint.circuit = Circuit.CLOSED;
+        }
+    }
+
+    /**
+     * Records that the endpoint did not answer. The caller still has to release it.
+     */
+    public synchronized void recordFailure(Endpoint endpoint) {
+        endpoint.consecutiveFailures++;
+        if (endpoint.circuit == Circuit.HALF_OPEN || endpoint.consecutiveFailures >= failureThreshold) {
+            endpoint.circuit = Circuit.OPEN;
+            endpoint.openUntilNanos = System.nanoTime() + openNanos;
+            logger.warn("Opening circuit for WinAppDriver endpoint {} after {} consecutive failures",
+                    endpoint, endpoint.consecutiveFailures);
+        }
+    }
+
+    public synchronized void release(Endpoint endpoint) {
+        if (endpoint.outstanding > 0) {
+            endpoint.outstanding--;
+        }
+    }
+
+    public synchronized void logSummary() {
+        for (Endpoint endpoint : endpoints) {
+            logger.info("Endpoint {}: circuit={}, outstanding={}, sessions created={}, latency EWMA={} ms",
+                    endpoint, endpoint.circuit, endpoint.outstanding, endpoint.sessionsCreated,
+                    Double.isNaN(endpoint.latencyEwmaMillis) ? "n/a" : String.format("%.0f", endpoint.latencyEwmaMillis));
+        }
+    }
+
+    private static boolean isUnreachable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnreachableBrowserException || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAvailable(Endpoint endpoint, long now) {
+        switch (endpoint.circuit) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return now - endpoint.openUntilNanos >= 0;
+            default:
+                // A half-open endpoint only takes its single probe
+                return false;
+        }
+    }
+
+    private double averageKnownLatency() {
+        double sum = 0;
+        int known = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (!Double.isNaN(endpoint.latencyEwmaMillis)) {
+                sum += endpoint.latencyEwmaMillis;
+                known++;
+            }
+        }
+        return known == 0 ? 1.0 : sum / known;
+    }
+}
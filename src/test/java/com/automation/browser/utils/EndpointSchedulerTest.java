@@ -0,0 +1,120 @@
+package com.automation.browser.utils;
+
+import io.appium.java_client.windows.WindowsDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.DriverCommand;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules real sessions across two fake WinAppDriver endpoints; the first one listed is the one
+ * the test slows down or breaks, so the scheduler has to move away from its default choice.
+ */
+public class EndpointSchedulerTest {
+    private static final String APP = "C:\\fake\\app.exe";
+
+    private FakeWinAppDriver first;
+    private FakeWinAppDriver second;
+    private final List<WindowsDriver<WebElement>> sessions = new ArrayList<>();
+
+    @BeforeMethod
+    public void setUp() {
+        first = start();
+        second = start();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        for (WindowsDriver<WebElement> session : sessions) {
+            session.quit();
+        }
+        sessions.clear();
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void fasterEndpointGetsMoreSessions() {
+        first.setLatency(DriverCommand.NEW_SESSION, 300);
+        EndpointScheduler scheduler = scheduler(3);
+
+        for (int i = 0; i < 6; i++) {
+            open(scheduler);
+        }
+
+        Assert.assertTrue(second.getSessionCount() > first.getSessionCount(),
+                "Sessions on the slow endpoint: " + first.getSessionCount() + ", on the fast one: " + second.getSessionCount());
+    }
+
+    @Test
+    public void circuitOpensOnEndpointThatStopsAnswering() {
+        first.dropNext(DriverCommand.NEW_SESSION, 100);
+        EndpointScheduler scheduler = scheduler(2);
+
+        for (int i = 0; i < 5; i++) {
+            // Sessions are released at once, so without the breaker the first endpoint would stay the best pick
+            scheduler.release(open(scheduler));
+        }
+
+        Assert.assertEquals(first.getCount(DriverCommand.NEW_SESSION), 2, "The breaker should stop requests after two failures");
+        Assert.assertEquals(second.getSessionCount(), 5);
+    }
+
+    @Test
+    public void failoverSkipsEndpointsAlreadyTried() {
+        first.dropNext(DriverCommand.NEW_SESSION, 100);
+        // High threshold: the circuit stays closed, so only the skip list keeps the failover off the first endpoint
+        EndpointScheduler scheduler = scheduler(10);
+
+        EndpointScheduler.Endpoint endpoint = open(scheduler);
+
+        Assert.assertEquals(endpoint.getUrl(), second.getUrl());
+        Assert.assertEquals(first.getCount(DriverCommand.NEW_SESSION), 1);
+    }
+
+    @Test
+    public void lastFailureIsThrownWhenNoEndpointAnswers() {
+        first.dropNext(DriverCommand.NEW_SESSION, 100);
+        second.dropNext(DriverCommand.NEW_SESSION, 100);
+        EndpointScheduler scheduler = scheduler(10);
+
+        Assert.expectThrows(RuntimeException.class, () -> open(scheduler));
+
+        Assert.assertEquals(first.getCount(DriverCommand.NEW_SESSION) + second.getCount(DriverCommand.NEW_SESSION), 2,
+                "Each endpoint should be tried once");
+    }
+
+    private static FakeWinAppDriver start() {
+        FakeWinAppDriver server = FakeWinAppDriver.start(0);
+        server.registerApp(APP, driver -> driver.addWindow(APP, "App"));
+        return server;
+    }
+
+    private EndpointScheduler scheduler(int failureThreshold) {
+        return new EndpointScheduler(List.of(first.getUrl(), second.getUrl()), failureThreshold, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Opens a session through the scheduler and returns the endpoint it landed on.
+     */
+    private EndpointScheduler.Endpoint open(EndpointScheduler scheduler) {
+        EndpointScheduler.Endpoint[] chosen = new EndpointScheduler.Endpoint[1];
+        sessions.add(scheduler.open(endpoint -> {
+            DesiredCapabilities caps = new DesiredCapabilities();
+            caps.setCapability("app", APP);
+            caps.setCapability("platformName", "Windows");
+            caps.setCapability("deviceName", "WindowsPC");
+            WindowsDriver<WebElement> session = new WindowsDriver<>(endpoint.getUrl(), caps);
+            chosen[0] = endpoint;
+            return session;
+        }));
+        return chosen[0];
+    }
+}
@@ -0,0 +1,294 @@
+package com.automation.browser.utils;
+
+import com.automation.browser.config.TestConfig;
+import com.automation.browser.utils.FakeWinAppDriver.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scripted model of the Shift browser for {@link FakeWinAppDriver}: the first-run setup wizard and
+ * the browser window, with the controls and reactions the page objects rely on. UI changes land
+ * after a configurable delay, so the framework's waits are exercised the way the real app does.
+ * <p>
+ * {@link #startForSuite()} runs the whole suite against a fake server when 'winappdriver.fake' is on.
+ */
+public class FakeShift {
+    private static final Logger logger = LoggerFactory.getLogger(FakeShift.class);
+    private static final String BROWSER_TITLE_SUFFIX = " - Shift Browser";
+    private static FakeWinAppDriver suiteServer;
+
+    private final FakeWinAppDriver driver;
+    private final String appPath;
+    private final String version;
+    private final long uiDelayMillis;
+    private final List<String> bookmarks = new ArrayList<>();
+    private volatile boolean setupDone;
+    private volatile long pageLoadMillis;
+
+    public FakeShift(FakeWinAppDriver driver, String appPath, String version, boolean setupDone, long uiDelayMillis) {
+        this.driver = driver;
+        this.appPath = appPath;
+        this.version = version;
+        this.setupDone = setupDone;
+        this.uiDelayMillis = uiDelayMillis;
+        driver.registerApp(appPath, server -> launch());
+    }
+
+    /**
+     * Opens a Shift window, as launching the executable would; the setup wizard until it has been completed.
+     */
+    public Node launch() {
+        if (setupDone) {
+            Node window = driver.addWindow(appPath, "Untitled" + BROWSER_TITLE_SUFFIX);
+            new Browser(window);
+            return window;
+        }
+        Node window = driver.addWindow(appPath, "Welcome to Shift");
+        buildSetup(window);
+        return window;
+    }
+
+    /**
+     * How long navigations take from Enter to the new page, with Stop showing instead of Refresh.
+     */
+    public void setPageLoadMillis(long millis) {
+        pageLoadMillis = millis;
+    }
+
+    public List<String> getBookmarks() {
+        synchronized (bookmarks) {
+            return new ArrayList<>(bookmarks);
+        }
+    }
+
+    /**
+     * Starts the suite's fake server with Shift already running and points the configuration at it.
+     * The executable path is a placeholder file, so checks for an installed Shift pass.
+     */
+    public static synchronized FakeWinAppDriver startForSuite() {
+        if (suiteServer != null) {
+            return suiteServer;
+        }
+        Path executable = Paths.get("target", "fake-shift", "shift.exe").toAbsolutePath();
+        try {
+            Files.createDirectories(executable.getParent());
+            if (!Files.exists(executable)) {
+                Files.createFile(executable);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create placeholder " + executable, e);
+        }
+
+        suiteServer = FakeWinAppDriver.start(0);
+        suiteServer.setDefaultLatency(TestConfig.getFakeWinAppDriverLatencyMillis());
+        FakeShift shift = new FakeShift(suiteServer, executable.toString(), TestConfig.getProperty("winappdriver.fake.version", "9.9.9"),
+                true, TestConfig.getFakeWinAppDriverUiDelayMillis());
+        shift.setPageLoadMillis(TestConfig.getFakeWinAppDriverPageLoadMillis());
+        shift.launch();
+
+        String url = suiteServer.getUrl().toString();
+        TestConfig.setProperty("winappdriver.url", url);
+        TestConfig.setProperty("winappdriver.urls", url);
+        TestConfig.setProperty("browser.path", executable.toString());
+        TestConfig.setProperty("shift.executable", executable.toString());
+        logger.info("Running against fake WinAppDriver at {} (Shift at {})", url, executable);
+        return suiteServer;
+    }
+
+    public static synchronized void stopForSuite() {
+        if (suiteServer != null) {
+            suiteServer.close();
+            suiteServer = null;
+        }
+    }
+
+    private void later(Runnable change) {
+        driver.later(uiDelayMillis, change);
+    }
+
+    private void buildSetup(Node window) {
+        Node pane = window.add("Pane", "Shift Setup");
+        Node eula = pane.add("CheckBox", "EULA and Privacy Policy Checkbox").set("AriaProperties", "checked=false");
+        eula.onClick(node -> later(() -> node.set("AriaProperties",
+                "checked=true".equals(node.get("AriaProperties")) ? "checked=false" : "checked=true")));
+
+        // The same Next button serves the EULA step and the step after it
+        int[] step = {0};
+        pane.add("Button", "Go to next step").onClick(next -> later(() -> {
+            if (step[0] == 0 && "checked=true".equals(eula.get("AriaProperties"))) {
+                eula.remove();
+                step[0] = 1;
+            } else if (step[0] == 1) {
+                next.remove();
+                pane.add("Button", "Skip without adding apps").onClick(skip -> later(() -> {
+                    skip.remove();
+                    pane.add("Button", "Next").onClick(afterSkip -> later(() -> {
+                        afterSkip.remove();
+                        pane.add("Button", "Select this template and continue").onClick(template -> later(() -> {
+                            template.remove();
+                            // Like the real wizard, the final button only enters the tree once the mouse is over the window
+                            pane.onHover(hovered -> later(() -> {
+                                if (pane.find("Open Shift") == null) {
+                                    pane.add("Button", "Open Shift").onClick(open -> later(() -> finishSetup(window)));
+                                }
+                            }));
+                        }));
+                    }));
+                }));
+            }
+        }));
+    }
+
+    private void finishSetup(Node window) {
+        setupDone = true;
+        window.clear();
+        window.name("Untitled" + BROWSER_TITLE_SUFFIX);
+        new Browser(window);
+    }
+
+    /**
+     * One browser window: toolbar, optional bookmarks bar, page content and popups.
+     */
+    private final class Browser {
+        private final Node window;
+        private final Node omnibox;
+        private final Node back;
+        private final Node reload;
+        private final Node content;
+        private final List<String> history = new ArrayList<>();
+        private Node bookmarksBar;
+        private Node menu;
+        private Node popup;
+        private String pageTitle = "New Tab";
+
+        private Browser(Node window) {
+            this.window = window;
+            Node toolbar = window.add("ToolBar", "Navigation");
+            back = toolbar.add("Button", "Back").enabled(false).onClick(node -> later(this::goBack));
+            toolbar.add("Button", "Forward").enabled(false);
+            reload = toolbar.add("Button", "Refresh").onClick(node -> later(() -> load(history.isEmpty() ? "" : history.get(history.size() - 1))));
+            toolbar.add("Button", "New Tab").onClick(node -> later(() -> navigate("chrome://newtab/")));
+            omnibox = toolbar.add("Edit", "Address and search bar").automationId("omnibox-textbox").value("");
+            omnibox.onKey("Enter", node -> later(() -> navigate(node.getValue())));
+            toolbar.add("Button", "Quick Settings").onClick(node -> later(this::openQuickSettings));
+            content = window.add("Document", pageTitle);
+
+            window.onKey("Ctrl+L", node -> driver.focus(omnibox));
+            window.onKey("Ctrl+Shift+B", node -> later(this::toggleBookmarksBar));
+            window.onKey("Ctrl+D", node -> later(this::openBookmarkPopup));
+        }
+
+        private void navigate(String url) {
+            history.add(url);
+            back.enabled(history.size() > 1);
+            load(url);
+        }
+
+        /**
+         * Like Chrome, the reload button turns into Stop until the page has loaded.
+         */
+        private void load(String url) {
+            reload.name("Stop");
+            driver.later(pageLoadMillis, () -> {
+                show(url);
+                reload.name("Refresh");
+            });
+        }
+
+        private void goBack() {
+            if (history.size() > 1) {
+                history.remove(history.size() - 1);
+                back.enabled(history.size() > 1);
+                show(history.get(history.size() - 1));
+            }
+        }
+
+        private void show(String url) {
+            pageTitle = titleOf(url);
+            omnibox.value(url);
+            content.clear();
+            content.name(pageTitle);
+            if (url.startsWith("chrome://settings/appearance")) {
+                content.add("Text", "Show Bookmarks Bar").onClick(node -> later(this::toggleBookmarksBar));
+            } else {
+                content.add("Text", pageTitle);
+            }
+            window.name(pageTitle + BROWSER_TITLE_SUFFIX);
+        }
+
+        private void toggleBookmarksBar() {
+            if (bookmarksBar != null) {
+                bookmarksBar.remove();
+                bookmarksBar = null;
+                return;
+            }
+            bookmarksBar = window.add("ToolBar", "Bookmarks");
+            for (String bookmark : getBookmarks()) {
+                bookmarksBar.add("Button", bookmark);
+            }
+        }
+
+        private void openBookmarkPopup() {
+            if (popup != null) {
+                return;
+            }
+            popup = window.add("Pane", "Bookmark added");
+            popup.add("Edit", "Bookmark name").value(pageTitle);
+            popup.add("ComboBox", "Bookmarks bar");
+            popup.add("Button", "Save").onClick(node -> later(() -> {
+                synchronized (bookmarks) {
+                    bookmarks.add(pageTitle);
+                }
+                if (bookmarksBar != null) {
+                    bookmarksBar.add("Button", pageTitle);
+                }
+                popup.remove();
+                popup = null;
+            }));
+        }
+
+        private void openQuickSettings() {
+            if (menu != null) {
+                return;
+            }
+            menu = window.add("Menu", "Quick settings");
+            menu.add("MenuItem", "Advanced Settings").onClick(node -> later(() -> {
+                menu.remove();
+                menu = null;
+                pageTitle = "Settings";
+                content.clear();
+                content.name(pageTitle);
+                content.add("MenuItem", "About Shift").automationId("about-menu")
+                        .onClick(about -> later(() -> content.add("Text", "Version " + version + " (Official Build)")));
+                window.name(pageTitle + BROWSER_TITLE_SUFFIX);
+            }));
+        }
+
+        private String titleOf(String url) {
+            if (url.contains("rdbrck.com")) {
+                return "RedBrck Video | Photo Production";
+            }
+            if (url.startsWith("chrome://settings")) {
+                return "Settings";
+            }
+            if (url.startsWith("chrome://newtab")) {
+                return "New Tab";
+            }
+            try {
+                String host = URI.create(url).getHost();
+                return host != null ? host : url;
+            } catch (IllegalArgumentException e) {
+                return url;
+            }
+        }
+    }
+}
@@ -0,0 +1,1449 @@
+package com.automation.browser.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process stand-in for WinAppDriver: a JSON wire protocol (OSS dialect) server backed by a scriptable
+ * UI Automation tree, so the framework can run on any OS without a Windows desktop.
+ * <p>
+ * The tree starts as an empty desktop. Applications are registered with {@link #registerApp} and
+ * build their top-level window when an "app" session launches them; "Root" sessions see the whole
+ * desktop and "appTopLevelWindow" sessions attach to an existing window by its native handle.
+ * Nodes carry click, hover and key handlers that script how the UI reacts, and {@link #later} lets
+ * scripts change the tree asynchronously, the way a real application finishes a transition.
+ * <p>
+ * Every command is counted under its Selenium {@link DriverCommand} name, and can be given a latency
+ * ({@link #setLatency}) or made to fail ({@link #failNext}, {@link #dropNext}) to exercise waits,
+ * retries and circuit breaking. Find commands honour the session's implicit wait.
+ */
+public class FakeWinAppDriver implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FakeWinAppDriver.class);
+
+    // JSON wire protocol status codes
+    public static final int NO_SUCH_SESSION = 6;
+    public static final int NO_SUCH_ELEMENT = 7;
+    public static final int UNKNOWN_COMMAND = 9;
+    public static final int STALE_ELEMENT_REFERENCE = 10;
+    public static final int ELEMENT_NOT_VISIBLE = 11;
+    public static final int UNKNOWN_ERROR = 13;
+    public static final int NO_SUCH_WINDOW = 23;
+    public static final int INVALID_SELECTOR = 32;
+
+    private static final String ROOT = "Root";
+    private static final int DEFAULT_WIDTH = 1280;
+    private static final int DEFAULT_HEIGHT = 800;
+    // Selenium's key codes for the keys scripts can react to
+    private static final Map<Character, String> SPECIAL_KEYS = new HashMap<>();
+
+    static {
+        SPECIAL_KEYS.put('\uE003', "Backspace");
+        SPECIAL_KEYS.put('\uE004', "Tab");
+        SPECIAL_KEYS.put('\uE006', "Enter");
+        SPECIAL_KEYS.put('\uE007', "Enter");
+        SPECIAL_KEYS.put('\uE00C', "Escape");
+        SPECIAL_KEYS.put('\uE00D', "Space");
+        SPECIAL_KEYS.put('\uE012', "Left");
+        SPECIAL_KEYS.put('\uE013', "Up");
+        SPECIAL_KEYS.put('\uE014', "Right");
+        SPECIAL_KEYS.put('\uE015', "Down");
+        SPECIAL_KEYS.put('\uE017', "Delete");
+    }
+
+    private static final char KEY_NULL = '\uE000';
+    private static final char KEY_SHIFT = '\uE008';
+    private static final char KEY_CONTROL = '\uE009';
+    private static final char KEY_ALT = '\uE00A';
+
+    private final Json json = new Json();
+    private final HttpServer server;
+    private final ExecutorService requestThreads;
+    private final ScheduledExecutorService scriptThread;
+    private final Object tree = new Object();
+    private final Node desktop;
+    private final Map<Integer, Node> nodesById = new ConcurrentHashMap<>();
+    private final Map<String, Launcher> apps = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Long> latencies = new ConcurrentHashMap<>();
+    private final Map<String, Deque<Fault>> faults = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRuntimeId = new AtomicInteger(1);
+    private final AtomicInteger nextWindowHandle = new AtomicInteger(0x10010);
+    private final AtomicInteger nextSessionId = new AtomicInteger(1);
+    private volatile long defaultLatencyMillis;
+
+    // Desktop-wide input state, as on a real machine
+    private int mouseX;
+    private int mouseY;
+    private Node hovered;
+    private Node focused;
+    private final Set<String> modifiers = new LinkedHashSet<>();
+
+    /**
+     * Builds an application's top-level window when an "app" session launches it.
+     */
+    @FunctionalInterface
+    public interface Launcher {
+        Node launch(FakeWinAppDriver driver);
+    }
+
+    /**
+     * Runs against the node that received the event, e.g. to change the tree in response to a click.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(Node node);
+    }
+
+    private static final class Fault {
+        private final int status;
+        private final String message;
+        private int remaining;
+
+        private Fault(int status, String message, int remaining) {
+            this.status = status;
+            this.message = message;
+            this.remaining = remaining;
+        }
+    }
+
+    /**
+     * A command error reported to the client with its JSON wire status.
+     */
+    private static final class WireError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        private WireError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final class Session {
+        private final String id;
+        private final Map<String, Object> capabilities;
+        // Windows of the application this session drives; null for Root
+        private final String appId;
+        private final boolean launched;
+        private Node window;
+        private volatile long implicitWaitMillis;
+
+        private Session(String id, Map<String, Object> capabilities, String appId, boolean launched, Node window) {
+            this.id = id;
+            this.capabilities = capabilities;
+            this.appId = appId;
+            this.launched = launched;
+            this.window = window;
+        }
+
+        private Node scope() {
+            if (appId == null) {
+                return desktop;
+            }
+            if (!window.isAttached()) {
+                throw new WireError(NO_SUCH_WINDOW, "Currently selected window has been closed");
+            }
+            return window;
+        }
+    }
+
+    /**
+     * One UI Automation element. Changes are visible to clients immediately and wake up finds that
+     * are waiting out an implicit wait.
+     */
+    public final class Node {
+        private final int runtimeId = nextRuntimeId.getAndIncrement();
+        private final String controlType;
+        private final Map<String, String> properties = new TreeMap<>();
+        private final List<Node> children = new ArrayList<>();
+        private final Map<String, Handler> keyHandlers = new HashMap<>();
+        private Node parent;
+        private String appId;
+        private long nativeWindowHandle;
+        private boolean offscreen;
+        private boolean enabled = true;
+        private String value;
+        private int[] bounds;
+        private Handler onClick;
+        private Handler onHover;
+
+        private Node(String controlType, String name) {
+            this.controlType = controlType;
+            if (name != null) {
+                properties.put("Name", name);
+            }
+            nodesById.put(runtimeId, this);
+        }
+
+        /**
+         * Appends a child element and returns it.
+         */
+        public Node add(String childControlType, String name) {
+            Node child = new Node(childControlType, name);
+            synchronized (tree) {
+                child.parent = this;
+                child.appId = appId;
+                children.add(child);
+                changed();
+            }
+            return child;
+        }
+
+        public Node name(String name) {
+            return set("Name", name);
+        }
+
+        public Node automationId(String automationId) {
+            return set("AutomationId", automationId);
+        }
+
+        public Node className(String className) {
+            return set("ClassName", className);
+        }
+
+        /**
+         * Sets a UIA property, e.g. "AriaProperties"; null removes it.
+         */
+        public Node set(String property, String propertyValue) {
+            synchronized (tree) {
+                if (propertyValue == null) {
+                    properties.remove(property);
+                } else {
+                    properties.put(property, propertyValue);
+                }
+                changed();
+            }
+            return this;
+        }
+
+        public Node offscreen(boolean isOffscreen) {
+            synchronized (tree) {
+                offscreen = isOffscreen;
+                changed();
+            }
+            return this;
+        }
+
+        public Node enabled(boolean isEnabled) {
+            synchronized (tree) {
+                enabled = isEnabled;
+                changed();
+            }
+            return this;
+        }
+
+        /**
+         * Text of an edit control, as returned by getText().
+         */
+        public Node value(String text) {
+            synchronized (tree) {
+                value = text;
+                changed();
+            }
+            return this;
+        }
+
+        /**
+         * Screen rectangle; without one a node covers its parent.
+         */
+        public Node bounds(int x, int y, int width, int height) {
+            synchronized (tree) {
+                bounds = new int[]{x, y, width, height};
+                changed();
+            }
+            return this;
+        }
+
+        public Node onClick(Handler handler) {
+            onClick = handler;
+            return this;
+        }
+
+        /**
+         * Runs when the mouse moves over the node or one of its descendants.
+         */
+        public Node onHover(Handler handler) {
+            onHover = handler;
+            return this;
+        }
+
+        /**
+         * Runs when the key, e.g. "Enter" or "Ctrl+Shift+B", is typed into the node or a descendant.
+         * Handled keys are not typed into edit controls.
+         */
+        public Node onKey(String key, Handler handler) {
+            keyHandlers.put(key, handler);
+            return this;
+        }
+
+        /**
+         * Detaches the node and its subtree; clients holding it get stale element errors.
+         */
+        public void remove() {
+            synchronized (tree) {
+                if (parent != null) {
+                    parent.children.remove(this);
+                    parent = null;
+                    changed();
+                }
+            }
+        }
+
+        /**
+         * Removes all children, e.g. to replace a page's content.
+         */
+        public Node clear() {
+            synchronized (tree) {
+                for (Node child : new ArrayList<>(children)) {
+                    child.remove();
+                }
+            }
+            return this;
+        }
+
+        /**
+         * First node in this subtree, in document order, with exactly this name, or null.
+         */
+        public Node find(String name) {
+            synchronized (tree) {
+                if (name.equals(getName())) {
+                    return this;
+                }
+                for (Node child : children) {
+                    Node found = child.find(name);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+                return null;
+            }
+        }
+
+        public String getName() {
+            return properties.get("Name");
+        }
+
+        public String get(String property) {
+            synchronized (tree) {
+                return properties.get(property);
+            }
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getControlType() {
+            return controlType;
+        }
+
+        public long getNativeWindowHandle() {
+            return nativeWindowHandle;
+        }
+
+        public boolean isAttached() {
+            synchronized (tree) {
+                Node node = this;
+                while (node.parent != null) {
+                    node = node.parent;
+                }
+                return node == desktop;
+            }
+        }
+
+        public boolean isDisplayed() {
+            synchronized (tree) {
+                for (Node node = this; node != null; node = node.parent) {
+                    if (node.offscreen) {
+                        return false;
+                    }
+                }
+                return isAttached();
+            }
+        }
+
+        private int[] rect() {
+            for (Node node = this; node != null; node = node.parent) {
+                if (node.bounds != null) {
+                    return node.bounds;
+                }
+            }
+            return new int[]{0, 0, DEFAULT_WIDTH, DEFAULT_HEIGHT};
+        }
+
+        private String elementId() {
+            return "42." + runtimeId;
+        }
+
+        @Override
+        public String toString() {
+            return controlType + " '" + getName() + "' (" + elementId() + ")";
+        }
+    }
+
+    private FakeWinAppDriver(int port) {
+        // Without TCP_NODELAY small responses sit out the client's delayed ACK, ~40 ms per command
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        desktop = new Node("Pane", "Desktop 1");
+        desktop.className("#32769");
+        AtomicInteger threadCount = new AtomicInteger();
+        requestThreads = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-winappdriver-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scriptThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fake-winappdriver-ui");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start fake WinAppDriver on port " + port, e);
+        }
+        server.createContext("/", this::handle);
+        server.setExecutor(requestThreads);
+        server.start();
+        logger.info("Fake WinAppDriver listening at {}", getUrl());
+    }
+
+    /**
+     * Starts a server on the loopback interface; port 0 picks a free one.
+     */
+    public static FakeWinAppDriver start(int port) {
+        return new FakeWinAppDriver(port);
+    }
+
+    /**
+     * Base URL to configure as 'winappdriver.url'.
+     */
+    public URL getUrl() {
+        try {
+            return new URL("http", "127.0.0.1", server.getAddress().getPort(), "");
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Node getDesktop() {
+        return desktop;
+    }
+
+    /**
+     * Registers an application an "app" session can launch by its path (case and slash direction ignored).
+     */
+    public void registerApp(String appPath, Launcher launcher) {
+        apps.put(appKey(appPath), launcher);
+    }
+
+    /**
+     * Adds a top-level window with a fresh native handle, owned by the application.
+     */
+    public Node addWindow(String appPath, String title) {
+        Node window = new Node("Window", title);
+        synchronized (tree) {
+            window.appId = appPath == null ? null : appKey(appPath);
+            window.nativeWindowHandle = nextWindowHandle.getAndAdd(0x10);
+            window.bounds = new int[]{0, 0, DEFAULT_WIDTH, DEFAULT_HEIGHT};
+            window.parent = desktop;
+            desktop.children.add(window);
+            changed();
+        }
+        return window;
+    }
+
+    /**
+     * Top-level windows currently on the desktop.
+     */
+    public List<Node> getWindows() {
+        synchronized (tree) {
+            return new ArrayList<>(desktop.children);
+        }
+    }
+
+    /**
+     * Runs a tree change after a delay, on the fake's single UI thread.
+     */
+    public void later(long delayMillis, Runnable change) {
+        scriptThread.schedule(() -> {
+            try {
+                change.run();
+            } catch (RuntimeException e) {
+                logger.error("Scripted UI change failed", e);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gives the node the keyboard focus, e.g. for a shortcut that focuses an input.
+     */
+    public void focus(Node node) {
+        synchronized (tree) {
+            focused = node;
+            changed();
+        }
+    }
+
+    /**
+     * Extra time every command takes before it is handled, unless set per command.
+     */
+    public void setDefaultLatency(long millis) {
+        defaultLatencyMillis = millis;
+    }
+
+    /**
+     * Time the command, named as in {@link DriverCommand} (e.g. "findElement"), takes before it is handled.
+     */
+    public void setLatency(String command, long millis) {
+        latencies.put(command, millis);
+    }
+
+    /**
+     * Makes the next {@code times} executions of the command fail with the JSON wire status.
+     */
+    public void failNext(String command, int times, int status, String message) {
+        faults.computeIfAbsent(command, key -> new ArrayDeque<>()).add(new Fault(status, message, times));
+    }
+
+    /**
+     * Makes the next {@code times} executions of the command close the connection without answering,
+     * as if the server had gone away.
+     */
+    public void dropNext(String command, int times) {
+        failNext(command, times, -1, null);
+    }
+
+    public long getCount(String command) {
+        AtomicLong count = counts.get(command);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Executions per command since start or the last reset.
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((command, count) -> snapshot.put(command, count.get()));
+        return snapshot;
+    }
+
+    public void resetCounts() {
+        counts.clear();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        requestThreads.shutdownNow();
+        scriptThread.shutdownNow();
+        logger.info("Fake WinAppDriver stopped; commands served: {}", getCounts());
+    }
+
+    // ---- HTTP ----
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            List<String> segments = new ArrayList<>();
+            for (String segment : path.split("/")) {
+                if (!segment.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+            String command = commandOf(method, segments);
+            counts.computeIfAbsent(command, key -> new AtomicLong()).incrementAndGet();
+            sleep(latencies.getOrDefault(command, defaultLatencyMillis));
+
+            Fault fault = takeFault(command);
+            if (fault != null && fault.status < 0) {
+                logger.debug("Dropping connection for {}", command);
+                exchange.close();
+                return;
+            }
+
+            String sessionId = segments.size() >= 2 && "session".equals(segments.get(0)) ? segments.get(1) : null;
+            Map<String, Object> response = new LinkedHashMap<>();
+            int httpStatus = 200;
+            try {
+                if (fault != null) {
+                    throw new WireError(fault.status, fault.message);
+                }
+                Map<String, Object> parameters = body.isEmpty() ? Collections.emptyMap() : json.toType(body, Json.MAP_TYPE);
+                Object value = execute(command, segments, parameters);
+                if (NEW_SESSION_RESULT.equals(command)) {
+                    sessionId = (String) ((Map<?, ?>) value).get("sessionId");
+                    value = ((Map<?, ?>) value).get("capabilities");
+                }
+                response.put("sessionId", sessionId);
+                response.put("status", 0);
+                response.put("value", value);
+            } catch (WireError e) {
+                httpStatus = e.status == NO_SUCH_ELEMENT || e.status == NO_SUCH_SESSION || e.status == UNKNOWN_COMMAND ? 404 : 500;
+                response.put("sessionId", sessionId);
+                response.put("status", e.status);
+                response.put("value", Collections.singletonMap("message", e.getMessage()));
+            } catch (RuntimeException e) {
+                logger.error("Fake WinAppDriver failed to execute {}", command, e);
+                httpStatus = 500;
+                response.put("sessionId", sessionId);
+                response.put("status", UNKNOWN_ERROR);
+                response.put("value", Collections.singletonMap("message", String.valueOf(e)));
+            }
+
+            byte[] bytes = json.toJson(response).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+            exchange.sendResponseHeaders(httpStatus, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private Fault takeFault(String command) {
+        Deque<Fault> queue = faults.get(command);
+        if (queue == null) {
+            return null;
+        }
+        synchronized (queue) {
+            Fault fault = queue.peek();
+            if (fault == null) {
+                return null;
+            }
+            if (--fault.remaining <= 0) {
+                queue.poll();
+            }
+            return fault;
+        }
+    }
+
+    // Marks the new session command, whose session id only exists once it has run
+    private static final String NEW_SESSION_RESULT = DriverCommand.NEW_SESSION;
+
+    private static String commandOf(String method, List<String> s) {
+        int n = s.size();
+        if (n == 0) {
+            return "unknown";
+        }
+        if (n == 1 && "status".equals(s.get(0))) {
+            return DriverCommand.STATUS;
+        }
+        if (!"session".equals(s.get(0))) {
+            return "unknown";
+        }
+        if (n == 1) {
+            return "POST".equals(method) ? DriverCommand.NEW_SESSION : "unknown";
+        }
+        if (n == 2) {
+            return "DELETE".equals(method) ? DriverCommand.QUIT : DriverCommand.GET_CAPABILITIES;
+        }
+        String head = s.get(2);
+        String last = s.get(n - 1);
+        switch (head) {
+            case "timeouts":
+                return n == 4 && "implicit_wait".equals(last) ? DriverCommand.IMPLICITLY_WAIT : DriverCommand.SET_TIMEOUT;
+            case "source":
+                return DriverCommand.GET_PAGE_SOURCE;
+            case "title":
+                return DriverCommand.GET_TITLE;
+            case "window_handle":
+                return DriverCommand.GET_CURRENT_WINDOW_HANDLE;
+            case "window_handles":
+                return DriverCommand.GET_WINDOW_HANDLES;
+            case "screenshot":
+                return DriverCommand.SCREENSHOT;
+            case "moveto":
+                return DriverCommand.MOVE_TO;
+            case "click":
+                return DriverCommand.CLICK;
+            case "doubleclick":
+                return DriverCommand.DOUBLE_CLICK;
+            case "buttondown":
+                return DriverCommand.MOUSE_DOWN;
+            case "buttonup":
+                return DriverCommand.MOUSE_UP;
+            case "keys":
+                return DriverCommand.SEND_KEYS_TO_ACTIVE_ELEMENT;
+            case "window":
+                if (n == 3) {
+                    return "POST".equals(method) ? DriverCommand.SWITCH_TO_WINDOW
+                            : "DELETE".equals(method) ? DriverCommand.CLOSE : DriverCommand.GET_CURRENT_WINDOW_HANDLE;
+                }
+                if ("handles".equals(last)) {
+                    return DriverCommand.GET_WINDOW_HANDLES;
+                }
+                if ("maximize".equals(last)) {
+                    return DriverCommand.MAXIMIZE_CURRENT_WINDOW;
+                }
+                if ("size".equals(last)) {
+                    return "POST".equals(method) ? DriverCommand.SET_CURRENT_WINDOW_SIZE : DriverCommand.GET_CURRENT_WINDOW_SIZE;
+                }
+                if ("position".equals(last)) {
+                    return "POST".equals(method) ? DriverCommand.SET_CURRENT_WINDOW_POSITION : DriverCommand.GET_CURRENT_WINDOW_POSITION;
+                }
+                return "unknown";
+            case "elements":
+                return DriverCommand.FIND_ELEMENTS;
+            case "element":
+                if (n == 3) {
+                    return DriverCommand.FIND_ELEMENT;
+                }
+                if (n == 4) {
+                    return "active".equals(last) ? DriverCommand.GET_ACTIVE_ELEMENT : "unknown";
+                }
+                switch (s.get(4)) {
+                    case "element":
+                        return DriverCommand.FIND_CHILD_ELEMENT;
+                    case "elements":
+                        return DriverCommand.FIND_CHILD_ELEMENTS;
+                    case "click":
+                        return DriverCommand.CLICK_ELEMENT;
+                    case "clear":
+                        return DriverCommand.CLEAR_ELEMENT;
+                    case "value":
+                        return DriverCommand.SEND_KEYS_TO_ELEMENT;
+                    case "text":
+                        return DriverCommand.GET_ELEMENT_TEXT;
+                    case "name":
+                        return DriverCommand.GET_ELEMENT_TAG_NAME;
+                    case "attribute":
+                        return DriverCommand.GET_ELEMENT_ATTRIBUTE;
+                    case "displayed":
+                        return DriverCommand.IS_ELEMENT_DISPLAYED;
+                    case "enabled":
+                        return DriverCommand.IS_ELEMENT_ENABLED;
+                    case "selected":
+                        return DriverCommand.IS_ELEMENT_SELECTED;
+                    case "location":
+                        return DriverCommand.GET_ELEMENT_LOCATION;
+                    case "location_in_view":
+                        return DriverCommand.GET_ELEMENT_LOCATION_ONCE_SCROLLED_INTO_VIEW;
+                    case "size":
+                        return DriverCommand.GET_ELEMENT_SIZE;
+                    case "rect":
+                        return DriverCommand.GET_ELEMENT_RECT;
+                    case "equals":
+                        return DriverCommand.ELEMENT_EQUALS;
+                    default:
+                        return "unknown";
+                }
+            default:
+                return "unknown";
+        }
+    }
+
+    // ---- Commands ----
+
+    private Object execute(String command, List<String> s, Map<String, Object> parameters) {
+        if (DriverCommand.STATUS.equals(command)) {
+            return Collections.singletonMap("build", Collections.singletonMap("version", "fake"));
+        }
+        if (DriverCommand.NEW_SESSION.equals(command)) {
+            return newSession(parameters);
+        }
+        if ("unknown".equals(command)) {
+            throw new WireError(UNKNOWN_COMMAND, "Unknown command: " + String.join("/", s));
+        }
+        Session session = sessions.get(s.get(1));
+        if (session == null) {
+            throw new WireError(NO_SUCH_SESSION, "A session is either terminated or not started");
+        }
+
+        synchronized (tree) {
+            switch (command) {
+                case DriverCommand.QUIT:
+                    quit(session);
+                    return null;
+                case DriverCommand.GET_CAPABILITIES:
+                    return session.capabilities;
+                case DriverCommand.IMPLICITLY_WAIT:
+                    session.implicitWaitMillis = number(parameters.get("ms"));
+                    return null;
+                case DriverCommand.SET_TIMEOUT:
+                    if ("implicit".equals(parameters.get("type"))) {
+                        session.implicitWaitMillis = number(parameters.get("ms"));
+                    } else if (parameters.containsKey("implicit")) {
+                        session.implicitWaitMillis = number(parameters.get("implicit"));
+                    }
+                    return null;
+                case DriverCommand.GET_PAGE_SOURCE:
+                    return pageSource(session.scope());
+                case DriverCommand.GET_TITLE:
+                    return session.appId == null ? desktop.getName() : session.scope().getName();
+                case DriverCommand.GET_CURRENT_WINDOW_HANDLE:
+                    return handleOf(session.scope());
+                case DriverCommand.GET_WINDOW_HANDLES:
+                    return windowHandles(session);
+                case DriverCommand.SWITCH_TO_WINDOW:
+                    switchTo(session, parameters);
+                    return null;
+                case DriverCommand.CLOSE:
+                    session.scope().remove();
+                    return null;
+                case DriverCommand.MAXIMIZE_CURRENT_WINDOW:
+                case DriverCommand.SET_CURRENT_WINDOW_SIZE:
+                case DriverCommand.SET_CURRENT_WINDOW_POSITION:
+                    session.scope();
+                    return null;
+                case DriverCommand.GET_CURRENT_WINDOW_SIZE: {
+                    int[] rect = session.scope().rect();
+                    return size(rect);
+                }
+                case DriverCommand.GET_CURRENT_WINDOW_POSITION: {
+                    int[] rect = session.scope().rect();
+                    return point(rect[0], rect[1]);
+                }
+                case DriverCommand.SCREENSHOT:
+                    return screenshot(session.scope());
+                case DriverCommand.FIND_ELEMENT:
+                    return reference(find(session, null, parameters, true).get(0));
+                case DriverCommand.FIND_ELEMENTS:
+                    return references(find(session, null, parameters, false));
+                case DriverCommand.GET_ACTIVE_ELEMENT:
+                    if (focused == null || !focused.isAttached()) {
+                        throw new WireError(NO_SUCH_ELEMENT, "No element has the keyboard focus");
+                    }
+                    return reference(focused);
+                case DriverCommand.MOVE_TO:
+                    moveTo(session, parameters);
+                    return null;
+                case DriverCommand.CLICK:
+                case DriverCommand.DOUBLE_CLICK:
+                    if (hovered != null && hovered.isDisplayed()) {
+                        click(hovered);
+                    }
+                    return null;
+                case DriverCommand.MOUSE_DOWN:
+                case DriverCommand.MOUSE_UP:
+                    return null;
+                case DriverCommand.SEND_KEYS_TO_ACTIVE_ELEMENT:
+                    type(focused != null && focused.isAttached() ? focused : session.scope(), keys(parameters), false);
+                    return null;
+                default:
+                    return executeOnElement(command, session, s, parameters);
+            }
+        }
+    }
+
+    private Object executeOnElement(String command, Session session, List<String> s, Map<String, Object> parameters) {
+        Node node = element(s.get(3));
+        switch (command) {
+            case DriverCommand.FIND_CHILD_ELEMENT:
+                return reference(find(session, node, parameters, true).get(0));
+            case DriverCommand.FIND_CHILD_ELEMENTS:
+                return references(find(session, node, parameters, false));
+            case DriverCommand.CLICK_ELEMENT:
+                if (!node.isDisplayed()) {
+                    throw new WireError(ELEMENT_NOT_VISIBLE, "Element is not displayed: " + node);
+                }
+                int[] rect = node.rect();
+                mouseX = rect[0] + rect[2] / 2;
+                mouseY = rect[1] + rect[3] / 2;
+                hovered = node;
+                click(node);
+                return null;
+            case DriverCommand.CLEAR_ELEMENT:
+                node.value("");
+                return null;
+            case DriverCommand.SEND_KEYS_TO_ELEMENT:
+                focused = node;
+                type(node, keys(parameters), true);
+                return null;
+            case DriverCommand.GET_ELEMENT_TEXT:
+                return node.value != null ? node.value : node.properties.getOrDefault("Name", "");
+            case DriverCommand.GET_ELEMENT_TAG_NAME:
+                return "ControlType." + node.controlType;
+            case DriverCommand.GET_ELEMENT_ATTRIBUTE:
+                return attribute(node, s.get(5));
+            case DriverCommand.IS_ELEMENT_DISPLAYED:
+                return node.isDisplayed();
+            case DriverCommand.IS_ELEMENT_ENABLED:
+                return node.enabled;
+            case DriverCommand.IS_ELEMENT_SELECTED:
+                String aria = node.properties.get("AriaProperties");
+                return aria != null && (aria.contains("checked=true") || aria.contains("selected=true"));
+            case DriverCommand.GET_ELEMENT_LOCATION:
+            case DriverCommand.GET_ELEMENT_LOCATION_ONCE_SCROLLED_INTO_VIEW:
+                return point(node.rect()[0], node.rect()[1]);
+            case DriverCommand.GET_ELEMENT_SIZE:
+                return size(node.rect());
+            case DriverCommand.GET_ELEMENT_RECT: {
+                int[] r = node.rect();
+                Map<String, Object> result = new LinkedHashMap<>(point(r[0], r[1]));
+                result.putAll(size(r));
+                return result;
+            }
+            case DriverCommand.ELEMENT_EQUALS:
+                return node == element(s.get(5));
+            default:
+                throw new WireError(UNKNOWN_COMMAND, "Unsupported command " + command);
+        }
+    }
+
+    private Map<String, Object> newSession(Map<String, Object> parameters) {
+        Map<String, Object> capabilities = capabilities(parameters);
+        Object app = capabilities.get("app");
+        Object topLevelWindow = capabilities.get("appTopLevelWindow");
+        Session session;
+        String id = String.format(Locale.ROOT, "%08X-FAKE-%04d", System.identityHashCode(this), nextSessionId.getAndIncrement());
+
+        if (ROOT.equals(app)) {
+            session = new Session(id, capabilities, null, false, null);
+        } else if (app != null) {
+            Launcher launcher = apps.get(appKey(app.toString()));
+            if (launcher == null) {
+                throw new WireError(UNKNOWN_ERROR, "Failed to locate opened application window with appId: " + app + ", and processId: 0");
+            }
+            Node window = launcher.launch(this);
+            synchronized (tree) {
+                window.appId = appKey(app.toString());
+            }
+            session = new Session(id, capabilities, window.appId, true, window);
+        } else if (topLevelWindow != null) {
+            long handle = Long.decode(topLevelWindow.toString());
+            Node window = null;
+            for (Node candidate : getWindows()) {
+                if (candidate.nativeWindowHandle == handle) {
+                    window = candidate;
+                }
+            }
+            if (window == null) {
+                throw new WireError(UNKNOWN_ERROR, "Failed to locate window with handle " + topLevelWindow);
+            }
+            session = new Session(id, capabilities, window.appId == null ? "window:" + handle : window.appId, false, window);
+        } else {
+            throw new WireError(UNKNOWN_ERROR, "Bad capabilities. Specify either app or appTopLevelWindow to create a session");
+        }
+        sessions.put(id, session);
+        logger.debug("Fake session {} for {}", id, app != null ? app : topLevelWindow);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("sessionId", id);
+        result.put("capabilities", capabilities);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> capabilities(Map<String, Object> parameters) {
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        Object w3c = parameters.get("capabilities");
+        if (w3c instanceof Map && ((Map<String, Object>) w3c).get("alwaysMatch") instanceof Map) {
+            capabilities.putAll((Map<String, Object>) ((Map<String, Object>) w3c).get("alwaysMatch"));
+        }
+        Object desired = parameters.get("desiredCapabilities");
+        if (desired instanceof Map) {
+            capabilities.putAll((Map<String, Object>) desired);
+        }
+        Map<String, Object> plain = new LinkedHashMap<>();
+        capabilities.forEach((key, value) -> plain.put(key.startsWith("appium:") ? key.substring("appium:".length()) : key, value));
+        plain.put("platformName", "Windows");
+        return plain;
+    }
+
+    private void quit(Session session) {
+        sessions.remove(session.id);
+        // Like WinAppDriver, ending a session that launched the application closes it
+        if (session.launched && session.window != null) {
+            session.window.remove();
+        }
+    }
+
+    private List<String> windowHandles(Session session) {
+        List<String> handles = new ArrayList<>();
+        for (Node window : desktop.children) {
+            if (session.appId == null || session.appId.equals(window.appId) || window == session.window) {
+                handles.add(handleOf(window));
+            }
+        }
+        return handles;
+    }
+
+    private void switchTo(Session session, Map<String, Object> parameters) {
+        Object handle = parameters.containsKey("handle") ? parameters.get("handle") : parameters.get("name");
+        for (Node window : desktop.children) {
+            if (handleOf(window).equalsIgnoreCase(String.valueOf(handle))) {
+                session.window = window;
+                return;
+            }
+        }
+        throw new WireError(NO_SUCH_WINDOW, "No window with handle " + handle);
+    }
+
+    private List<Node> find(Session session, Node context, Map<String, Object> parameters, boolean single) {
+        String using = String.valueOf(parameters.get("using"));
+        String value = String.valueOf(parameters.get("value"));
+        long deadline = System.currentTimeMillis() + session.implicitWaitMillis;
+        while (true) {
+            Node scope = session.scope();
+            List<Node> found = search(scope, context == null ? scope : context, using, value);
+            long remaining = deadline - System.currentTimeMillis();
+            if (!found.isEmpty() || remaining <= 0) {
+                if (found.isEmpty() && single) {
+                    throw new WireError(NO_SUCH_ELEMENT, "An element could not be located on the page using the given search parameters.");
+                }
+                return single ? found.subList(0, 1) : found;
+            }
+            try {
+                // Tree changes wake this up, so an element is found as soon as it appears
+                tree.wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WireError(UNKNOWN_ERROR, "Interrupted");
+            }
+        }
+    }
+
+    private List<Node> search(Node scope, Node context, String using, String value) {
+        if ("xpath".equals(using)) {
+            return xpath(scope, context, value);
+        }
+        String property;
+        switch (using) {
+            case "name":
+                property = "Name";
+                break;
+            // WinAppDriver resolves "id" against the RuntimeId; the page objects use AutomationIds, so both match
+            case "id":
+            case "accessibility id":
+                property = "AutomationId";
+                break;
+            case "class name":
+                property = "ClassName";
+                break;
+            case "tag name":
+                property = null;
+                break;
+            default:
+                throw new WireError(INVALID_SELECTOR, "Unsupported locator strategy: " + using);
+        }
+        List<Node> found = new ArrayList<>();
+        collect(context, context != scope, node -> property == null
+                ? value.equals(node.controlType) || value.equals("ControlType." + node.controlType)
+                : value.equals(node.properties.get(property)) || ("id".equals(using) && value.equals(node.elementId())), found);
+        return found;
+    }
+
+    private void collect(Node node, boolean descendantsOnly, java.util.function.Predicate<Node> matches, List<Node> found) {
+        if (!descendantsOnly && matches.test(node)) {
+            found.add(node);
+        }
+        for (Node child : node.children) {
+            collect(child, false, matches, found);
+        }
+    }
+
+    private List<Node> xpath(Node scope, Node context, String expression) {
+        try {
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            Map<Node, Element> elements = new HashMap<>();
+            document.appendChild(toDom(document, scope, elements));
+            Object start = context == scope ? document : elements.get(context);
+            if (start == null) {
+                return Collections.emptyList();
+            }
+            NodeList matches = (NodeList) XPathFactory.newInstance().newXPath().evaluate(expression, start, XPathConstants.NODESET);
+            List<Node> found = new ArrayList<>();
+            for (int i = 0; i < matches.getLength(); i++) {
+                Object node = matches.item(i).getUserData("node");
+                if (node != null) {
+                    found.add((Node) node);
+                }
+            }
+            return found;
+        } catch (XPathExpressionException e) {
+            throw new WireError(INVALID_SELECTOR, "Invalid XPath expression: " + expression);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Element toDom(Document document, Node node, Map<Node, Element> elements) {
+        Element element = document.createElement(node.controlType);
+        attributes(node).forEach(element::setAttribute);
+        element.setUserData("node", node, null);
+        elements.put(node, element);
+        for (Node child : node.children) {
+            element.appendChild(toDom(document, child, elements));
+        }
+        return element;
+    }
+
+    /**
+     * The attributes WinAppDriver puts in the page source, plus any scripted properties.
+     */
+    private Map<String, String> attributes(Node node) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("AutomationId", "");
+        attributes.put("ClassName", "");
+        attributes.put("Name", "");
+        attributes.putAll(node.properties);
+        attributes.put("IsEnabled", node.enabled ? "True" : "False");
+        attributes.put("IsOffscreen", node.isDisplayed() ? "False" : "True");
+        attributes.put("RuntimeId", node.elementId());
+        int[] rect = node.rect();
+        attributes.put("x", String.valueOf(rect[0]));
+        attributes.put("y", String.valueOf(rect[1]));
+        attributes.put("width", String.valueOf(rect[2]));
+        attributes.put("height", String.valueOf(rect[3]));
+        return attributes;
+    }
+
+    private String pageSource(Node scope) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-16\"?>");
+        appendXml(xml, scope);
+        return xml.toString();
+    }
+
+    private void appendXml(StringBuilder xml, Node node) {
+        xml.append('<').append(node.controlType);
+        attributes(node).forEach((name, value) -> xml.append(' ').append(name).append("=\"").append(escape(value)).append('"'));
+        if (node.children.isEmpty()) {
+            xml.append(" />");
+            return;
+        }
+        xml.append('>');
+        for (Node child : node.children) {
+            appendXml(xml, child);
+        }
+        xml.append("</").append(node.controlType).append('>');
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                case '"':
+                    escaped.append("&quot;");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private String attribute(Node node, String name) {
+        switch (name) {
+            case "NativeWindowHandle":
+                return String.valueOf(node.nativeWindowHandle);
+            case "HasKeyboardFocus":
+                return node == focused ? "True" : "False";
+            case "IsEnabled":
+                return node.enabled ? "True" : "False";
+            case "IsOffscreen":
+                return node.isDisplayed() ? "False" : "True";
+            case "ControlType":
+                return "ControlType." + node.controlType;
+            case "RuntimeId":
+                return node.elementId();
+            case "Value.Value":
+                return node.value;
+            default:
+                return node.properties.get(name);
+        }
+    }
+
+    private void moveTo(Session session, Map<String, Object> parameters) {
+        Object elementId = parameters.get("element");
+        boolean hasOffset = parameters.get("xoffset") != null || parameters.get("yoffset") != null;
+        int xOffset = (int) number(parameters.get("xoffset"));
+        int yOffset = (int) number(parameters.get("yoffset"));
+        if (elementId != null) {
+            Node node = element(elementId.toString());
+            int[] rect = node.rect();
+            mouseX = hasOffset ? rect[0] + xOffset : rect[0] + rect[2] / 2;
+            mouseY = hasOffset ? rect[1] + yOffset : rect[1] + rect[3] / 2;
+            hovered = node;
+        } else {
+            mouseX += xOffset;
+            mouseY += yOffset;
+            hovered = deepestAt(session.scope(), mouseX, mouseY);
+        }
+        for (Node node = hovered; node != null; node = node.parent) {
+            if (node.onHover != null) {
+                node.onHover.handle(node);
+            }
+        }
+    }
+
+    private Node deepestAt(Node node, int x, int y) {
+        int[] rect = node.rect();
+        if (!node.isDisplayed() || x < rect[0] || y < rect[1] || x >= rect[0] + rect[2] || y >= rect[1] + rect[3]) {
+            return null;
+        }
+        for (int i = node.children.size() - 1; i >= 0; i--) {
+            Node hit = deepestAt(node.children.get(i), x, y);
+            if (hit != null) {
+                return hit;
+            }
+        }
+        return node;
+    }
+
+    private void click(Node node) {
+        focused = node;
+        if (!node.enabled) {
+            return;
+        }
+        for (Node target = node; target != null; target = target.parent) {
+            if (target.onClick != null) {
+                target.onClick.handle(target);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Types the keys into the node. Modifier keys toggle; for element sendKeys they are released at the end.
+     */
+    private void type(Node target, String keys, boolean releaseModifiers) {
+        for (char c : keys.toCharArray()) {
+            if (c == KEY_NULL) {
+                modifiers.clear();
+            } else if (c == KEY_CONTROL || c == KEY_ALT || c == KEY_SHIFT) {
+                String modifier = c == KEY_CONTROL ? "Ctrl" : c == KEY_ALT ? "Alt" : "Shift";
+                if (!modifiers.remove(modifier)) {
+                    modifiers.add(modifier);
+                }
+            } else {
+                String key = SPECIAL_KEYS.containsKey(c) ? SPECIAL_KEYS.get(c) : String.valueOf(Character.toUpperCase(c));
+                List<String> chord = new ArrayList<>();
+                for (String modifier : Arrays.asList("Ctrl", "Alt", "Shift")) {
+                    if (modifiers.contains(modifier)) {
+                        chord.add(modifier);
+                    }
+                }
+                chord.add(key);
+                if (!dispatchKey(target, String.join("+", chord)) && !modifiers.contains("Ctrl") && !modifiers.contains("Alt")) {
+                    typeCharacter(target, c);
+                }
+            }
+        }
+        if (releaseModifiers) {
+            modifiers.clear();
+        }
+    }
+
+    private boolean dispatchKey(Node target, String key) {
+        for (Node node = target; node != null; node = node.parent) {
+            Handler handler = node.keyHandlers.get(key);
+            if (handler != null) {
+                handler.handle(node);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void typeCharacter(Node target, char c) {
+        if (!"Edit".equals(target.controlType) && !"ComboBox".equals(target.controlType)) {
+            return;
+        }
+        String current = target.value == null ? "" : target.value;
+        if (c == '\uE003') {
+            target.value(current.isEmpty() ? current : current.substring(0, current.length() - 1));
+        } else if (c >= ' ' && c < '\uE000') {
+            target.value(current + (modifiers.contains("Shift") ? Character.toUpperCase(c) : c));
+        }
+    }
+
+    private static String keys(Map<String, Object> parameters) {
+        Object value = parameters.get("value");
+        if (value instanceof List) {
+            StringBuilder keys = new StringBuilder();
+            for (Object part : (List<?>) value) {
+                keys.append(part);
+            }
+            return keys.toString();
+        }
+        Object text = parameters.get("text");
+        return text == null ? "" : text.toString();
+    }
+
+    private String screenshot(Node scope) {
+        // A coarse rendering that changes whenever the visible tree does, which is all screenshot handling needs
+        List<Node> visible = new ArrayList<>();
+        collect(scope, false, Node::isDisplayed, visible);
+        int rows = Math.min(visible.size(), 100);
+        BufferedImage image = new BufferedImage(320, 8 + rows * 4, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            for (int i = 0; i < rows; i++) {
+                Node node = visible.get(i);
+                int hash = (node.controlType + node.properties + node.value).hashCode();
+                graphics.setColor(new Color(hash & 0xFFFFFF));
+                graphics.fillRect(4 + (i % 8) * 2, 4 + i * 4, 160 + (hash >>> 24) / 2, 3);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getEncoder().encodeToString(png.toByteArray());
+    }
+
+    private Node element(String id) {
+        Node node = null;
+        if (id.startsWith("42.")) {
+            try {
+                node = nodesById.get(Integer.parseInt(id.substring(3)));
+            } catch (NumberFormatException ignored) {
+                // Not one of ours
+            }
+        }
+        if (node == null) {
+            throw new WireError(NO_SUCH_ELEMENT, "No element with id " + id);
+        }
+        if (!node.isAttached()) {
+            throw new WireError(STALE_ELEMENT_REFERENCE, "An element command failed because the referenced element is no longer attached to the DOM.");
+        }
+        return node;
+    }
+
+    private static Map<String, Object> reference(Node node) {
+        return Collections.singletonMap("ELEMENT", node.elementId());
+    }
+
+    private static List<Map<String, Object>> references(List<Node> nodes) {
+        List<Map<String, Object>> references = new ArrayList<>();
+        for (Node node : nodes) {
+            references.add(reference(node));
+        }
+        return references;
+    }
+
+    private static String handleOf(Node window) {
+        return String.format(Locale.ROOT, "0x%08X", window.nativeWindowHandle);
+    }
+
+    private static Map<String, Object> point(int x, int y) {
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put("x", x);
+        point.put("y", y);
+        return point;
+    }
+
+    private static Map<String, Object> size(int[] rect) {
+        Map<String, Object> size = new LinkedHashMap<>();
+        size.put("width", rect[2]);
+        size.put("height", rect[3]);
+        return size;
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+    private static String appKey(String appPath) {
+        return appPath.replace('\\', '/').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Wakes finds waiting for the tree to change. Callers hold the tree lock.
+     */
+    private void changed() {
+        tree.notifyAll();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until the condition holds or the timeout expires; for scripts that react to client progress.
+     */
+    public boolean await(Supplier<Boolean> condition, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (tree) {
+            while (!Boolean.TRUE.equals(condition.get())) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                tree.wait(remaining);
+            }
+            return true;
+        }
+    }
+}
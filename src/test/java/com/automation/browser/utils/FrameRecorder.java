@@ -0,0 +1,238 @@
+package com.automation.browser.utils;
+
+import com.automation.browser.config.TestConfig;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the last few seconds of a test's session in the background so a failure report shows
+ * how the UI got there, not only where it ended up. Frames are kept in a fixed-size off-heap ring
+ * per test thread; the ring is dumped to the report on failure and simply overwritten otherwise.
+ * A capture is skipped while the test's own command is in flight, so recording never queues up
+ * behind (or in front of) the test on the WinAppDriver session. Opt-in via screenshot.ring.enabled.
+ */
+public class FrameRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(FrameRecorder.class);
+
+    private static final ThreadLocal<Recording> recordings = new ThreadLocal<>();
+    private static ScheduledExecutorService scheduler;
+
+    private FrameRecorder() {
+        // Private constructor to prevent instantiation
+    }
+
+    private static final class Recording {
+        private final FrameRing ring;
+        private volatile WebDriver driver;
+        private ScheduledFuture<?> task;
+        private volatile int skipped;
+
+        private Recording(FrameRing ring) {
+            this.ring = ring;
+        }
+
+        private void capture() {
+            WebDriver current = driver;
+            if (current == null || isBusy(current)) {
+                skipped++;
+                return;
+            }
+            try {
+                byte[] png = ((RemoteWebDriver) current).getScreenshotAs(OutputType.BYTES);
+                ring.add(png, System.currentTimeMillis());
+            } catch (Exception e) {
+                // The session may be between leases or already gone; the next tick will tell
+                logger.debug("Background frame capture failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts recording the calling thread's session. The ring's off-heap memory is allocated once
+     * per thread and reused by every later test on it.
+     */
+    public static void start() {
+        if (!TestConfig.isScreenshotRingEnabled()) {
+            return;
+        }
+        Recording recording = recordings.get();
+        if (recording == null) {
+            recording = new Recording(new FrameRing(TestConfig.getScreenshotRingBudgetBytes(), TestConfig.getScreenshotRingFrames()));
+            recordings.set(recording);
+        }
+        stop(recording);
+        recording.ring.clear();
+        recording.skipped = 0;
+        recording.driver = DriverFactory.getCurrentDriver();
+        long interval = TestConfig.getScreenshotRingIntervalMillis();
+        recording.task = scheduler().scheduleWithFixedDelay(recording::capture, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Points the calling thread's recording at the session it now holds.
+     */
+    public static void follow(WebDriver driver) {
+        Recording recording = recordings.get();
+        if (recording != null) {
+            recording.driver = driver;
+        }
+    }
+
+    /**
+     * Stops recording and forgets the frames; the test passed, so nobody needs them.
+     */
+    public static void discard() {
+        Recording recording = recordings.get();
+        if (recording != null) {
+            stop(recording);
+            recording.ring.clear();
+        }
+    }
+
+    /**
+     * Stops recording and attaches the buffered frames, oldest first, to the running Allure test
+     * through the screenshot pipeline.
+     */
+    public static void dump(String testName) {
+        Recording recording = recordings.get();
+        if (recording == null) {
+            return;
+        }
+        stop(recording);
+        List<FrameRing.Frame> frames = recording.ring.drain();
+        if (frames.isEmpty()) {
+            return;
+        }
+        long last = frames.get(frames.size() - 1).timestamp;
+        logger.info("Attaching {} recorded frames for {} ({} captures skipped while the session was busy)",
+                frames.size(), testName, recording.skipped);
+        for (int i = 0; i < frames.size(); i++) {
+            FrameRing.Frame frame = frames.get(i);
+            Path destination = Paths.get(TestConfig.getScreenshotDir(), testName + "_frame" + i + "_" + frame.timestamp + ".png");
+            String label = String.format("Frame %d (t-%.1fs)", i + 1, (last - frame.timestamp) / 1000.0);
+            ScreenshotPipeline.submit(frame.png, destination, label);
+        }
+    }
+
+    private static void stop(Recording recording) {
+        if (recording.task != null) {
+            recording.task.cancel(false);
+            recording.task = null;
+        }
+    }
+
+    private static boolean isBusy(WebDriver driver) {
+        CommandExecutor executor = ((RemoteWebDriver) driver).getCommandExecutor();
+        return executor instanceof InstrumentedCommandExecutor && ((InstrumentedCommandExecutor) executor).isBusy();
+    }
+
+    private static synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+                Thread thread = new Thread(runnable, "frame-recorder-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * Variable-size frames in one direct buffer, written circularly. Adding a frame evicts the oldest
+     * frames until it fits, so the ring never holds more than its byte budget or frame limit.
+     */
+    static final class FrameRing {
+        private final ByteBuffer buffer;
+        private final int maxFrames;
+        private final ArrayDeque<Slot> slots = new ArrayDeque<>();
+        private int writePosition;
+
+        static final class Frame {
+            final byte[] png;
+            final long timestamp;
+
+            private Frame(byte[] png, long timestamp) {
+                this.png = png;
+                this.timestamp = timestamp;
+            }
+        }
+
+        private static final class Slot {
+            private final int offset;
+            private final int length;
+            private final long timestamp;
+
+            private Slot(int offset, int length, long timestamp) {
+                this.offset = offset;
+                this.length = length;
+                this.timestamp = timestamp;
+            }
+        }
+
+        FrameRing(int capacityBytes, int maxFrames) {
+            this.buffer = ByteBuffer.allocateDirect(capacityBytes);
+            this.maxFrames = maxFrames;
+        }
+
+        synchronized boolean add(byte[] png, long timestamp) {
+            if (png.length > buffer.capacity()) {
+                logger.warn("Frame of {} KB does not fit the {} KB ring; raise screenshot.ring.budget.mb",
+                        png.length / 1024, buffer.capacity() / 1024);
+                return false;
+            }
+            if (writePosition + png.length > buffer.capacity()) {
+                writePosition = 0;
+            }
+            int end = writePosition + png.length;
+            // Live slots sit in allocation order, so the ones in the way are always the oldest
+            while (!slots.isEmpty() && (slots.size() >= maxFrames || overlaps(slots.peekFirst(), writePosition, end))) {
+                slots.pollFirst();
+            }
+            ByteBuffer target = buffer.duplicate();
+            target.position(writePosition);
+            target.put(png);
+            slots.addLast(new Slot(writePosition, png.length, timestamp));
+            writePosition = end;
+            return true;
+        }
+
+        synchronized List<Frame> drain() {
+            List<Frame> frames = new ArrayList<>(slots.size());
+            for (Slot slot : slots) {
+                byte[] png = new byte[slot.length];
+                ByteBuffer source = buffer.duplicate();
+                source.position(slot.offset);
+                source.get(png);
+                frames.add(new Frame(png, slot.timestamp));
+            }
+            clear();
+            return frames;
+        }
+
+        synchronized void clear() {
+            slots.clear();
+            writePosition = 0;
+        }
+
+        private static boolean overlaps(Slot slot, int start, int end) {
+            return slot.offset < end && start < slot.offset + slot.length;
+        }
+    }
+}
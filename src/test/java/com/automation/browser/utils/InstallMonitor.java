@@ -0,0 +1,174 @@
+package com.automation.browser.utils;
+
+import org.openqa.selenium.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Decides when an installation is done without fixed sleeps. Ready means, in this order of checking:
+ * the installed executable exists (seen through file system events on its directory chain),
+ * the installer process has exited successfully, and the application window is up.
+ * Each phase's completion time, measured from {@link #awaitReady}, is reported.
+ */
+public class InstallMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(InstallMonitor.class);
+
+    private final Path executable;
+    private final Process installer;
+    private final Supplier<Boolean> windowOpen;
+
+    /**
+     * Phase name to milliseconds after monitoring started, in completion order.
+     */
+    public static final class Timings {
+        private final Map<String, Long> phases = new LinkedHashMap<>();
+
+        private void record(String phase, long millis) {
+            phases.put(phase, millis);
+        }
+
+        public Map<String, Long> getPhases() {
+            return Collections.unmodifiableMap(phases);
+        }
+
+        public long getTotalMillis() {
+            return phases.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        }
+
+        @Override
+        public String toString() {
+            return phases.toString();
+        }
+    }
+
+    /**
+     * @param executable the file the installer creates
+     * @param installer  the running installer process
+     * @param windowOpen whether the installed application's window is showing; polled adaptively
+     */
+    public InstallMonitor(Path executable, Process installer, Supplier<Boolean> windowOpen) {
+        this.executable = executable;
+        this.installer = installer;
+        this.windowOpen = windowOpen;
+    }
+
+    /**
+     * Blocks until the installation is ready. Throws if the installer fails, exits without creating
+     * the executable, or the timeout expires.
+     */
+    public Timings awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+        Timings timings = new Timings();
+
+        AtomicLong exitedAt = new AtomicLong();
+        CompletableFuture<Process> exited = installer.onExit().whenComplete((process, error) -> exitedAt.set(System.nanoTime()));
+
+        awaitExecutable(exited, deadline);
+        timings.record("executable created", millisSince(start));
+        logger.info("Installed executable appeared after {} ms", millisSince(start));
+
+        try {
+            exited.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new TimeoutException("Installer still running after " + unit.toSeconds(timeout) + " s");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to wait for the installer", e.getCause());
+        }
+        if (installer.exitValue() != 0) {
+            throw new RuntimeException("Installer exited with code " + installer.exitValue());
+        }
+        timings.record("installer exited", TimeUnit.NANOSECONDS.toMillis(exitedAt.get() - start));
+
+        WaitEngine.getInstance().until("application window after install", windowOpen,
+                Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        timings.record("window shown", millisSince(start));
+
+        logger.info("Installation ready in {} ms: {}", timings.getTotalMillis(), timings);
+        return timings;
+    }
+
+    /**
+     * Waits for the executable with a watch on its nearest existing ancestor directory, moving the watch
+     * down the chain as directories get created. The installer exiting closes the watch so a failed
+     * install is reported immediately rather than at the timeout.
+     */
+    private void awaitExecutable(CompletableFuture<Process> exited, long deadline) throws InterruptedException {
+        if (Files.exists(executable)) {
+            return;
+        }
+        try (WatchService watchService = executable.getFileSystem().newWatchService()) {
+            exited.thenRun(() -> closeQuietly(watchService));
+            Path watched = null;
+            WatchKey watchKey = null;
+            while (!Files.exists(executable)) {
+                Path directory = nearestExistingAncestor(executable.getParent());
+                if (!directory.equals(watched)) {
+                    if (watchKey != null) {
+                        watchKey.cancel();
+                    }
+                    watchKey = directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+                    watched = directory;
+                    // Re-check right away: the next directory may have been created before the watch was in place
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException("Installed executable did not appear at " + executable);
+                }
+                WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            if (!Files.exists(executable)) {
+                throw new RuntimeException("Installer exited with code " + installer.exitValue()
+                        + " without creating " + executable);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to watch for " + executable, e);
+        }
+    }
+
+    private static Path nearestExistingAncestor(Path directory) {
+        Path current = directory;
+        while (current != null && !Files.isDirectory(current)) {
+            current = current.getParent();
+        }
+        if (current == null) {
+            throw new IllegalStateException("No existing ancestor directory for " + directory);
+        }
+        return current;
+    }
+
+    private static void closeQuietly(WatchService watchService) {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
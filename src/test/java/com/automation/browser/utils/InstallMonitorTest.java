@@ -0,0 +1,170 @@
+package com.automation.browser.utils;
+
+import org.openqa.selenium.TimeoutException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs InstallMonitor against a scripted installer that creates the install directory chain step by step.
+ */
+public class InstallMonitorTest {
+    private Path root;
+    private Path executable;
+    private FakeInstaller installer;
+    private ExecutorService script;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("install-monitor");
+        // Neither Shift nor chromium exist yet, as on a machine that never had Shift installed
+        executable = root.resolve("Shift").resolve("chromium").resolve("shift.exe");
+        installer = new FakeInstaller();
+        script = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        script.shutdownNow();
+        installer.exit(0);
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void executableUnderNewDirectoriesIsDetected() throws Exception {
+        script.submit(() -> {
+            Thread.sleep(200);
+            Files.createDirectory(executable.getParent().getParent());
+            Thread.sleep(100);
+            Files.createDirectory(executable.getParent());
+            Thread.sleep(100);
+            Files.write(executable, new byte[]{'M', 'Z'});
+            Thread.sleep(100);
+            installer.exit(0);
+            return null;
+        });
+
+        InstallMonitor.Timings timings = new InstallMonitor(executable, installer, () -> true)
+                .awaitReady(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(timings.getPhases().keySet().toString(), "[executable created, installer exited, window shown]");
+        long created = timings.getPhases().get("executable created");
+        Assert.assertTrue(created >= 300, "Reported before the executable existed: " + timings);
+        Assert.assertTrue(created <= timings.getPhases().get("installer exited"), timings.toString());
+        Assert.assertTrue(timings.getTotalMillis() < 5000, "Took until close to the timeout: " + timings);
+    }
+
+    @Test
+    public void installerFailingBeforeCreatingExecutableIsReportedImmediately() {
+        script.submit(() -> {
+            Thread.sleep(200);
+            installer.exit(3);
+            return null;
+        });
+
+        long start = System.nanoTime();
+        RuntimeException failure = Assert.expectThrows(RuntimeException.class,
+                () -> new InstallMonitor(executable, installer, () -> true).awaitReady(30, TimeUnit.SECONDS));
+
+        Assert.assertTrue(failure.getMessage().contains("exited with code 3"), failure.getMessage());
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5, "Waited for the timeout");
+    }
+
+    @Test
+    public void installerExitingNonZeroAfterCreatingExecutableFails() {
+        script.submit(() -> {
+            Files.createDirectories(executable.getParent());
+            Files.write(executable, new byte[]{'M', 'Z'});
+            Thread.sleep(200);
+            installer.exit(2);
+            return null;
+        });
+
+        RuntimeException failure = Assert.expectThrows(RuntimeException.class,
+                () -> new InstallMonitor(executable, installer, () -> true).awaitReady(30, TimeUnit.SECONDS));
+
+        Assert.assertEquals(failure.getMessage(), "Installer exited with code 2");
+    }
+
+    @Test
+    public void timesOutWhenExecutableNeverAppears() {
+        long start = System.nanoTime();
+        TimeoutException timeout = Assert.expectThrows(TimeoutException.class,
+                () -> new InstallMonitor(executable, installer, () -> true).awaitReady(1, TimeUnit.SECONDS));
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue(timeout.getMessage().contains("did not appear"), timeout.getMessage());
+        Assert.assertTrue(elapsed >= 900 && elapsed < 5000, "Timeout not honoured: " + elapsed + " ms");
+    }
+
+    /**
+     * A Process whose exit the test decides.
+     */
+    private static final class FakeInstaller extends Process {
+        private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+
+        void exit(int code) {
+            exitCode.complete(code);
+        }
+
+        @Override
+        public CompletableFuture<Process> onExit() {
+            return exitCode.thenApply(code -> this);
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            try {
+                return exitCode.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int exitValue() {
+            Integer code = exitCode.getNow(null);
+            if (code == null) {
+                throw new IllegalThreadStateException("Installer has not exited");
+            }
+            return code;
+        }
+
+        @Override
+        public void destroy() {
+            exit(1);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return InputStream.nullInputStream();
+        }
+    }
+}
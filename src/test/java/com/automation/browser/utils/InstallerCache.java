@@ -0,0 +1,415 @@
+package com.automation.browser.utils;
+
+import com.automation.browser.config.TestConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Local cache of installer binaries, stored by SHA-256 with the installer version, the URL they came
+ * from and that URL's HTTP validators. {@link #fetch(String)} revalidates with If-None-Match /
+ * If-Modified-Since, so an unchanged installer is never downloaded twice; entries are checked against
+ * their hash before they are handed out, and the least recently used ones are evicted once the
+ * cache grows past its size limit. The cache lives outside the download directory, so cleaning
+ * old downloads does not touch it.
+ */
+public class InstallerCache {
+    private static final Logger logger = LoggerFactory.getLogger(InstallerCache.class);
+    private static final String BINARY_SUFFIX = ".exe";
+    private static final String META_SUFFIX = ".properties";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Duration maxAge;
+    private final InstallerDownloader downloader = new InstallerDownloader();
+
+    /**
+     * A cached installer. The version is null until someone has read it from the binary.
+     */
+    public static final class Entry {
+        private final Path file;
+        private final Properties meta;
+
+        private Entry(Path file, Properties meta) {
+            this.file = file;
+            this.meta = meta;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public String getSha256() {
+            return meta.getProperty("sha256");
+        }
+
+        public String getVersion() {
+            return meta.getProperty("version");
+        }
+
+        public String getUrl() {
+            return meta.getProperty("url");
+        }
+
+        /**
+         * The download page the installer was fetched from through the browser, or null.
+         */
+        public String getPageUrl() {
+            return meta.getProperty("page");
+        }
+
+        public String getFileName() {
+            return meta.getProperty("fileName");
+        }
+
+        public long getSize() {
+            return Long.parseLong(meta.getProperty("size"));
+        }
+
+        private long getLong(String key) {
+            return Long.parseLong(meta.getProperty(key, "0"));
+        }
+    }
+
+    public InstallerCache(Path directory, long maxBytes, Duration maxAge) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+    }
+
+    public static InstallerCache fromConfig() {
+        return new InstallerCache(Paths.get(TestConfig.getInstallerCacheDir()),
+                TestConfig.getInstallerCacheMaxMegabytes() * 1024 * 1024,
+                Duration.ofMinutes(TestConfig.getInstallerCacheMaxAgeMinutes()));
+    }
+
+    /**
+     * Returns the installer at the URL, downloading it only if the server says it changed since the
+     * cached copy. Within the max age a cached copy is used without asking the server at all, and if
+     * the server cannot be reached a verified cached copy is used as is. Returns null if there is
+     * neither a reachable server nor a usable cached copy.
+     */
+    public Entry fetch(String url) {
+        return fetch(url, null);
+    }
+
+    /**
+     * Like {@link #fetch(String)}, failing if a newly downloaded installer does not have the expected
+     * SHA-256. An interrupted download is resumed by the next call for the same URL.
+     */
+    public synchronized Entry fetch(String url, String expectedSha256) {
+        Entry cached = findByUrl(url);
+        if (cached != null && System.currentTimeMillis() - cached.getLong("lastValidated") < maxAge.toMillis()) {
+            logger.info("Installer cache hit for {} (validated within {} min)", url, maxAge.toMinutes());
+            return touch(cached, false);
+        }
+
+        Map<String, String> conditional = new HashMap<>();
+        if (cached != null) {
+            String etag = cached.meta.getProperty("etag");
+            String lastModified = cached.meta.getProperty("lastModified");
+            if (etag != null) {
+                conditional.put("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                conditional.put("If-Modified-Since", lastModified);
+            }
+        }
+
+        try {
+            Files.createDirectories(directory);
+            // Named after the URL so an interrupted download of it is resumed next time
+            Path part = directory.resolve("download-" + hex(sha256().digest(url.getBytes(StandardCharsets.UTF_8))).substring(0, 16) + ".part");
+            InstallerDownloader.Result result = downloader.download(url, part, conditional, expectedSha256);
+            if (result.isNotModified()) {
+                if (cached == null) {
+                    throw new IOException("HTTP 304 for " + url + " without a cached copy");
+                }
+                logger.info("Installer at {} is unchanged, using cached {}", url, cached.getSha256());
+                return touch(cached, true);
+            }
+            Entry entry = adopt(part, result.getSha256(), result.getSize(), fileNameOf(result.getUri()), url);
+            Properties meta = entry.meta;
+            meta.remove("etag");
+            meta.remove("lastModified");
+            if (result.getEtag() != null) {
+                meta.setProperty("etag", result.getEtag());
+            }
+            if (result.getLastModified() != null) {
+                meta.setProperty("lastModified", result.getLastModified());
+            }
+            if (cached != null && cached.getSha256().equals(entry.getSha256()) && cached.getVersion() != null) {
+                meta.setProperty("version", cached.getVersion());
+            }
+            if (cached != null && cached.getPageUrl() != null) {
+                // Keeps a URL first found through the browser discoverable by findDownloadUrl
+                meta.setProperty("page", cached.getPageUrl());
+            }
+            return touch(entry, true);
+        } catch (IOException e) {
+            logger.warn("Could not download {} ({}), {}", url, e.toString(),
+                    cached != null ? "using cached installer" : "no cached installer available");
+            return cached;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while downloading " + url, e);
+        }
+    }
+
+    /**
+     * Adds an installer that was downloaded some other way, e.g. through the browser.
+     * The file is copied, so the original can be deleted afterwards.
+     */
+    public Entry put(Path installer, String url) {
+        return put(installer, url, null);
+    }
+
+    /**
+     * Like {@link #put(Path, String)} for an installer the browser downloaded from the page. The URL
+     * the download resolved to is what {@link #findDownloadUrl(String)} returns for that page later,
+     * so the next run can revalidate it with {@link #fetch(String)} instead of starting a browser.
+     */
+    public synchronized Entry put(Path installer, String url, String pageUrl) {
+        try (InputStream in = Files.newInputStream(installer)) {
+            Entry entry = store(in, installer.getFileName().toString(), url);
+            if (pageUrl != null) {
+                entry.meta.setProperty("page", pageUrl);
+            }
+            // Adding is a validation: the content was just downloaded from the URL
+            return touch(entry, url != null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to cache installer " + installer, e);
+        }
+    }
+
+    /**
+     * The download URL of the most recently validated installer that came from the page, or null if
+     * none did or its URL is unknown.
+     */
+    public synchronized String findDownloadUrl(String pageUrl) {
+        return entries().stream()
+                .filter(entry -> pageUrl.equals(entry.getPageUrl()) && entry.getUrl() != null)
+                .max(Comparator.comparingLong(entry -> entry.getLong("lastValidated")))
+                .map(Entry::getUrl)
+                .orElse(null);
+    }
+
+    /**
+     * Records the installer version so later runs do not have to read it from the binary again.
+     */
+    public synchronized void setVersion(Entry entry, String version) {
+        entry.meta.setProperty("version", version);
+        writeMeta(entry);
+    }
+
+    private Entry findByUrl(String url) {
+        Entry latest = entries().stream()
+                .filter(entry -> url.equals(entry.getUrl()))
+                .max(Comparator.comparingLong(entry -> entry.getLong("lastValidated")))
+                .orElse(null);
+        return latest == null ? null : verified(latest);
+    }
+
+    /**
+     * Streams the installer into the cache while hashing it, then moves it to its content address.
+     */
+    private Entry store(InputStream body, String fileName, String url) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "copy", ".part");
+        MessageDigest digest = sha256();
+        long size;
+        try (InputStream in = new DigestInputStream(body, digest);
+             OutputStream out = Files.newOutputStream(temp)) {
+            size = in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return adopt(temp, hex(digest.digest()), size, fileName, url);
+    }
+
+    /**
+     * Moves a fully written and hashed file to its content address and returns its entry.
+     */
+    private Entry adopt(Path temp, String sha, long size, String fileName, String url) throws IOException {
+        Path file = binaryPath(sha);
+        if (Files.exists(file) && Files.size(file) == size) {
+            // Same content already cached (and possibly running); keep that copy
+            Files.delete(temp);
+        } else {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        Entry existing = load(sha);
+        Properties meta = existing != null ? existing.meta : new Properties();
+        meta.setProperty("sha256", sha);
+        meta.setProperty("size", String.valueOf(size));
+        meta.setProperty("fileName", fileName);
+        if (url != null) {
+            meta.setProperty("url", url);
+        }
+        logger.info("Cached installer {} ({} KB) as {}", fileName, size / 1024, sha);
+        return new Entry(file, meta);
+    }
+
+    private Entry touch(Entry entry, boolean validated) {
+        long now = System.currentTimeMillis();
+        entry.meta.setProperty("lastAccess", String.valueOf(now));
+        if (validated || entry.meta.getProperty("lastValidated") == null) {
+            entry.meta.setProperty("lastValidated", String.valueOf(now));
+        }
+        writeMeta(entry);
+        evict(entry.getSha256());
+        return entry;
+    }
+
+    /**
+     * Returns the entry if its binary still matches its hash, otherwise drops it and returns null.
+     */
+    private Entry verified(Entry entry) {
+        try {
+            if (Files.size(entry.file) == entry.getSize() && entry.getSha256().equals(hash(entry.file))) {
+                return entry;
+            }
+        } catch (IOException e) {
+            logger.debug("Cached installer {} is unreadable: {}", entry.file, e.getMessage());
+        }
+        logger.warn("Cached installer {} failed its integrity check, removing it", entry.getSha256());
+        remove(entry);
+        return null;
+    }
+
+    /**
+     * Drops least recently used entries until the cache fits its size limit, never the one just used.
+     */
+    private void evict(String keep) {
+        List<Entry> all = entries();
+        long total = all.stream().mapToLong(Entry::getSize).sum();
+        all.sort(Comparator.comparingLong(entry -> entry.getLong("lastAccess")));
+        for (Entry entry : all) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (entry.getSha256().equals(keep)) {
+                continue;
+            }
+            logger.info("Evicting cached installer {} ({} KB)", entry.getSha256(), entry.getSize() / 1024);
+            remove(entry);
+            total -= entry.getSize();
+        }
+    }
+
+    private List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+        try (DirectoryStream<Path> metaFiles = Files.newDirectoryStream(directory, "*" + META_SUFFIX)) {
+            for (Path metaFile : metaFiles) {
+                String name = metaFile.getFileName().toString();
+                Entry entry = load(name.substring(0, name.length() - META_SUFFIX.length()));
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list installer cache " + directory, e);
+        }
+        return entries;
+    }
+
+    private Entry load(String sha) {
+        Path metaFile = directory.resolve(sha + META_SUFFIX);
+        Path file = binaryPath(sha);
+        if (!Files.exists(metaFile) || !Files.exists(file)) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(metaFile)) {
+            meta.load(in);
+        } catch (IOException e) {
+            logger.debug("Unreadable cache metadata {}: {}", metaFile, e.getMessage());
+            return null;
+        }
+        return new Entry(file, meta);
+    }
+
+    private void writeMeta(Entry entry) {
+        Path metaFile = directory.resolve(entry.getSha256() + META_SUFFIX);
+        try {
+            Path temp = Files.createTempFile(directory, "meta", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                entry.meta.store(out, "Cached installer");
+            }
+            Files.move(temp, metaFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write cache metadata " + metaFile, e);
+        }
+    }
+
+    private void remove(Entry entry) {
+        try {
+            Files.deleteIfExists(directory.resolve(entry.getSha256() + META_SUFFIX));
+            Files.deleteIfExists(entry.file);
+        } catch (IOException e) {
+            logger.warn("Failed to remove cached installer {}: {}", entry.file, e.getMessage());
+        }
+    }
+
+    private Path binaryPath(String sha) {
+        return directory.resolve(sha + BINARY_SUFFIX);
+    }
+
+    private static String fileNameOf(URI uri) {
+        String path = uri.getPath();
+        if (path == null || path.isEmpty() || path.endsWith("/")) {
+            return "installer.exe";
+        }
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    static String hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return hex(digest.digest());
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
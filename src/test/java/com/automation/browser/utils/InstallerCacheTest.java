@@ -0,0 +1,131 @@
+package com.automation.browser.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class InstallerCacheTest {
+    private static final int SIZE = 256 * 1024;
+    private static final String ETAG = "\"v1\"";
+
+    private Path directory;
+    private InstallerServer server;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("installer-cache");
+        server = InstallerServer.start();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        server.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void firstFetchDownloadsAndCaches() throws Exception {
+        byte[] body = body(1);
+        server.serve("/ShiftSetup.exe", body, ETAG);
+
+        InstallerCache.Entry entry = cache(Duration.ZERO).fetch(server.url("/ShiftSetup.exe"));
+
+        Assert.assertNotNull(entry);
+        Assert.assertEquals(Files.readAllBytes(entry.getFile()), body);
+        Assert.assertEquals(entry.getSha256(), sha256(body));
+        Assert.assertEquals(entry.getFileName(), "ShiftSetup.exe");
+        Assert.assertEquals(server.count(200), 1);
+    }
+
+    @Test
+    public void unchangedInstallerIsRevalidatedWith304() throws Exception {
+        server.serve("/ShiftSetup.exe", body(1), ETAG);
+        InstallerCache cache = cache(Duration.ZERO);
+        InstallerCache.Entry first = cache.fetch(server.url("/ShiftSetup.exe"));
+
+        InstallerCache.Entry second = cache.fetch(server.url("/ShiftSetup.exe"));
+
+        Assert.assertEquals(second.getFile(), first.getFile());
+        Assert.assertEquals(server.count(200), 1, "The body should only be sent once");
+        Assert.assertEquals(server.count(304), 1);
+        InstallerServer.Request revalidation = server.requests().get(1);
+        Assert.assertEquals(revalidation.headers.getFirst("If-None-Match"), ETAG);
+        Assert.assertEquals(revalidation.headers.getFirst("If-Modified-Since"), InstallerServer.LAST_MODIFIED);
+    }
+
+    @Test
+    public void cachedCopyIsUsedWhenServerIsUnreachable() throws Exception {
+        byte[] body = body(1);
+        server.serve("/ShiftSetup.exe", body, ETAG);
+        String url = server.url("/ShiftSetup.exe");
+        InstallerCache cache = cache(Duration.ZERO);
+        cache.fetch(url);
+        server.close();
+
+        InstallerCache.Entry offline = cache.fetch(url);
+
+        Assert.assertNotNull(offline, "A verified cached copy should be used while the server is down");
+        Assert.assertEquals(Files.readAllBytes(offline.getFile()), body);
+    }
+
+    @Test
+    public void leastRecentlyUsedInstallerIsEvicted() throws Exception {
+        server.serve("/old.exe", body(1), "\"old\"");
+        server.serve("/new.exe", body(2), "\"new\"");
+        // Room for one installer only
+        InstallerCache cache = new InstallerCache(directory, SIZE * 3 / 2, Duration.ZERO);
+
+        InstallerCache.Entry old = cache.fetch(server.url("/old.exe"));
+        InstallerCache.Entry latest = cache.fetch(server.url("/new.exe"));
+
+        Assert.assertFalse(Files.exists(old.getFile()), "Older installer should have been evicted");
+        Assert.assertTrue(Files.exists(latest.getFile()));
+        Assert.assertEquals(cache.fetch(server.url("/old.exe")).getSha256(), sha256(body(1)));
+        Assert.assertEquals(server.count(200), 3, "The evicted installer has to be downloaded again");
+    }
+
+    @Test
+    public void browserDownloadIsFoundAgainThroughItsPage() throws Exception {
+        String page = server.url("/download/");
+        String url = server.url("/ShiftSetup.exe");
+        byte[] body = body(1);
+        server.serve("/ShiftSetup.exe", body, ETAG);
+        Path downloaded = Files.write(directory.resolve("ShiftSetup.exe"), body);
+        InstallerCache cache = new InstallerCache(directory.resolve("cache"), Long.MAX_VALUE, Duration.ofHours(1));
+
+        InstallerCache.Entry stored = cache.put(downloaded, url, page);
+        String found = cache.findDownloadUrl(page);
+        InstallerCache.Entry fetched = cache.fetch(found);
+
+        Assert.assertEquals(found, url);
+        Assert.assertEquals(fetched.getSha256(), stored.getSha256());
+        Assert.assertTrue(server.requests().isEmpty(), "A fresh browser download should not be fetched again");
+        Assert.assertNull(cache.findDownloadUrl(server.url("/other/")));
+    }
+
+    private InstallerCache cache(Duration maxAge) {
+        return new InstallerCache(directory, Long.MAX_VALUE, maxAge);
+    }
+
+    static byte[] body(long seed) {
+        byte[] body = new byte[SIZE];
+        new Random(seed).nextBytes(body);
+        return body;
+    }
+
+    static String sha256(byte[] body) {
+        return InstallerCache.hex(InstallerCache.sha256().digest(body));
+    }
+}
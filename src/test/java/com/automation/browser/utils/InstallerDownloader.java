@@ -0,0 +1,281 @@
+package com.automation.browser.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads installers over plain HTTP, without a browser. One client is shared, so the download page
+ * and the binary reuse connections. Downloads go to a partial file that survives failures: the next
+ * attempt (or run) resumes it with a Range request guarded by If-Range, and the SHA-256 is computed
+ * while the data is written, so no second pass over the file is needed.
+ */
+public class InstallerDownloader {
+    private static final Logger logger = LoggerFactory.getLogger(InstallerDownloader.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Pattern HREF = Pattern.compile("href\\s*=\\s*[\"']([^\"']+)[\"']", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+
+    private final HttpClient httpClient;
+
+    /**
+     * A finished download, or a 304 when the request carried validators and nothing changed.
+     */
+    public static final class Result {
+        private final boolean notModified;
+        private final URI uri;
+        private final String sha256;
+        private final long size;
+        private final long resumedFrom;
+        private final String etag;
+        private final String lastModified;
+
+        private Result(boolean notModified, URI uri, String sha256, long size, long resumedFrom,
+                       String etag, String lastModified) {
+            this.notModified = notModified;
+            this.uri = uri;
+            this.sha256 = sha256;
+            this.size = size;
+            this.resumedFrom = resumedFrom;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public boolean isNotModified() {
+            return notModified;
+        }
+
+        /**
+         * Final URI after redirects.
+         */
+        public URI getUri() {
+            return uri;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Bytes that were already on disk from an earlier, interrupted attempt.
+         */
+        public long getResumedFrom() {
+            return resumedFrom;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+
+    public InstallerDownloader() {
+        this(HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(15))
+                .build());
+    }
+
+    public InstallerDownloader(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Returns the first link on the page whose absolute URL matches the pattern, or null if there is
+     * none, e.g. because the page builds its download button with JavaScript.
+     */
+    public String resolveLink(String pageUrl, Pattern linkPattern) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(pageUrl)).timeout(Duration.ofSeconds(30)).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            logger.warn("Download page {} returned HTTP {}", pageUrl, response.statusCode());
+            return null;
+        }
+        Matcher href = HREF.matcher(response.body());
+        while (href.find()) {
+            String link = href.group(1).replace("&amp;", "&").trim();
+            try {
+                String resolved = response.uri().resolve(link).toString();
+                if (linkPattern.matcher(resolved).find()) {
+                    logger.info("Resolved installer link {} from {}", resolved, pageUrl);
+                    return resolved;
+                }
+            } catch (IllegalArgumentException e) {
+                logger.debug("Skipping malformed link {}: {}", link, e.getMessage());
+            }
+        }
+        logger.info("No link on {} matches {}", pageUrl, linkPattern);
+        return null;
+    }
+
+    /**
+     * Downloads the URL into the partial file, resuming what an earlier attempt left there.
+     * Transfer errors are retried from the bytes already written.
+     *
+     * @param headers        extra request headers, e.g. If-None-Match for a cached copy
+     * @param expectedSha256 checked once the last byte is written, or null to skip the check
+     */
+    public Result download(String url, Path partFile, Map<String, String> headers, String expectedSha256)
+            throws IOException, InterruptedException {
+        IOException lastFailure = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                return attempt(url, partFile, headers, expectedSha256);
+            } catch (IOException e) {
+                lastFailure = e;
+                logger.warn("Download of {} failed on attempt {}/{}: {} ({} bytes kept)", url, attempt, MAX_ATTEMPTS,
+                        e.toString(), Files.exists(partFile) ? Files.size(partFile) : 0);
+            }
+        }
+        throw lastFailure;
+    }
+
+    public Result download(String url, Path partFile) throws IOException, InterruptedException {
+        return download(url, partFile, Collections.emptyMap(), null);
+    }
+
+    private Result attempt(String url, Path partFile, Map<String, String> headers, String expectedSha256)
+            throws IOException, InterruptedException {
+        Path validatorFile = partFile.resolveSibling(partFile.getFileName() + ".properties");
+        long offset = Files.exists(partFile) ? Files.size(partFile) : 0;
+        String validator = offset > 0 ? readValidator(validatorFile) : null;
+        if (offset > 0 && validator == null) {
+            // Without a validator the server cannot tell us whether the partial bytes still belong to the file
+            offset = 0;
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofMinutes(5)).GET();
+        headers.forEach(request::header);
+        if (offset > 0) {
+            request.header("Range", "bytes=" + offset + "-");
+            request.header("If-Range", validator);
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        int status = response.statusCode();
+        if (status == 304) {
+            response.body().close();
+            return new Result(true, response.uri(), null, 0, 0, etag, lastModified);
+        }
+        if (status == 206) {
+            Matcher range = CONTENT_RANGE.matcher(response.headers().firstValue("Content-Range").orElse(""));
+            if (!range.matches() || Long.parseLong(range.group(1)) != offset) {
+                response.body().close();
+                deletePartial(partFile, validatorFile);
+                throw new IOException("Server answered the resume request with an unexpected range");
+            }
+            logger.info("Resuming download of {} at {} KB", url, offset / 1024);
+        } else if (status == 200) {
+            offset = 0;
+        } else {
+            response.body().close();
+            if (status == 416) {
+                // The partial file does not fit the current resource; start over on the next attempt
+                deletePartial(partFile, validatorFile);
+            }
+            throw new IOException("Downloading " + url + " failed with HTTP " + status);
+        }
+        long expectedSize = expectedSize(response, offset);
+
+        // Only strong validators may be used with If-Range
+        String newValidator = etag != null && !etag.startsWith("W/") ? etag : lastModified;
+        if (newValidator != null) {
+            writeValidator(validatorFile, newValidator);
+        } else {
+            Files.deleteIfExists(validatorFile);
+        }
+
+        MessageDigest digest = InstallerCache.sha256();
+        if (offset > 0) {
+            try (InputStream existing = new DigestInputStream(Files.newInputStream(partFile), digest)) {
+                existing.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        StandardOpenOption mode = offset > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (InputStream in = new DigestInputStream(response.body(), digest);
+             OutputStream out = Files.newOutputStream(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            in.transferTo(out);
+        }
+
+        long size = Files.size(partFile);
+        if (expectedSize >= 0 && size != expectedSize) {
+            throw new IOException("Download of " + url + " ended at " + size + " of " + expectedSize + " bytes");
+        }
+        String sha = InstallerCache.hex(digest.digest());
+        Files.deleteIfExists(validatorFile);
+        if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha)) {
+            Files.deleteIfExists(partFile);
+            throw new RuntimeException("Installer from " + url + " has SHA-256 " + sha + ", expected " + expectedSha256);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Downloaded {} KB from {} in {} ms ({} KB resumed)", (size - offset) / 1024, response.uri(),
+                millis, offset / 1024);
+        return new Result(false, response.uri(), sha, size, offset, etag, lastModified);
+    }
+
+    /**
+     * Total size from Content-Range or Content-Length, or -1 when the server did not say.
+     */
+    private static long expectedSize(HttpResponse<?> response, long offset) {
+        Matcher range = CONTENT_RANGE.matcher(response.headers().firstValue("Content-Range").orElse(""));
+        if (range.matches() && !"*".equals(range.group(2))) {
+            return Long.parseLong(range.group(2));
+        }
+        return response.headers().firstValueAsLong("Content-Length").stream().map(length -> length + offset).findFirst().orElse(-1);
+    }
+
+    private static String readValidator(Path validatorFile) {
+        if (!Files.exists(validatorFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(validatorFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        return properties.getProperty("validator");
+    }
+
+    private static void writeValidator(Path validatorFile, String validator) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("validator", validator);
+        try (OutputStream out = Files.newOutputStream(validatorFile)) {
+            properties.store(out, "Validator of the partial download");
+        }
+    }
+
+    private static void deletePartial(Path partFile, Path validatorFile) throws IOException {
+        Files.deleteIfExists(partFile);
+        Files.deleteIfExists(validatorFile);
+    }
+}
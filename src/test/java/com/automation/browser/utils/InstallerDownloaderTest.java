@@ -0,0 +1,147 @@
+package com.automation.browser.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class InstallerDownloaderTest {
+    private static final String PATH = "/ShiftSetup.exe";
+    private static final String ETAG = "\"v1\"";
+
+    private final byte[] body = InstallerCacheTest.body(1);
+    private final String sha = InstallerCacheTest.sha256(body);
+
+    private Path directory;
+    private Path part;
+    private InstallerServer server;
+    private InstallerDownloader downloader;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("installer-downloader");
+        part = directory.resolve("download.part");
+        server = InstallerServer.start();
+        downloader = new InstallerDownloader();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        server.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void droppedTransferResumesWithRangeAndIfRange() throws Exception {
+        server.serve(PATH, body, ETAG);
+        server.cutNextBodyAt(body.length / 2);
+
+        InstallerDownloader.Result result = downloader.download(server.url(PATH), part);
+
+        assertComplete(result);
+        Assert.assertTrue(result.getResumedFrom() > 0, "Second attempt should have resumed");
+        List<InstallerServer.Request> requests = server.requests();
+        Assert.assertEquals(requests.size(), 2);
+        InstallerServer.Request resume = requests.get(1);
+        Assert.assertEquals(resume.status, 206);
+        Assert.assertEquals(resume.headers.getFirst("Range"), "bytes=" + result.getResumedFrom() + "-");
+        Assert.assertEquals(resume.headers.getFirst("If-Range"), ETAG);
+        Assert.assertFalse(Files.exists(validatorFile()), "Validator should be removed once the download completes");
+    }
+
+    @Test
+    public void weakEtagIsNotUsedForIfRange() throws Exception {
+        server.serve(PATH, body, "W/\"v1\"");
+        server.cutNextBodyAt(body.length / 2);
+
+        InstallerDownloader.Result result = downloader.download(server.url(PATH), part);
+
+        assertComplete(result);
+        InstallerServer.Request resume = server.requests().get(1);
+        Assert.assertEquals(resume.headers.getFirst("If-Range"), InstallerServer.LAST_MODIFIED,
+                "A weak ETag may not be used with If-Range, Last-Modified should be sent instead");
+        Assert.assertEquals(resume.status, 206);
+    }
+
+    @Test
+    public void mismatchedRangeRestartsFromScratch() throws Exception {
+        server.serve(PATH, body, ETAG);
+        server.cutNextBodyAt(body.length / 2);
+        server.misalignNextRange();
+
+        InstallerDownloader.Result result = downloader.download(server.url(PATH), part);
+
+        assertComplete(result);
+        Assert.assertEquals(result.getResumedFrom(), 0, "A 206 for the wrong range must not be appended");
+        Assert.assertEquals(statuses(), List.of(200, 206, 200));
+    }
+
+    @Test
+    public void rangeNotSatisfiableDiscardsPartialFile() throws Exception {
+        server.serve(PATH, body, ETAG);
+        server.cutNextBodyAt(body.length / 2);
+        server.rejectNextRange();
+
+        InstallerDownloader.Result result = downloader.download(server.url(PATH), part);
+
+        assertComplete(result);
+        Assert.assertEquals(result.getResumedFrom(), 0);
+        Assert.assertEquals(statuses(), List.of(200, 416, 200));
+        Assert.assertNull(server.requests().get(2).headers.getFirst("Range"), "Partial file should have been reset");
+    }
+
+    @Test
+    public void checksumMismatchFailsAndDeletesDownload() throws Exception {
+        server.serve(PATH, body, ETAG);
+        String wrong = InstallerCacheTest.sha256(new byte[0]);
+
+        try {
+            downloader.download(server.url(PATH), part, Collections.emptyMap(), wrong);
+            Assert.fail("Download with the wrong SHA-256 should fail");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains(sha), e.getMessage());
+        }
+        Assert.assertFalse(Files.exists(part), "A download that fails its checksum must not be kept");
+        Assert.assertEquals(server.requests().size(), 1, "A checksum mismatch is not retried");
+    }
+
+    @Test
+    public void notModifiedIsPassedThrough() throws Exception {
+        server.serve(PATH, body, ETAG);
+
+        InstallerDownloader.Result result = downloader.download(server.url(PATH), part,
+                Collections.singletonMap("If-None-Match", ETAG), sha);
+
+        Assert.assertTrue(result.isNotModified());
+        Assert.assertEquals(result.getEtag(), ETAG);
+        Assert.assertNull(result.getSha256());
+        Assert.assertFalse(Files.exists(part), "Nothing should be written for a 304");
+    }
+
+    private void assertComplete(InstallerDownloader.Result result) throws IOException {
+        Assert.assertFalse(result.isNotModified());
+        Assert.assertEquals(result.getSize(), body.length);
+        Assert.assertEquals(result.getSha256(), sha);
+        Assert.assertEquals(Files.readAllBytes(part), body);
+    }
+
+    private List<Integer> statuses() {
+        return server.requests().stream().map(request -> request.status).collect(Collectors.toList());
+    }
+
+    private Path validatorFile() {
+        return part.resolveSibling(part.getFileName() + ".properties");
+    }
+}
@@ -0,0 +1,193 @@
+package com.automation.browser.utils;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process HTTP server for installer download tests. Serves byte arrays with an ETag, answers
+ * If-None-Match with 304 and Range/If-Range with 206 or 416, and can break the next response on
+ * purpose; every request's headers are recorded.
+ */
+final class InstallerServer implements AutoCloseable {
+    static final String LAST_MODIFIED = "Wed, 01 Jan 2025 00:00:00 GMT";
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-");
+
+    private final HttpServer server;
+    private final Map<String, Resource> resources = new ConcurrentHashMap<>();
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger cutNextBodyAt = new AtomicInteger(-1);
+    private final AtomicBoolean misalignNextRange = new AtomicBoolean();
+    private final AtomicBoolean rejectNextRange = new AtomicBoolean();
+
+    /**
+     * One recorded request; headers as the server received them.
+     */
+    static final class Request {
+        final String path;
+        final Headers headers;
+        final int status;
+
+        private Request(String path, Headers headers, int status) {
+            this.path = path;
+            this.headers = headers;
+            this.status = status;
+        }
+    }
+
+    private static final class Resource {
+        private final byte[] body;
+        private final String etag;
+
+        private Resource(byte[] body, String etag) {
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    private InstallerServer(HttpServer server) {
+        this.server = server;
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    static InstallerServer start() throws IOException {
+        return new InstallerServer(HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0));
+    }
+
+    /**
+     * Serves the body at the path with the ETag (null for none), replacing what was there.
+     */
+    void serve(String path, byte[] body, String etag) {
+        resources.put(path, new Resource(body, etag));
+    }
+
+    /**
+     * The next response with a body drops the connection after that many bytes.
+     */
+    void cutNextBodyAt(int bytes) {
+        cutNextBodyAt.set(bytes);
+    }
+
+    /**
+     * The next range request is answered with a 206 that starts one byte later than asked.
+     */
+    void misalignNextRange() {
+        misalignNextRange.set(true);
+    }
+
+    /**
+     * The next range request is answered with 416, as if the resource had shrunk.
+     */
+    void rejectNextRange() {
+        rejectNextRange.set(true);
+    }
+
+    String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    List<Request> requests() {
+        return requests;
+    }
+
+    /**
+     * How many responses with that status were sent.
+     */
+    long count(int status) {
+        return requests.stream().filter(request -> request.status == status).count();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            Resource resource = resources.get(path);
+            Headers request = exchange.getRequestHeaders();
+            int status = status(request, resource);
+            long start = 0;
+            if (status == 206) {
+                Matcher range = RANGE.matcher(request.getFirst("Range"));
+                start = range.matches() ? Long.parseLong(range.group(1)) : 0;
+                if (rejectNextRange.getAndSet(false) || start >= resource.body.length) {
+                    status = 416;
+                } else if (misalignNextRange.getAndSet(false)) {
+                    start++;
+                }
+            }
+            requests.add(new Request(path, request, status));
+
+            Headers response = exchange.getResponseHeaders();
+            if (resource != null) {
+                if (resource.etag != null) {
+                    response.set("ETag", resource.etag);
+                }
+                response.set("Last-Modified", LAST_MODIFIED);
+            }
+            if (status != 200 && status != 206) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            int length = resource.body.length - (int) start;
+            if (status == 206) {
+                response.set("Content-Range", "bytes " + start + "-" + (resource.body.length - 1) + "/" + resource.body.length);
+            }
+            exchange.sendResponseHeaders(status, length);
+            OutputStream out = exchange.getResponseBody();
+            int cut = cutNextBodyAt.getAndSet(-1);
+            if (cut >= 0 && cut < length) {
+                out.write(resource.body, (int) start, cut);
+                out.flush();
+                // Give the client time to read what was sent before the connection drops
+                Thread.sleep(200);
+                throw new IOException("Dropping the connection after " + cut + " of " + length + " bytes");
+            }
+            out.write(resource.body, (int) start, length);
+            out.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static int status(Headers headers, Resource resource) {
+        if (resource == null) {
+            return 404;
+        }
+        String ifNoneMatch = headers.getFirst("If-None-Match");
+        // If-None-Match uses the weak comparison, so W/"x" matches "x"
+        if (ifNoneMatch != null && resource.etag != null && opaque(ifNoneMatch).equals(opaque(resource.etag))) {
+            return 304;
+        }
+        if (headers.getFirst("Range") == null) {
+            return 200;
+        }
+        // If-Range needs a strong ETag or the Last-Modified date; otherwise the whole resource is sent
+        String ifRange = headers.getFirst("If-Range");
+        boolean sameResource = ifRange == null || ifRange.equals(LAST_MODIFIED)
+                || (resource.etag != null && !resource.etag.startsWith("W/") && ifRange.equals(resource.etag));
+        return sameResource ? 206 : 200;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
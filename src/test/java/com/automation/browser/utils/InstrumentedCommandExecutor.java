@@ -0,0 +1,96 @@
+package com.automation.browser.utils;
+
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.Response;
+
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Appium command executor that times every remote command into {@link CommandMetrics},
+ * and optionally appends each command and its response to a {@link TrafficLog}.
+ */
+public class InstrumentedCommandExecutor extends AppiumCommandExecutor {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final TrafficLog.Writer traffic;
+
+    public InstrumentedCommandExecutor(URL remoteAddress) {
+        this(remoteAddress, null);
+    }
+
+    /**
+     * @param traffic log to record the session's traffic to, or null to not record it
+     */
+    public InstrumentedCommandExecutor(URL remoteAddress, TrafficLog.Writer traffic) {
+        super(MobileCommand.commandRepository, remoteAddress);
+        this.traffic = traffic;
+    }
+
+    @Override
+    public Response execute(Command command) throws WebDriverException {
+        long start = System.nanoTime();
+        String outcome = "error";
+        Response response = null;
+        RuntimeException failure = null;
+        inFlight.incrementAndGet();
+        try {
+            response = send(command);
+            // Error statuses are only turned into exceptions later by RemoteWebDriver
+            Integer status = response.getStatus();
+            outcome = status == null || status == 0 ? "ok" : "error";
+            return response;
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            failure = e;
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            inFlight.decrementAndGet();
+            CommandMetrics.record(command.getName(), strategyOf(command), outcome, elapsed, TimeUnit.NANOSECONDS);
+            if (traffic != null) {
+                record(command, start, elapsed, response, failure);
+            }
+        }
+    }
+
+    /**
+     * Sends the command to the server. Replay answers it from a recording instead.
+     */
+    protected Response send(Command command) {
+        return super.execute(command);
+    }
+
+    /**
+     * Whether a command is currently waiting on the server.
+     */
+    public boolean isBusy() {
+        return inFlight.get() > 0;
+    }
+
+    private void record(Command command, long start, long elapsed, Response response, RuntimeException failure) {
+        String sessionId = command.getSessionId() == null ? "" : command.getSessionId().toString();
+        String parameters = TrafficLog.canonicalJson(command.getParameters());
+        if (response == null) {
+            traffic.append(start, elapsed, true, sessionId, command.getName(), parameters,
+                    failure.getClass().getName() + ": " + failure.getMessage());
+            return;
+        }
+        Map<String, Object> recorded = new LinkedHashMap<>();
+        recorded.put("sessionId", response.getSessionId());
+        recorded.put("status", response.getStatus());
+        recorded.put("state", response.getState());
+        recorded.put("value", response.getValue());
+        traffic.append(start, elapsed, false, sessionId, command.getName(), parameters, TrafficLog.canonicalJson(recorded));
+    }
+
+    private static String strategyOf(Command command) {
+        Object using = command.getParameters().get("using");
+        return using == null ? null : using.toString();
+    }
+}
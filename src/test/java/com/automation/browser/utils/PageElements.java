@@ -0,0 +1,246 @@
+package com.automation.browser.utils;
+
+import org.openqa.selenium.By;
+import com.automation.browser.config.TestConfig;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+import org.openqa.selenium.support.FindAll;
+import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.support.FindBys;
+import org.openqa.selenium.support.pagefactory.AbstractAnnotations;
+import org.openqa.selenium.support.pagefactory.Annotations;
+import org.openqa.selenium.support.pagefactory.DefaultElementLocator;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+import org.openqa.selenium.support.pagefactory.internal.LocatingElementListHandler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drop-in for {@code PageFactory.initElements(context, page)} that scans a page class once.
+ * The fields PageFactory would decorate, their parsed locators and setter handles are kept per class,
+ * so building a page only creates the locators and proxies. Element proxies describe themselves as
+ * "Proxy element for: &lt;locator&gt;" without a round trip; everything else behaves as with PageFactory.
+ * <p>
+ * With 'locator.cache' enabled, an element proxy keeps the element it found and reuses it until
+ * {@link #invalidate(SearchContext)} is called for its context (on window and page transitions).
+ * A cached element that turns out stale is found again and the call retried once.
+ */
+public final class PageElements {
+    private static final Class<?>[] ELEMENT_INTERFACES = {WebElement.class, WrapsElement.class, Locatable.class};
+    private static final Class<?>[] LIST_INTERFACES = {List.class};
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<ElementField[]> fields = new ClassValue<ElementField[]>() {
+        @Override
+        protected ElementField[] computeValue(Class<?> pageClass) {
+            return scan(pageClass);
+        }
+    };
+
+    /**
+     * Bumped by invalidate(); cached elements found under an older generation are found again.
+     */
+    private static final Map<SearchContext, AtomicLong> generations = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private PageElements() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * A decorated field: where to store the proxy, and the locator PageFactory would have built for it.
+     */
+    private static final class ElementField extends AbstractAnnotations {
+        private final String name;
+        private final MethodHandle setter;
+        private final boolean list;
+        private final By by;
+        private final boolean lookupCached;
+
+        private ElementField(Field field, MethodHandle setter, boolean list) {
+            Annotations annotations = new Annotations(field);
+            this.name = field.getDeclaringClass().getSimpleName() + "." + field.getName();
+            this.setter = setter;
+            this.list = list;
+            this.by = annotations.buildBy();
+            this.lookupCached = annotations.isLookupCached();
+        }
+
+        @Override
+        public By buildBy() {
+            return by;
+        }
+
+        @Override
+        public boolean isLookupCached() {
+            return lookupCached;
+        }
+    }
+
+    /**
+     * Selenium's LocatingElementHandler, except that toString() is answered from the locator. The stock
+     * handler finds the element first, which costs a round trip and yields a different description
+     * depending on whether the element exists, so logging a proxy would touch the driver.
+     */
+    private static final class ElementHandler implements InvocationHandler {
+        private final ElementLocator locator;
+
+        private ElementHandler(ElementLocator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("toString".equals(method.getName()) && method.getParameterCount() == 0) {
+                return "Proxy element for: " + locator;
+            }
+            if ("getWrappedElement".equals(method.getName())) {
+                // Waits poll through the wrapped element and handle staleness themselves, so they always see the live UI
+                return locator instanceof CachingLocator ? ((CachingLocator) locator).refresh() : locator.findElement();
+            }
+            WebElement element = locator.findElement();
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                if (!(e.getCause() instanceof StaleElementReferenceException) || !(locator instanceof CachingLocator)) {
+                    throw e.getCause();
+                }
+            }
+            // The UI changed without a transition being signalled
+            try {
+                return method.invoke(((CachingLocator) locator).refresh(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Keeps the element last found until its context's generation moves on.
+     */
+    private static final class CachingLocator implements ElementLocator {
+        private final ElementLocator delegate;
+        private final AtomicLong generation;
+        private WebElement cached;
+        private long cachedGeneration;
+
+        private CachingLocator(ElementLocator delegate, AtomicLong generation) {
+            this.delegate = delegate;
+            this.generation = generation;
+        }
+
+        @Override
+        public WebElement findElement() {
+            if (cached != null && cachedGeneration == generation.get()) {
+                return cached;
+            }
+            return refresh();
+        }
+
+        private WebElement refresh() {
+            long current = generation.get();
+            cached = null;
+            WebElement element = delegate.findElement();
+            cached = element;
+            cachedGeneration = current;
+            return element;
+        }
+
+        @Override
+        public List<WebElement> findElements() {
+            return delegate.findElements();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    public static void init(SearchContext context, Object page) {
+        ClassLoader loader = page.getClass().getClassLoader();
+        AtomicLong generation = TestConfig.isLocatorCacheEnabled() ? generation(context) : null;
+        for (ElementField field : fields.get(page.getClass())) {
+            ElementLocator locator = new DefaultElementLocator(context, field);
+            Object proxy = field.list
+                    ? Proxy.newProxyInstance(loader, LIST_INTERFACES, new LocatingElementListHandler(locator))
+                    : Proxy.newProxyInstance(loader, ELEMENT_INTERFACES,
+                            new ElementHandler(generation == null ? locator : new CachingLocator(locator, generation)));
+            try {
+                field.setter.invokeExact(page, proxy);
+            } catch (Throwable e) {
+                throw new RuntimeException("Failed to initialize " + field.name, e);
+            }
+        }
+    }
+
+    /**
+     * Drops the elements cached by the context's page objects; they are found again on next use.
+     */
+    public static void invalidate(SearchContext context) {
+        generation(context).incrementAndGet();
+    }
+
+    private static AtomicLong generation(SearchContext context) {
+        return generations.computeIfAbsent(context, key -> new AtomicLong());
+    }
+
+    /**
+     * Same selection as PageFactory's default decorator: every WebElement field, and List fields
+     * of WebElement that carry a locator annotation, in this class and its superclasses.
+     */
+    private static ElementField[] scan(Class<?> pageClass) {
+        List<ElementField> found = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> type = pageClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                boolean element = WebElement.class.isAssignableFrom(field.getType());
+                if (!element && !isElementList(field)) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    MethodHandle setter = lookup.unreflectSetter(field).asType(SETTER);
+                    found.add(new ElementField(field, setter, !element));
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException("Cannot access " + type.getSimpleName() + "." + field.getName(), e);
+                }
+            }
+        }
+        return found.toArray(new ElementField[0]);
+    }
+
+    private static boolean isElementList(Field field) {
+        if (!List.class.isAssignableFrom(field.getType())) {
+            return false;
+        }
+        Type generic = field.getGenericType();
+        if (!(generic instanceof ParameterizedType)
+                || ((ParameterizedType) generic).getActualTypeArguments()[0] != WebElement.class) {
+            return false;
+        }
+        return field.getAnnotation(FindBy.class) != null || field.getAnnotation(FindBys.class) != null
+                || field.getAnnotation(FindAll.class) != null;
+    }
+}
@@ -6,34 +6,37 @@ import com.automation.browser.pages.SetupPage;
 import io.appium.java_client.windows.WindowsDriver;
 import org.openqa.selenium.WebElement;
 
-public class PageGenerator {
-    private WindowsDriver<WebElement> driver;
-    private SetupPage setupPage;
-    private AdvancedSettingsPage advancedSettingsPage;
-    private BrowserPage browserPage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
-    public PageGenerator(WindowsDriver<WebElement> driver) {
-        this.driver = driver;
-    }
+/**
+ * Hands out page objects bound to the calling thread's leased driver.
+ * Pages are rebuilt automatically once the thread's lease points at a different session.
+ */
+public class PageGenerator {
+    private final ThreadLocal<WindowsDriver<WebElement>> boundDriver = new ThreadLocal<>();
+    private final ThreadLocal<Map<Class<?>, Object>> pages = ThreadLocal.withInitial(HashMap::new);
 
     public SetupPage SetupPage() {
-        if (setupPage == null) {
-            setupPage = new SetupPage(driver);
-        }
-        return setupPage;
+        return page(SetupPage.class, SetupPage::new);
     }
 
     public AdvancedSettingsPage AdvancedSettingsPage() {
-        if (advancedSettingsPage == null) {
-            advancedSettingsPage = new AdvancedSettingsPage(driver);
-        }
-        return advancedSettingsPage;
+        return page(AdvancedSettingsPage.class, AdvancedSettingsPage::new);
     }
 
     public BrowserPage BrowserPage() {
-        if (browserPage == null) {
-            browserPage = new BrowserPage(driver);
+        return page(BrowserPage.class, BrowserPage::new);
+    }
+
+    private <P> P page(Class<P> type, Function<WindowsDriver<WebElement>, P> constructor) {
+        WindowsDriver<WebElement> driver = DriverFactory.getDriver();
+        Map<Class<?>, Object> cache = pages.get();
+        if (boundDriver.get() != driver) {
+            cache.clear();
+            boundDriver.set(driver);
         }
-        return browserPage;
+        return type.cast(cache.computeIfAbsent(type, key -> constructor.apply(driver)));
     }
 }
@@ -0,0 +1,311 @@
+package com.automation.browser.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the VS_VERSIONINFO resource of a Windows PE file (exe/dll) without starting a process.
+ * Only the headers and the resource section are mapped; the path is resolved through the section
+ * table and the resource directory (RT_VERSION, first name, first language). Results are cached
+ * per path and invalidated when the file's size or modification time changes. Every offset read from
+ * the file is checked against what was mapped, so a truncated or corrupt file fails with
+ * IllegalArgumentException instead of reading out of bounds.
+ */
+public final class PeVersionInfo {
+    private static final int RT_VERSION = 16;
+    private static final int FIXED_FILE_INFO_SIGNATURE = 0xFEEF04BD;
+    private static final int HEADER_BYTES = 4096;
+    private static final int ANY = -1;
+    private static final long NOT_FOUND = -1;
+    private static final Map<Path, PeVersionInfo> cache = new ConcurrentHashMap<>();
+
+    private final long size;
+    private final long modified;
+    private final Map<String, String> strings;
+    private final String fixedFileVersion;
+    private final String fixedProductVersion;
+
+    private PeVersionInfo(long size, long modified, Map<String, String> strings,
+                          String fixedFileVersion, String fixedProductVersion) {
+        this.size = size;
+        this.modified = modified;
+        this.strings = Collections.unmodifiableMap(strings);
+        this.fixedFileVersion = fixedFileVersion;
+        this.fixedProductVersion = fixedProductVersion;
+    }
+
+    /**
+     * Returns the file's version information, or throws IllegalArgumentException if it is not a PE file,
+     * is truncated or malformed, or has no version resource.
+     */
+    public static PeVersionInfo read(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+            long modified = attributes.lastModifiedTime().toMillis();
+            PeVersionInfo cached = cache.get(key);
+            if (cached != null && cached.size == attributes.size() && cached.modified == modified) {
+                return cached;
+            }
+            PeVersionInfo info = parse(key, attributes.size(), modified);
+            cache.put(key, info);
+            return info;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read version resource of " + file, e);
+        }
+    }
+
+    /**
+     * ProductVersion from the string table, as Explorer and PowerShell's VersionInfo show it,
+     * falling back to the binary product version.
+     */
+    public String getProductVersion() {
+        String version = strings.get("ProductVersion");
+        return version != null && !version.isEmpty() ? version : fixedProductVersion;
+    }
+
+    public String getFileVersion() {
+        String version = strings.get("FileVersion");
+        return version != null && !version.isEmpty() ? version : fixedFileVersion;
+    }
+
+    /**
+     * All entries of the first string table, e.g. CompanyName or ProductName.
+     */
+    public Map<String, String> getStrings() {
+        return strings;
+    }
+
+    private static PeVersionInfo parse(Path file, long size, long modified) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = map(channel, 0, Math.min(size, HEADER_BYTES));
+            if (header.limit() < 64 || header.getShort(0) != 0x5A4D) {
+                throw new IllegalArgumentException(file + " is not a PE file (no MZ header)");
+            }
+            int pe = header.getInt(0x3C);
+            if (pe < 0 || pe + 24 > header.limit() || header.getInt(pe) != 0x00004550) {
+                throw new IllegalArgumentException(file + " is not a PE file (no PE signature)");
+            }
+            int sectionCount = header.getShort(pe + 6) & 0xFFFF;
+            int optionalHeaderSize = header.getShort(pe + 20) & 0xFFFF;
+            int optional = pe + 24;
+            if (optional + 2 > header.limit()) {
+                throw new IllegalArgumentException(file + " has a truncated optional header");
+            }
+            int magic = header.getShort(optional) & 0xFFFF;
+            // The data directories follow the fixed part of the optional header, which is longer for PE32+
+            int dataDirectories = optional + (magic == 0x20B ? 112 : 96);
+            if (dataDirectories + 3 * 8 > Math.min(optional + optionalHeaderSize, header.limit())) {
+                throw new IllegalArgumentException(file + " has no resource data directory");
+            }
+            int resourceRva = header.getInt(dataDirectories + 2 * 8);
+            if (resourceRva == 0) {
+                throw new IllegalArgumentException(file + " has no resources");
+            }
+
+            int sections = optional + optionalHeaderSize;
+            if (sections + sectionCount * 40 > header.limit()) {
+                throw new IllegalArgumentException(file + " has a truncated section table");
+            }
+            for (int i = 0; i < sectionCount; i++) {
+                int section = sections + i * 40;
+                int virtualSize = header.getInt(section + 8);
+                int virtualAddress = header.getInt(section + 12);
+                long rawSize = header.getInt(section + 16) & 0xFFFFFFFFL;
+                long rawPointer = header.getInt(section + 20) & 0xFFFFFFFFL;
+                long span = Math.max(virtualSize & 0xFFFFFFFFL, rawSize);
+                if (resourceRva >= virtualAddress && resourceRva < virtualAddress + span) {
+                    if (rawSize == 0 || rawPointer + rawSize > size) {
+                        throw new IllegalArgumentException(file + " is truncated: its resource section needs bytes "
+                                + rawPointer + ".." + (rawPointer + rawSize) + " of " + size);
+                    }
+                    ByteBuffer resources = map(channel, rawPointer, rawSize);
+                    return new ResourceReader(file, resources, virtualAddress).read(size, modified, resourceRva - virtualAddress);
+                }
+            }
+            throw new IllegalArgumentException(file + " has no section containing its resources");
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Walks the resource section, addressed by offsets relative to its start.
+     */
+    private static final class ResourceReader {
+        private final Path file;
+        private final ByteBuffer section;
+        private final int sectionRva;
+
+        private ResourceReader(Path file, ByteBuffer section, int sectionRva) {
+            this.file = file;
+            this.section = section;
+            this.sectionRva = sectionRva;
+        }
+
+        private PeVersionInfo read(long size, long modified, int root) {
+            // Type -> name -> language; the version resource normally has exactly one name and language
+            long byName = entry(root, RT_VERSION);
+            long byLanguage = isDirectory(byName) ? entry(offset(byName), ANY) : NOT_FOUND;
+            long data = isDirectory(byLanguage) ? entry(offset(byLanguage), ANY) : NOT_FOUND;
+            if (data == NOT_FOUND || isDirectory(data)) {
+                throw new IllegalArgumentException(file + " has no version resource");
+            }
+            long dataOffset = (i32(offset(data)) & 0xFFFFFFFFL) - sectionRva;
+            long dataSize = i32(offset(data) + 4) & 0xFFFFFFFFL;
+            if (dataOffset < 0 || dataOffset + dataSize > section.limit()) {
+                throw new IllegalArgumentException(file + " has a version resource outside its resource section");
+            }
+            return parseVersionInfo(size, modified, (int) dataOffset, (int) (dataOffset + dataSize));
+        }
+
+        /**
+         * OffsetToData of the directory's entry with the ID (or its first entry for ANY), or NOT_FOUND.
+         * The high bit of the result is set when it points at another directory.
+         */
+        private long entry(int directory, int id) {
+            int count = u16(directory + 12) + u16(directory + 14);
+            for (int i = 0; i < count; i++) {
+                int entry = directory + 16 + i * 8;
+                if (id == ANY || i32(entry) == id) {
+                    return i32(entry + 4) & 0xFFFFFFFFL;
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        private static boolean isDirectory(long offsetToData) {
+            return offsetToData != NOT_FOUND && (offsetToData & 0x80000000L) != 0;
+        }
+
+        private static int offset(long offsetToData) {
+            return (int) (offsetToData & 0x7FFFFFFFL);
+        }
+
+        private PeVersionInfo parseVersionInfo(long size, long modified, int start, int end) {
+            Block root = new Block(start);
+            if (!"VS_VERSION_INFO".equals(root.key)) {
+                throw new IllegalArgumentException(file + " has a malformed VS_VERSIONINFO block");
+            }
+            String fixedFile = null;
+            String fixedProduct = null;
+            if (root.valueLength >= 52 && i32(root.value) == FIXED_FILE_INFO_SIGNATURE) {
+                fixedFile = version(i32(root.value + 8), i32(root.value + 12));
+                fixedProduct = version(i32(root.value + 16), i32(root.value + 20));
+            }
+
+            Map<String, String> strings = new LinkedHashMap<>();
+            for (int child = root.children; child < Math.min(root.end, end); child = align(new Block(child).end)) {
+                Block block = new Block(child);
+                if (block.length == 0) {
+                    break;
+                }
+                if ("StringFileInfo".equals(block.key) && block.children < block.end) {
+                    // Only the first string table (language/code page) is read, as Windows does by default
+                    Block table = new Block(block.children);
+                    for (int entry = table.children; entry < table.end; entry = align(new Block(entry).end)) {
+                        Block string = new Block(entry);
+                        if (string.length == 0) {
+                            break;
+                        }
+                        strings.put(string.key, string.valueLength == 0 ? "" : utf16(string.value, string.end));
+                    }
+                }
+            }
+            return new PeVersionInfo(size, modified, strings, fixedFile, fixedProduct);
+        }
+
+        private int align(int offset) {
+            return (offset + 3) & ~3;
+        }
+
+        private int u16(int offset) {
+            return section.getShort(checked(offset, 2)) & 0xFFFF;
+        }
+
+        private int i32(int offset) {
+            return section.getInt(checked(offset, 4));
+        }
+
+        private int checked(int offset, int length) {
+            if (offset < 0 || offset > section.limit() - length) {
+                throw new IllegalArgumentException(file + " is malformed: resource offset " + offset
+                        + " is outside its " + section.limit() + " byte resource section");
+            }
+            return offset;
+        }
+
+        private String utf16(int offset, int limit) {
+            int end = offset;
+            while (end + 1 < limit && u16(end) != 0) {
+                end += 2;
+            }
+            byte[] bytes = new byte[end - offset];
+            ByteBuffer slice = section.duplicate();
+            slice.position(offset);
+            slice.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_16LE).trim();
+        }
+
+        private static String version(int ms, int ls) {
+            return (ms >>> 16) + "." + (ms & 0xFFFF) + "." + (ls >>> 16) + "." + (ls & 0xFFFF);
+        }
+
+        /**
+         * One node of the version resource tree: length, value length, type, key, then value and children.
+         */
+        private final class Block {
+            private final int length;
+            private final int valueLength;
+            private final String key;
+            private final int value;
+            private final int children;
+            private final int end;
+
+            private Block(int offset) {
+                length = u16(offset);
+                end = offset + length;
+                if (length == 0) {
+                    // Padding at the end of a parent; callers stop here
+                    valueLength = 0;
+                    key = "";
+                    value = end;
+                    children = end;
+                    return;
+                }
+                if (length < 6 || end > section.limit()) {
+                    throw new IllegalArgumentException(file + " has a malformed version block at offset " + offset);
+                }
+                valueLength = u16(offset + 2);
+                int type = u16(offset + 4);
+                int keyStart = offset + 6;
+                int keyEnd = keyStart;
+                while (keyEnd + 1 < end && u16(keyEnd) != 0) {
+                    keyEnd += 2;
+                }
+                if (keyEnd + 1 >= end) {
+                    throw new IllegalArgumentException(file + " has an unterminated version block key at offset " + offset);
+                }
+                key = utf16(keyStart, keyEnd + 2);
+                value = Math.min(align(keyEnd + 2), end);
+                // Text values count UTF-16 characters, binary values count bytes
+                int valueBytes = type == 1 ? valueLength * 2 : valueLength;
+                children = Math.min(align(value + valueBytes), end);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.automation.browser.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * The fixtures under src/test/resources/pe are JNA's jnidispatch.dll reduced to its headers and
+ * resource section, which is all PeVersionInfo maps.
+ */
+public class PeVersionInfoTest {
+
+    @DataProvider
+    public Object[][] fixtures() {
+        return new Object[][]{{"jnidispatch-x86.dll"}, {"jnidispatch-x86-64.dll"}};
+    }
+
+    @Test(dataProvider = "fixtures")
+    public void readsVersionResource(String fixture) throws Exception {
+        PeVersionInfo info = PeVersionInfo.read(fixture(fixture));
+
+        Assert.assertEquals(info.getFileVersion(), "6.1.6");
+        Assert.assertEquals(info.getProductVersion(), "5");
+        Assert.assertEquals(info.getStrings().get("CompanyName"), "Java(TM) Native Access (JNA)");
+        Assert.assertEquals(info.getStrings().get("OriginalFilename"), "jnidispatch.dll");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*not a PE file.*")
+    public void rejectsNonPeFile() throws Exception {
+        PeVersionInfo.read(fixture("not-a-pe.dll"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*truncated.*")
+    public void rejectsTruncatedFile() throws Exception {
+        PeVersionInfo.read(fixture("jnidispatch-x86-64-truncated.dll"));
+    }
+
+    @DataProvider
+    public Object[][] truncations() {
+        // Inside the DOS header, the section table, the resource section and its last byte
+        return new Object[][]{{0x40}, {0x180}, {0x200}, {0x500}, {0x7FF}};
+    }
+
+    @Test(dataProvider = "truncations", expectedExceptions = IllegalArgumentException.class)
+    public void rejectsFileCutAnywhere(int length) throws Exception {
+        byte[] bytes = Files.readAllBytes(fixture("jnidispatch-x86.dll"));
+        PeVersionInfo.read(temporaryCopy(Arrays.copyOf(bytes, length)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*unterminated.*")
+    public void rejectsUnterminatedBlockKey() throws Exception {
+        byte[] bytes = Files.readAllBytes(fixture("jnidispatch-x86.dll"));
+        int key = indexOf(bytes, "VS_VERSION_INFO".getBytes(StandardCharsets.UTF_16LE));
+        Assert.assertTrue(key > 0, "Fixture has no VS_VERSION_INFO key");
+        // No UTF-16 NUL anywhere after the key starts, so a key scan must stop at the block end
+        Arrays.fill(bytes, key, bytes.length, (byte) 'A');
+        PeVersionInfo.read(temporaryCopy(bytes));
+    }
+
+    private static Path fixture(String name) throws URISyntaxException {
+        URL resource = PeVersionInfoTest.class.getResource("/pe/" + name);
+        Assert.assertNotNull(resource, "Missing fixture " + name);
+        return Paths.get(resource.toURI());
+    }
+
+    private static Path temporaryCopy(byte[] bytes) throws IOException {
+        Path file = Files.createTempFile("pe-version-info", ".dll");
+        file.toFile().deleteOnExit();
+        return Files.write(file, bytes);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        for (int i = 0; i + part.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + part.length, part, 0, part.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
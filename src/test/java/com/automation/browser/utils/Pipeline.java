@@ -0,0 +1,282 @@
+package com.automation.browser.utils;
+
+import com.automation.browser.config.TestConfig;
+import io.qameta.allure.Allure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a flow as a graph of stages: each stage starts on its own thread as soon as the stages it
+ * depends on have finished, so independent work overlaps. When any stage fails, every stage that has
+ * not finished is cancelled (running ones are interrupted) and the abort hooks run, e.g. to kill a
+ * child process. Stage start and end times are kept for a report that includes the critical path,
+ * the chain of dependencies that determined the total duration. Stages see the configuration
+ * overrides of the thread that created the pipeline.
+ */
+public class Pipeline implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(Pipeline.class);
+
+    private final String name;
+    private final long startNanos = System.nanoTime();
+    private final List<Stage<?>> stages = Collections.synchronizedList(new ArrayList<>());
+    private final List<Runnable> abortHooks = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final CountDownLatch aborted = new CountDownLatch(1);
+    private final ExecutorService executor;
+    private final Map<String, String> overrides = TestConfig.captureOverrides();
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * One node of the graph. {@link #get()} is meant for stages that declared this one as a dependency.
+     */
+    public final class Stage<T> {
+        private final String stageName;
+        private final List<Stage<?>> dependencies;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile Thread runner;
+        private volatile long started;
+        private volatile long finished;
+
+        private Stage(String stageName, List<Stage<?>> dependencies) {
+            this.stageName = stageName;
+            this.dependencies = dependencies;
+        }
+
+        public T get() {
+            return future.join();
+        }
+
+        public String getName() {
+            return stageName;
+        }
+
+        private long startMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(started - startNanos);
+        }
+
+        private long endMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(finished - startNanos);
+        }
+
+        private String status() {
+            if (!future.isDone()) {
+                return "not finished";
+            }
+            if (future.isCancelled()) {
+                return started == 0 ? "cancelled" : "interrupted";
+            }
+            return future.isCompletedExceptionally() ? "failed" : "ok";
+        }
+    }
+
+    public Pipeline(String name) {
+        this.name = name;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds a stage that runs once all its dependencies have completed successfully.
+     */
+    public <T> Stage<T> stage(String stageName, Work<T> work, Stage<?>... dependsOn) {
+        Stage<T> stage = new Stage<>(stageName, Arrays.asList(dependsOn));
+        stages.add(stage);
+        CompletableFuture<?>[] dependencies = Arrays.stream(dependsOn).map(dependency -> dependency.future).toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(dependencies).whenComplete((ignored, dependencyFailure) -> {
+            if (dependencyFailure != null || failure.get() != null) {
+                stage.future.cancel(false);
+                return;
+            }
+            executor.execute(() -> run(stage, work));
+        });
+        return stage;
+    }
+
+    /**
+     * Registers cleanup to run if the pipeline is aborted; runs it right away if it already was.
+     */
+    public void onAbort(Runnable hook) {
+        synchronized (abortHooks) {
+            if (failure.get() == null) {
+                abortHooks.add(hook);
+                return;
+            }
+        }
+        hook.run();
+    }
+
+    /**
+     * Waits for the stage and returns its value. Rethrows the failure that aborted the pipeline,
+     * and aborts it if the timeout expires first.
+     */
+    public <T> T await(Stage<T> result, long timeout, TimeUnit unit) throws Exception {
+        try {
+            return result.future.get(timeout, unit);
+        } catch (java.util.concurrent.TimeoutException e) {
+            abort(new org.openqa.selenium.TimeoutException(name + " did not finish within " + unit.toSeconds(timeout) + " s"));
+        } catch (ExecutionException | CancellationException e) {
+            // The root cause is whatever aborted the pipeline, not the cancellation it caused downstream
+        } catch (InterruptedException e) {
+            abort(e);
+            throw e;
+        }
+        // Cleanup such as killing child processes has finished before the caller sees the failure
+        aborted.await();
+        Throwable cause = failure.get();
+        if (cause instanceof Exception) {
+            throw (Exception) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IllegalStateException(name + " failed without a recorded cause");
+    }
+
+    /**
+     * Stage timings in start order, followed by the critical path.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder(name).append('\n');
+        List<Stage<?>> snapshot;
+        synchronized (stages) {
+            snapshot = new ArrayList<>(stages);
+        }
+        snapshot.sort((a, b) -> Long.compare(a.started == 0 ? Long.MAX_VALUE : a.started, b.started == 0 ? Long.MAX_VALUE : b.started));
+        for (Stage<?> stage : snapshot) {
+            if (stage.started == 0) {
+                report.append(String.format("  %-32s %s%n", stage.stageName, stage.status()));
+            } else {
+                report.append(String.format("  %-32s start %6d ms  took %6d ms  %s%n", stage.stageName,
+                        stage.startMillis(), stage.endMillis() - stage.startMillis(), stage.status()));
+            }
+        }
+
+        List<String> path = criticalPath(snapshot);
+        if (!path.isEmpty()) {
+            report.append("Critical path: ").append(String.join(" -> ", path)).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Logs the report and attaches it to the running Allure test.
+     */
+    public void attachReport() {
+        String report = report();
+        logger.info(report);
+        Allure.addAttachment(name + " timeline", "text/plain", report, ".txt");
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> void run(Stage<T> stage, Work<T> work) {
+        if (failure.get() != null) {
+            stage.future.cancel(false);
+            return;
+        }
+        stage.runner = Thread.currentThread();
+        stage.started = System.nanoTime();
+        // Worker threads are pooled, so the overrides are applied per stage and cleared after it
+        TestConfig.applyOverrides(overrides);
+        try {
+            T value = work.run();
+            stage.finished = System.nanoTime();
+            stage.future.complete(value);
+        } catch (Throwable t) {
+            stage.finished = System.nanoTime();
+            if (failure.get() == null) {
+                logger.warn("Stage '{}' of {} failed: {}", stage.stageName, name, t.toString());
+            }
+            stage.future.completeExceptionally(t);
+            abort(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+        } finally {
+            TestConfig.clearOverrides();
+            stage.runner = null;
+            // Do not let a cancellation interrupt leak into the next stage run on this thread
+            Thread.interrupted();
+        }
+    }
+
+    private void abort(Throwable cause) {
+        if (!failure.compareAndSet(null, cause)) {
+            return;
+        }
+        List<Stage<?>> snapshot;
+        synchronized (stages) {
+            snapshot = new ArrayList<>(stages);
+        }
+        for (Stage<?> stage : snapshot) {
+            if (!stage.future.isDone()) {
+                stage.future.cancel(false);
+                Thread runner = stage.runner;
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+        List<Runnable> hooks;
+        synchronized (abortHooks) {
+            hooks = new ArrayList<>(abortHooks);
+            abortHooks.clear();
+        }
+        for (Runnable hook : hooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                logger.warn("Abort hook of {} failed: {}", name, e.getMessage());
+            }
+        }
+        aborted.countDown();
+    }
+
+    /**
+     * From the stage that finished last, repeatedly step to the dependency that finished last.
+     */
+    private static List<String> criticalPath(List<Stage<?>> stages) {
+        Stage<?> current = null;
+        for (Stage<?> stage : stages) {
+            if (stage.finished != 0 && (current == null || stage.finished > current.finished)) {
+                current = stage;
+            }
+        }
+        List<String> path = new ArrayList<>();
+        while (current != null) {
+            path.add(0, current.stageName + " (" + (current.endMillis() - current.startMillis()) + " ms)");
+            Stage<?> latest = null;
+            for (Stage<?> dependency : current.dependencies) {
+                if (dependency.finished != 0 && (latest == null || dependency.finished > latest.finished)) {
+                    latest = dependency;
+                }
+            }
+            current = latest;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,151 @@
+package com.automation.browser.utils;
+
+import com.automation.browser.config.TestConfig;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PipelineTest {
+    private static final String PAGE = "http://127.0.0.1/overridden/";
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        TestConfig.clearOverrides();
+    }
+
+    @Test
+    public void stagesSeeTheCreatingThreadsOverrides() throws Exception {
+        TestConfig.override("installer.page.url", PAGE);
+        try (Pipeline pipeline = new Pipeline("overrides")) {
+            Pipeline.Stage<String> first = pipeline.stage("first", TestConfig::getInstallerPageUrl);
+            Pipeline.Stage<String> second = pipeline.stage("second", () -> first.get() + " " + TestConfig.getInstallerPageUrl(), first);
+
+            Assert.assertEquals(pipeline.await(second, 10, TimeUnit.SECONDS), PAGE + " " + PAGE);
+        }
+    }
+
+    @Test
+    public void overridesDoNotOutliveTheirStage() throws Exception {
+        String shared = TestConfig.getInstallerPageUrl();
+        try (Pipeline withOverride = createWithOverride();
+             Pipeline without = new Pipeline("without overrides")) {
+            Assert.assertEquals(withOverride.await(withOverride.stage("overridden", TestConfig::getInstallerPageUrl), 10, TimeUnit.SECONDS), PAGE);
+            // Workers of a pipeline created without overrides must not see another test's values
+            Assert.assertEquals(without.await(without.stage("plain", TestConfig::getInstallerPageUrl), 10, TimeUnit.SECONDS), shared);
+        }
+    }
+
+    @Test
+    public void failingStageCancelsDownstreamStages() throws Exception {
+        AtomicBoolean downstreamRan = new AtomicBoolean();
+        try (Pipeline pipeline = new Pipeline("failing")) {
+            Pipeline.Stage<String> download = pipeline.stage("download", () -> {
+                throw new IOException("connection reset");
+            });
+            Pipeline.Stage<String> install = pipeline.stage("install", () -> {
+                downstreamRan.set(true);
+                return download.get();
+            }, download);
+            Pipeline.Stage<String> launch = pipeline.stage("launch", install::get, install);
+
+            IOException failure = Assert.expectThrows(IOException.class, () -> pipeline.await(launch, 10, TimeUnit.SECONDS));
+
+            Assert.assertEquals(failure.getMessage(), "connection reset", "The root cause should be rethrown, not the cancellation");
+            Assert.assertFalse(downstreamRan.get(), "Stages depending on a failed one must not run");
+            String report = pipeline.report();
+            Assert.assertTrue(report.matches("(?s).*download +start .* failed.*"), report);
+            Assert.assertTrue(report.matches("(?s).*install +cancelled.*"), report);
+            Assert.assertTrue(report.matches("(?s).*launch +cancelled.*"), report);
+        }
+    }
+
+    @Test
+    public void failureInterruptsRunningStages() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try (Pipeline pipeline = new Pipeline("interrupting")) {
+            pipeline.stage("wait for window", () -> {
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return null;
+            });
+            Pipeline.Stage<Object> installer = pipeline.stage("run installer", () -> {
+                Thread.sleep(100);
+                throw new IllegalStateException("Installer exited with code 3");
+            });
+
+            long start = System.nanoTime();
+            Assert.expectThrows(IllegalStateException.class, () -> pipeline.await(installer, 10, TimeUnit.SECONDS));
+
+            Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS), "The running stage should have been interrupted");
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5, "Waited for the running stage");
+            String report = pipeline.report();
+            Assert.assertTrue(report.matches("(?s).*wait for window +start .* interrupted.*"), report);
+        }
+    }
+
+    @Test
+    public void abortHooksRunBeforeAwaitRethrows() throws Exception {
+        AtomicBoolean killed = new AtomicBoolean();
+        try (Pipeline pipeline = new Pipeline("aborting")) {
+            pipeline.onAbort(() -> {
+                try {
+                    // A slow cleanup, like waiting for a killed process to exit
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                killed.set(true);
+            });
+            Pipeline.Stage<Object> failing = pipeline.stage("failing", () -> {
+                throw new IOException("disk full");
+            });
+
+            Assert.expectThrows(IOException.class, () -> pipeline.await(failing, 10, TimeUnit.SECONDS));
+
+            Assert.assertTrue(killed.get(), "await() returned before the abort hook had finished");
+            AtomicBoolean late = new AtomicBoolean();
+            pipeline.onAbort(() -> late.set(true));
+            Assert.assertTrue(late.get(), "A hook registered after the abort should run right away");
+        }
+    }
+
+    @Test
+    public void criticalPathFollowsTheDependencyThatFinishedLast() throws Exception {
+        try (Pipeline pipeline = new Pipeline("install")) {
+            Pipeline.Stage<String> download = pipeline.stage("download", () -> sleep(400, "installer"));
+            Pipeline.Stage<String> cleanup = pipeline.stage("cleanup", () -> sleep(50, "clean"));
+            Pipeline.Stage<String> install = pipeline.stage("install", () -> sleep(100, download.get() + " " + cleanup.get()),
+                    download, cleanup);
+            // Finishes early and is not a dependency of the last stage, so it is off the path
+            pipeline.stage("warm up", () -> sleep(50, "warm"));
+
+            Assert.assertEquals(pipeline.await(install, 10, TimeUnit.SECONDS), "installer clean");
+
+            String report = pipeline.report();
+            Assert.assertTrue(report.matches("(?s).*\\nCritical path: download \\(\\d+ ms\\) -> install \\(\\d+ ms\\)\\n"), report);
+        }
+    }
+
+    private static String sleep(long millis, String value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+
+    private static Pipeline createWithOverride() {
+        TestConfig.override("installer.page.url", PAGE);
+        try {
+            return new Pipeline("with overrides");
+        } finally {
+            TestConfig.clearOverrides();
+        }
+    }
+}
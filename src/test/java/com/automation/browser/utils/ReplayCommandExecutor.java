@@ -0,0 +1,189 @@
+package com.automation.browser.utils;
+
+import com.automation.browser.config.TestConfig;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command executor that answers from a {@link TrafficLog} recording instead of a WinAppDriver server,
+ * so a suite can be re-run without Windows against exactly the responses a real run received.
+ * Timings still go to {@link CommandMetrics}, which makes replays comparable to each other.
+ */
+public class ReplayCommandExecutor extends InstrumentedCommandExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayCommandExecutor.class);
+    private final Script script;
+
+    public ReplayCommandExecutor(URL remoteAddress, Script script) {
+        super(remoteAddress);
+        this.script = script;
+    }
+
+    @Override
+    protected Response send(Command command) {
+        return script.answer(command);
+    }
+
+    /**
+     * The recorded responses, shared by every session of a replay. Commands are matched on session,
+     * name and parameters; repeats of the same command get the recorded responses in their original
+     * order, and once those run out the last one again, so a wait that polls longer than the
+     * recorded run sees the state it ended in. New sessions are handed out in recorded order
+     * regardless of their capabilities, which hold machine-specific paths.
+     */
+    public static final class Script {
+        private static final Json JSON = new Json();
+
+        private final Path file;
+        private final boolean timed;
+        private final Map<String, Deque<TrafficLog.Exchange>> pending = new HashMap<>();
+        private final Map<String, TrafficLog.Exchange> last = new HashMap<>();
+        private final AtomicInteger served = new AtomicInteger();
+        private final AtomicInteger repeated = new AtomicInteger();
+        private final AtomicInteger unmatched = new AtomicInteger();
+
+        private Script(Path file, List<TrafficLog.Exchange> exchanges, boolean timed) {
+            this.file = file;
+            this.timed = timed;
+            for (TrafficLog.Exchange exchange : exchanges) {
+                pending.computeIfAbsent(key(exchange.getSessionId(), exchange.getCommand(), exchange.getParameters()),
+                        k -> new ArrayDeque<>()).add(exchange);
+            }
+        }
+
+        /**
+         * @param timed whether each response is held back for its recorded latency
+         */
+        public static Script load(Path file, boolean timed) {
+            List<TrafficLog.Exchange> exchanges = TrafficLog.read(file);
+            logger.info("Replaying {} recorded WinAppDriver commands from {}", exchanges.size(), file);
+            return new Script(file, exchanges, timed);
+        }
+
+        public Response answer(Command command) {
+            String sessionId = command.getSessionId() == null ? "" : command.getSessionId().toString();
+            String key = key(sessionId, command.getName(), TrafficLog.canonicalJson(command.getParameters()));
+            TrafficLog.Exchange exchange = next(key);
+            if (exchange == null) {
+                unmatched.incrementAndGet();
+                throw new WebDriverException("No recorded response in " + file + " for " + key);
+            }
+            if (timed) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(exchange.getDurationNanos());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WebDriverException("Interrupted while replaying " + command.getName(), e);
+                }
+            }
+            if (exchange.isFailed()) {
+                throw toException(exchange.getResult());
+            }
+            return toResponse(exchange.getResult());
+        }
+
+        /**
+         * Logs how many commands were answered, how many repeated a response and how many had none.
+         */
+        public void logSummary() {
+            int left = 0;
+            synchronized (this) {
+                for (Deque<TrafficLog.Exchange> queue : pending.values()) {
+                    left += queue.size();
+                }
+            }
+            logger.info("Replay of {}: {} commands answered ({} repeated a recorded response), {} unmatched, {} recorded responses unused",
+                    file, served.get(), repeated.get(), unmatched.get(), left);
+        }
+
+        private synchronized TrafficLog.Exchange next(String key) {
+            Deque<TrafficLog.Exchange> queue = pending.get(key);
+            TrafficLog.Exchange exchange = queue == null ? null : queue.poll();
+            if (exchange != null) {
+                last.put(key, exchange);
+            } else {
+                exchange = last.get(key);
+                if (exchange == null) {
+                    return null;
+                }
+                repeated.incrementAndGet();
+            }
+            served.incrementAndGet();
+            return exchange;
+        }
+
+        private static String key(String sessionId, String command, String parameters) {
+            if (DriverCommand.NEW_SESSION.equals(command)) {
+                return command;
+            }
+            return sessionId + " " + command + " " + parameters;
+        }
+
+        /**
+         * Recreates the recorded exception with its original type, since callers branch on it:
+         * actions fall back to the legacy endpoints on UnsupportedCommandException, and endpoint
+         * selection skips hosts that throw UnreachableBrowserException.
+         */
+        private static RuntimeException toException(String recorded) {
+            int separator = recorded.indexOf(": ");
+            String type = separator < 0 ? recorded : recorded.substring(0, separator);
+            String message = separator < 0 ? "" : recorded.substring(separator + 2);
+            try {
+                Class<?> exceptionClass = Class.forName(type);
+                if (RuntimeException.class.isAssignableFrom(exceptionClass)) {
+                    return (RuntimeException) exceptionClass.getConstructor(String.class).newInstance(message);
+                }
+            } catch (ReflectiveOperationException e) {
+                logger.debug("Cannot recreate {}, replaying it as a WebDriverException", type);
+            }
+            return new WebDriverException(recorded);
+        }
+
+        private static Response toResponse(String json) {
+            Map<String, Object> recorded = JSON.toType(json, Json.MAP_TYPE);
+            Response response = new Response();
+            response.setSessionId((String) recorded.get("sessionId"));
+            Object status = recorded.get("status");
+            response.setStatus(status == null ? null : ((Number) status).intValue());
+            response.setState((String) recorded.get("state"));
+            response.setValue(recorded.get("value"));
+            return response;
+        }
+    }
+
+    /**
+     * Points the configuration at a placeholder Shift executable, so checks for an installed
+     * Shift pass on a machine that never had it.
+     */
+    public static void prepareSuite() {
+        Path executable = Paths.get("target", "replay-shift", "shift.exe").toAbsolutePath();
+        try {
+            Files.createDirectories(executable.getParent());
+            if (!Files.exists(executable)) {
+                Files.createFile(executable);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create placeholder " + executable, e);
+        }
+        TestConfig.setProperty("browser.path", executable.toString());
+        TestConfig.setProperty("shift.executable", executable.toString());
+    }
+}
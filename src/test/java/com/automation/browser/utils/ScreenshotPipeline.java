@@ -0,0 +1,221 @@
+package com.automation.browser.utils;
+
+import com.automation.browser.config.TestConfig;
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.util.PropertiesUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes screenshots off the test thread. The test thread only grabs the PNG bytes and, when the
+ * screenshot goes to the report, reserves its Allure attachment so it lands on the right test and step;
+ * re-compression, the disk write and the attachment content are handled by a small worker pool.
+ * All screenshots of one thread go to the same worker, so a stream's frames are deduplicated and
+ * delta-encoded in capture order. Each worker's queue is bounded: when it is full the submitting
+ * thread waits, which slows capture down instead of letting pending screenshots pile up in memory.
+ * With screenshot.dedupe enabled frames go through {@link ScreenshotStore}, and a report attachment
+ * that repeats the previous frame is hard-linked to the earlier attachment instead of copied.
+ */
+public class ScreenshotPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ScreenshotPipeline.class);
+
+    private static final AtomicInteger pending = new AtomicInteger();
+    private static final Object drained = new Object();
+    private static final Map<Path, String> attachedSources = new ConcurrentHashMap<>();
+    private static ThreadPoolExecutor[] workers;
+
+    private ScreenshotPipeline() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Queues the PNG to be written to the destination and, if attachmentName is not null,
+     * attached to the currently running Allure test or step under that name.
+     * The future completes with the file that holds the frame once it is written (see
+     * {@link ScreenshotStore#store}: with dedupe it may be a delta or an earlier identical frame),
+     * or with null if writing failed.
+     */
+    public static CompletableFuture<Path> submit(byte[] png, Path destination, String attachmentName) {
+        // Reserve the attachment now: Allure binds it to whatever test/step is current on the calling thread
+        String source = null;
+        if (attachmentName != null) {
+            source = Allure.getLifecycle().prepareAttachment(attachmentName, "image/png", ".png");
+        }
+        String attachmentSource = source;
+        String stream = Thread.currentThread().getName();
+        CompletableFuture<Path> stored = new CompletableFuture<>();
+        pending.incrementAndGet();
+        try {
+            worker(stream).execute(() -> {
+                try {
+                    stored.complete(write(stream, png, destination, attachmentSource));
+                } finally {
+                    done();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            done();
+            logger.error("Screenshot {} was not queued: {}", destination, e.getMessage());
+            stored.complete(null);
+        }
+        return stored;
+    }
+
+    private static void done() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Blocks until every queued screenshot has been written, or the timeout expires.
+     */
+    public static boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (drained) {
+            while (pending.get() > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    logger.warn("{} screenshot(s) still being written after flush timeout", pending.get());
+                    return false;
+                }
+                try {
+                    drained.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The single-threaded worker that owns the stream; the queue capacity is split between the workers.
+     */
+    private static synchronized ThreadPoolExecutor worker(String stream) {
+        if (workers == null) {
+            int count = Math.max(1, TestConfig.getScreenshotWorkers());
+            int capacity = Math.max(1, (TestConfig.getScreenshotQueueCapacity() + count - 1) / count);
+            workers = new ThreadPoolExecutor[count];
+            for (int i = 0; i < count; i++) {
+                String name = "screenshot-writer-" + (i + 1);
+                workers[i] = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(capacity),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, name);
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        ScreenshotPipeline::waitForRoom);
+                workers[i].allowCoreThreadTimeOut(true);
+            }
+        }
+        return workers[Math.floorMod(stream.hashCode(), workers.length)];
+    }
+
+    /**
+     * Full queue: block the submitting thread. Running the task on the caller would overtake the
+     * stream's frames that are still queued.
+     */
+    private static void waitForRoom(Runnable task, ThreadPoolExecutor worker) {
+        try {
+            worker.getQueue().put(task);
+            // The worker may have timed out in the meantime
+            worker.prestartCoreThread();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the screenshot queue", e);
+        }
+    }
+
+    private static Path write(String stream, byte[] png, Path destination, String attachmentSource) {
+        byte[] content = null;
+        boolean linked = false;
+        Path file = null;
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+            if (image != null && TestConfig.isScreenshotDedupeEnabled()) {
+                ScreenshotStore.Stored stored = ScreenshotStore.store(stream, image, destination, png.length);
+                if (attachmentSource != null && stored.getKind() == ScreenshotStore.Kind.DUPLICATE) {
+                    linked = linkAttachment(attachmentSource, attachedSources.get(stored.getFile()));
+                } else if (attachmentSource != null) {
+                    attachedSources.put(stored.getFile(), attachmentSource);
+                }
+                content = stored.getEncoded();
+                file = stored.getFile();
+            } else {
+                content = smallest(png, image);
+                Files.createDirectories(destination.toAbsolutePath().getParent());
+                Files.write(destination, content);
+                logger.info("Screenshot saved: {} ({} KB)", destination, content.length / 1024);
+                file = destination;
+            }
+            if (attachmentSource != null && content == null) {
+                // Deltas only make sense next to their keyframe, so the report still gets the full frame
+                content = smallest(png, image);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to save screenshot {}", destination, e);
+        } finally {
+            if (attachmentSource != null && !linked) {
+                // Always complete a prepared attachment, otherwise the report references a missing file
+                AllureLifecycle lifecycle = Allure.getLifecycle();
+                lifecycle.writeAttachment(attachmentSource, new ByteArrayInputStream(content == null ? png : content));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Points a prepared attachment at an already written one with a hard link instead of a second copy.
+     */
+    private static boolean linkAttachment(String source, String existingSource) {
+        if (existingSource == null) {
+            return false;
+        }
+        Path resultsDir = Paths.get(PropertiesUtils.loadAllureProperties()
+                .getProperty("allure.results.directory", "allure-results"));
+        try {
+            Files.createLink(resultsDir.resolve(source), resultsDir.resolve(existingSource));
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debug("Could not link attachment {} to {}, writing a copy: {}", source, existingSource, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Re-encodes the PNG at maximum deflate compression and keeps whichever encoding is smaller.
+     */
+    private static byte[] smallest(byte[] png, BufferedImage image) {
+        if (image == null) {
+            return png;
+        }
+        try {
+            byte[] encoded = ScreenshotStore.encode(image);
+            return encoded.length < png.length ? encoded : png;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Keeping screenshot as captured, re-compression failed: {}", e.getMessage());
+            return png;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.automation.browser.utils;
+
+import com.automation.browser.config.TestConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores screenshots as a sequence of keyframes and deltas per capture stream (one stream per test thread).
+ * Each frame gets a 64-bit difference hash; a frame whose hash is close to the previous frame's and whose
+ * pixels are identical is not written at all, and a frame close to the stream's keyframe is written as a
+ * delta PNG in which only the changed tiles are opaque. Everything else becomes a new keyframe.
+ * Every frame is recorded in the directory's index so {@link #restore(Path, String)} can rebuild it.
+ */
+public class ScreenshotStore {
+    private static final Logger logger = LoggerFactory.getLogger(ScreenshotStore.class);
+    private static final String INDEX_FILE = "index.tsv";
+    private static final int TILE = 16;
+
+    private static final Map<String, Stream> streams = new ConcurrentHashMap<>();
+    private static final AtomicLong capturedBytes = new AtomicLong();
+    private static final AtomicLong storedBytes = new AtomicLong();
+    private static final Map<Kind, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    public enum Kind { KEYFRAME, DELTA, DUPLICATE }
+
+    /**
+     * What was stored for a frame: the file written (or, for a duplicate, the file it repeats)
+     * and, for keyframes, the encoded bytes so they need not be encoded again.
+     */
+    public static final class Stored {
+        private final Kind kind;
+        private final Path file;
+        private final byte[] encoded;
+
+        private Stored(Kind kind, Path file, byte[] encoded) {
+            this.kind = kind;
+            this.file = file;
+            this.encoded = encoded;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public byte[] getEncoded() {
+            return encoded;
+        }
+    }
+
+    private static final class Frame {
+        private final Path file;
+        private final long hash;
+        private final int width;
+        private final int height;
+        private final int[] pixels;
+
+        private Frame(Path file, long hash, int width, int height, int[] pixels) {
+            this.file = file;
+            this.hash = hash;
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+
+        private boolean sameSize(Frame other) {
+            return other != null && width == other.width && height == other.height;
+        }
+    }
+
+    private static final class Stream {
+        private Frame keyframe;
+        private Frame previous;
+    }
+
+    private ScreenshotStore() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Stores the frame as a keyframe, a delta against the stream's keyframe, or not at all if it repeats
+     * the previous frame. capturedSize is the size of the PNG as captured, used for the savings summary.
+     */
+    public static Stored store(String streamKey, BufferedImage image, Path destination, long capturedSize) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        Frame frame = new Frame(destination, differenceHash(pixels, width, height), width, height, pixels);
+        int maxDistance = TestConfig.getScreenshotDeltaMaxDistance();
+
+        Stream stream = streams.computeIfAbsent(streamKey, k -> new Stream());
+        Stored stored;
+        synchronized (stream) {
+            Frame previous = stream.previous;
+            Frame keyframe = stream.keyframe;
+            if (frame.sameSize(previous) && Long.bitCount(frame.hash ^ previous.hash) <= maxDistance
+                    && Arrays.equals(frame.pixels, previous.pixels)) {
+                // Keep pointing at the frame that was actually written, not at an earlier duplicate
+                stored = new Stored(Kind.DUPLICATE, previous.file, null);
+                index(destination, Kind.DUPLICATE, previous.file, frame.hash);
+                frame = previous;
+            } else if (frame.sameSize(keyframe) && Long.bitCount(frame.hash ^ keyframe.hash) <= maxDistance
+                    && (stored = writeDelta(frame, keyframe)) != null) {
+                index(stored.file, Kind.DELTA, keyframe.file, frame.hash);
+                frame = new Frame(stored.file, frame.hash, width, height, pixels);
+            } else {
+                byte[] encoded = encode(image);
+                write(destination, encoded);
+                stored = new Stored(Kind.KEYFRAME, destination, encoded);
+                stream.keyframe = frame;
+                index(destination, Kind.KEYFRAME, null, frame.hash);
+            }
+            stream.previous = frame;
+        }
+
+        capturedBytes.addAndGet(capturedSize);
+        counts.computeIfAbsent(stored.kind, k -> new AtomicLong()).incrementAndGet();
+        logger.info("Screenshot stored as {}: {}", stored.kind, stored.file);
+        return stored;
+    }
+
+    /**
+     * Rebuilds a full frame from a file listed in the directory's index, following deltas and duplicates.
+     */
+    public static BufferedImage restore(Path directory, String fileName) throws IOException {
+        Map<String, String[]> entries = new HashMap<>();
+        for (String line : Files.readAllLines(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            entries.put(fields[0], fields);
+        }
+        String[] entry = entries.get(fileName);
+        if (entry == null) {
+            throw new IOException(fileName + " is not in the screenshot index of " + directory);
+        }
+        Kind kind = Kind.valueOf(entry[1]);
+        if (kind == Kind.DUPLICATE) {
+            return restore(directory, entry[2]);
+        }
+        BufferedImage image = ImageIO.read(directory.resolve(fileName).toFile());
+        if (kind == Kind.KEYFRAME) {
+            return image;
+        }
+        BufferedImage base = restore(directory, entry[2]);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int argb = image.getRGB(x, y);
+                // Captures are opaque, so any transparent pixel in a delta means "same as the keyframe"
+                if ((argb >>> 24) != 0) {
+                    base.setRGB(x, y, argb);
+                }
+            }
+        }
+        return base;
+    }
+
+    public static void logSummary() {
+        long captured = capturedBytes.get();
+        if (captured == 0) {
+            return;
+        }
+        logger.info("Screenshots: {} keyframes, {} deltas, {} duplicates; {} KB captured, {} KB stored",
+                count(Kind.KEYFRAME), count(Kind.DELTA), count(Kind.DUPLICATE),
+                captured / 1024, storedBytes.get() / 1024);
+    }
+
+    /**
+     * PNG at maximum deflate compression.
+     */
+    static byte[] encode(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+        if (!writers.hasNext()) {
+            throw new IOException("No PNG writer available");
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(0.0f);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the frame's changed tiles over a transparent canvas, or returns null if so much changed
+     * that a new keyframe is the better choice.
+     */
+    private static Stored writeDelta(Frame frame, Frame keyframe) throws IOException {
+        int width = frame.width;
+        int height = frame.height;
+        int tilesX = (width + TILE - 1) / TILE;
+        int tilesY = (height + TILE - 1) / TILE;
+        int maxChanged = (int) (tilesX * tilesY * TestConfig.getScreenshotDeltaMaxChangedFraction());
+
+        BufferedImage delta = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int changed = 0;
+        for (int tileY = 0; tileY < tilesY; tileY++) {
+            for (int tileX = 0; tileX < tilesX; tileX++) {
+                int x = tileX * TILE;
+                int y = tileY * TILE;
+                int w = Math.min(TILE, width - x);
+                int h = Math.min(TILE, height - y);
+                if (tileEquals(frame.pixels, keyframe.pixels, width, x, y, w, h)) {
+                    continue;
+                }
+                if (++changed > maxChanged) {
+                    return null;
+                }
+                for (int row = y; row < y + h; row++) {
+                    for (int col = x; col < x + w; col++) {
+                        delta.setRGB(col, row, 0xFF000000 | frame.pixels[row * width + col]);
+                    }
+                }
+            }
+        }
+
+        Path file = frame.file.resolveSibling(frame.file.getFileName().toString().replaceFirst("\\.png$", "") + ".delta.png");
+        write(file, encode(delta));
+        return new Stored(Kind.DELTA, file, null);
+    }
+
+    private static boolean tileEquals(int[] a, int[] b, int width, int x, int y, int w, int h) {
+        for (int row = y; row < y + h; row++) {
+            int from = row * width + x;
+            if (!Arrays.equals(a, from, from + w, b, from, from + w)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * dHash: shrink to 9x8 grey cells and set one bit per cell that is brighter than its right neighbour.
+     * Robust to small rendering noise, so unrelated frames land far apart and near-identical ones close.
+     */
+    private static long differenceHash(int[] pixels, int width, int height) {
+        double[] cells = new double[9 * 8];
+        int[] samples = new int[9 * 8];
+        for (int y = 0; y < height; y++) {
+            int cellY = y * 8 / height;
+            for (int x = 0; x < width; x++) {
+                int cell = cellY * 9 + x * 9 / width;
+                int rgb = pixels[y * width + x];
+                cells[cell] += 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                samples[cell]++;
+            }
+        }
+        long hash = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int left = row * 9 + col;
+                double leftMean = cells[left] / Math.max(1, samples[left]);
+                double rightMean = cells[left + 1] / Math.max(1, samples[left + 1]);
+                hash = (hash << 1) | (leftMean > rightMean ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    private static void write(Path file, byte[] content) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, content);
+        storedBytes.addAndGet(content.length);
+    }
+
+    private static synchronized void index(Path file, Kind kind, Path base, long hash) {
+        String line = String.join("\t", file.getFileName().toString(), kind.name(),
+                base == null ? "" : base.getFileName().toString(), Long.toHexString(hash));
+        try {
+            Files.write(file.toAbsolutePath().resolveSibling(INDEX_FILE), List.of(line), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update screenshot index", e);
+        }
+    }
+
+    private static long count(Kind kind) {
+        AtomicLong count = counts.get(kind);
+        return count == null ? 0 : count.get();
+    }
+}
@@ -2,51 +2,67 @@ package com.automation.browser.utils;
 
 import com.automation.browser.config.TestConfig;
 import io.appium.java_client.windows.WindowsDriver;
-import org.apache.commons.io.FileUtils;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ScreenshotUtil {
     private static final Logger logger = LoggerFactory.getLogger(ScreenshotUtil.class);
+    private static final AtomicInteger sequence = new AtomicInteger();
 
-    public static String takeScreenshot(String testName) {
+    public static CompletableFuture<Path> takeScreenshot(String testName) {
         return takeScreenshot(testName, false);
     }
 
-    public static String takeScreenshot(String testName, boolean force) {
+    /**
+     * Captures a screenshot, or returns null if none was taken. It is written in the background; the
+     * future completes with the file that holds it, which with dedupe can be a delta or an earlier
+     * identical frame rather than a file of the requested name (see {@link ScreenshotStore#restore}).
+     */
+    public static CompletableFuture<Path> takeScreenshot(String testName, boolean force) {
+        return capture(testName, force, null);
+    }
+
+    /**
+     * Like {@link #takeScreenshot(String, boolean)}, and attaches the full frame to the running Allure
+     * test or step under the given name.
+     */
+    public static CompletableFuture<Path> takeScreenshotAndAttach(String testName, boolean force, String attachmentName) {
+        return capture(testName, force, attachmentName);
+    }
+
+    private static CompletableFuture<Path> capture(String testName, boolean force, String attachmentName) {
         if (!force && !TestConfig.isScreenshotOnFailure()) {
             return null;
         }
 
         try {
-            WindowsDriver<WebElement> driver = DriverFactory.getDriver();
+            // Use the thread's existing lease; never start a session just to take a screenshot
+            WindowsDriver<WebElement> driver = DriverFactory.getCurrentDriver();
             if (driver == null) {
                 logger.warn("Driver is null, cannot take screenshot");
                 return null;
             }
 
-            File srcFile = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
-            
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-            String fileName = testName + "_" + timestamp + ".png";
-            String destPath = "screenshots/" + fileName;
-            
-            File destFile = new File(destPath);
-            FileUtils.copyFile(srcFile, destFile);
-            
-            logger.info("Screenshot saved: {}", destPath);
-            return destPath;
-        } catch (IOException e) {
-            logger.error("Failed to save screenshot", e);
-            return null;
+            // Keep the PNG in memory; compression and the write happen on the screenshot pipeline
+            byte[] png = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+
+            // Writes are asynchronous, so two captures must never share a file name; the sequence separates
+            // captures within the same millisecond
+            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").format(new Date());
+            String fileName = testName + "_" + timestamp + "_" + sequence.incrementAndGet() + ".png";
+            Path destPath = Paths.get(TestConfig.getScreenshotDir(), fileName);
+
+            return ScreenshotPipeline.submit(png, destPath, attachmentName);
         } catch (Exception e) {
             logger.error("Error capturing screenshot", e);
             return null;
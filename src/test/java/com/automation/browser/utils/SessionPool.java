@@ -0,0 +1,259 @@
+package com.automation.browser.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of driver sessions leased per thread.
+ * A thread keeps its lease until it releases it back to the pool or evicts it.
+ * Idle sessions are health-checked before being handed out and dead ones are destroyed.
+ */
+public class SessionPool<S> {
+    private static final Logger logger = LoggerFactory.getLogger(SessionPool.class);
+
+    public interface SessionFactory<S> {
+        S create();
+
+        boolean isHealthy(S session);
+
+        void destroy(S session);
+    }
+
+    private final SessionFactory<S> factory;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<S> idle = new ArrayDeque<>();
+    private final Set<S> leased = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ThreadLocal<S> lease = new ThreadLocal<>();
+    private int total;
+
+    public SessionPool(SessionFactory<S> factory, int maxSize, long acquireTimeout, TimeUnit unit) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Session pool size must be at least 1, was " + maxSize);
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = unit.toMillis(acquireTimeout);
+    }
+
+    /**
+     * Returns the session leased by the current thread, leasing one first if needed.
+     */
+    public S acquire() {
+        S session = lease.get();
+        if (session != null) {
+            return session;
+        }
+        session = leaseSession();
+        lease.set(session);
+        return session;
+    }
+
+    /**
+     * Returns the session leased by the current thread without leasing a new one.
+     */
+    public S current() {
+        return lease.get();
+    }
+
+    /**
+     * Hands the current thread's session back to the pool for reuse by other threads.
+     */
+    public void release() {
+        S session = lease.get();
+        if (session == null) {
+            return;
+        }
+        lease.remove();
+        lock.lock();
+        try {
+            // Sessions destroyed by shutdown() are no longer tracked and must not be reused
+            if (leased.remove(session)) {
+                idle.addFirst(session);
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Destroys the current thread's session and frees its slot in the pool.
+     */
+    public void evict() {
+        S session = lease.get();
+        if (session == null) {
+            return;
+        }
+        lease.remove();
+        boolean owned;
+        lock.lock();
+        try {
+            owned = leased.remove(session);
+        } finally {
+            lock.unlock();
+        }
+        if (owned) {
+            discard(session);
+        }
+    }
+
+    /**
+     * Destroys every session owned by the pool, leased or idle.
+     */
+    public void shutdown() {
+        List<S> sessions;
+        lock.lock();
+        try {
+            sessions = new ArrayList<>(idle);
+            sessions.addAll(leased);
+            idle.clear();
+            leased.clear();
+        } finally {
+            lock.unlock();
+        }
+        lease.remove();
+        for (S session : sessions) {
+            discard(session);
+        }
+    }
+
+    /**
+     * Takes a slot for a session created outside the pool (e.g. a warm standby) if one is free right now.
+     * The slot counts toward the max size until {@link #unreserve()}.
+     */
+    public boolean tryReserve() {
+        lock.lock();
+        try {
+            if (total >= maxSize) {
+                return false;
+            }
+            total++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void unreserve() {
+        freeSlot();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private S leaseSession() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        while (true) {
+            S candidate = null;
+            boolean mayCreate = false;
+            lock.lock();
+            try {
+                while (idle.isEmpty() && total >= maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new IllegalStateException("Timed out after " + acquireTimeoutMillis
+                                + " ms waiting for a free session (pool size " + maxSize + ")");
+                    }
+                    available.awaitNanos(remaining);
+                }
+                if (!idle.isEmpty()) {
+                    candidate = idle.pollFirst();
+                } else {
+                    total++;
+                    mayCreate = true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a free session", e);
+            } finally {
+                lock.unlock();
+            }
+
+            if (mayCreate) {
+                return create();
+            }
+            if (isHealthy(candidate)) {
+                markLeased(candidate);
+                return candidate;
+            }
+            logger.warn("Evicting dead session from pool");
+            discard(candidate);
+        }
+    }
+
+    private S create() {
+        S session;
+        try {
+            session = factory.create();
+        } catch (RuntimeException e) {
+            freeSlot();
+            throw e;
+        }
+        markLeased(session);
+        logger.info("Leased new session ({} of max {})", size(), maxSize);
+        return session;
+    }
+
+    private void markLeased(S session) {
+        lock.lock();
+        try {
+            leased.add(session);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isHealthy(S session) {
+        try {
+            return factory.isHealthy(session);
+        } catch (RuntimeException e) {
+            logger.debug("Health check failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void discard(S session) {
+        try {
+            factory.destroy(session);
+        } catch (RuntimeException e) {
+            logger.warn("Error while destroying session: {}", e.getMessage());
+        } finally {
+            freeSlot();
+        }
+    }
+
+    private void freeSlot() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.automation.browser.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs SessionPool against a factory whose sessions are plain strings and whose health the test decides.
+ */
+public class SessionPoolTest {
+    private FakeFactory factory;
+    private ExecutorService otherThread;
+
+    @BeforeMethod
+    public void setUp() {
+        factory = new FakeFactory();
+        otherThread = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        otherThread.shutdownNow();
+    }
+
+    @Test
+    public void sameThreadGetsItsSessionBack() {
+        SessionPool<String> pool = new SessionPool<>(factory, 2, 1, TimeUnit.SECONDS);
+
+        String session = pool.acquire();
+
+        Assert.assertSame(pool.acquire(), session);
+        Assert.assertSame(pool.current(), session);
+        Assert.assertEquals(factory.created.get(), 1);
+        Assert.assertEquals(pool.size(), 1);
+    }
+
+    @Test
+    public void acquireBlocksAtMaxSizeUntilASessionIsReleased() throws Exception {
+        SessionPool<String> pool = new SessionPool<>(factory, 1, 10, TimeUnit.SECONDS);
+        String session = pool.acquire();
+
+        Future<String> waiting = otherThread.submit(pool::acquire);
+        Thread.sleep(300);
+        Assert.assertFalse(waiting.isDone(), "Acquire should block while the only session is leased");
+
+        pool.release();
+
+        Assert.assertSame(waiting.get(5, TimeUnit.SECONDS), session, "The released session should be reused");
+        Assert.assertEquals(factory.created.get(), 1);
+        Assert.assertNull(pool.current());
+    }
+
+    @Test
+    public void acquireTimesOutWhenNoSessionIsFreed() {
+        SessionPool<String> pool = new SessionPool<>(factory, 1, 300, TimeUnit.MILLISECONDS);
+        pool.acquire();
+
+        long start = System.nanoTime();
+        ExecutionException failure = Assert.expectThrows(ExecutionException.class,
+                () -> otherThread.submit(pool::acquire).get(10, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertTrue(failure.getCause() instanceof IllegalStateException, String.valueOf(failure.getCause()));
+        Assert.assertTrue(failure.getCause().getMessage().contains("Timed out"), failure.getCause().getMessage());
+        Assert.assertTrue(elapsed >= 250 && elapsed < 5000, "Acquire timeout not honoured: " + elapsed + " ms");
+        Assert.assertEquals(factory.created.get(), 1);
+    }
+
+    @Test
+    public void unhealthyIdleSessionIsEvictedAndReplaced() {
+        SessionPool<String> pool = new SessionPool<>(factory, 1, 1, TimeUnit.SECONDS);
+        String dead = pool.acquire();
+        pool.release();
+        factory.unhealthy.add(dead);
+
+        String replacement = pool.acquire();
+
+        Assert.assertNotSame(replacement, dead);
+        Assert.assertEquals(factory.destroyed, List.of(dead));
+        Assert.assertEquals(pool.size(), 1, "The dead session's slot should go to its replacement");
+    }
+
+    @Test
+    public void evictDestroysTheSessionAndFreesItsSlot() {
+        SessionPool<String> pool = new SessionPool<>(factory, 1, 1, TimeUnit.SECONDS);
+        String session = pool.acquire();
+
+        pool.evict();
+
+        Assert.assertEquals(factory.destroyed, List.of(session));
+        Assert.assertEquals(pool.size(), 0);
+        Assert.assertNotSame(pool.acquire(), session);
+    }
+
+    @Test
+    public void reservedSlotsCountTowardsTheMaxSize() throws Exception {
+        SessionPool<String> pool = new SessionPool<>(factory, 2, 300, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(pool.tryReserve());
+        pool.acquire();
+        Assert.assertEquals(pool.size(), 2);
+        Assert.assertFalse(pool.tryReserve(), "No slot should be left");
+        Assert.expectThrows(ExecutionException.class, () -> otherThread.submit(pool::acquire).get(10, TimeUnit.SECONDS));
+
+        pool.unreserve();
+
+        Assert.assertEquals(pool.size(), 1);
+        Assert.assertNotNull(otherThread.submit(pool::acquire).get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(pool.size(), 2);
+        Assert.assertEquals(factory.created.get(), 2);
+    }
+
+    private static final class FakeFactory implements SessionPool.SessionFactory<String> {
+        private final AtomicInteger created = new AtomicInteger();
+        private final Set<String> unhealthy = ConcurrentHashMap.newKeySet();
+        private final List<String> destroyed = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String create() {
+            return "session " + created.incrementAndGet();
+        }
+
+        @Override
+        public boolean isHealthy(String session) {
+            return !unhealthy.contains(session);
+        }
+
+        @Override
+        public void destroy(String session) {
+            destroyed.add(session);
+        }
+    }
+}
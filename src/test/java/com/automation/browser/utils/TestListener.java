@@ -7,12 +7,6 @@ import org.testng.ITestResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-
 public class TestListener implements ITestListener {
     private static final Logger logger = LoggerFactory.getLogger(TestListener.class);
 
@@ -24,34 +18,43 @@ public class TestListener implements ITestListener {
     @Override
     public void onFinish(ITestContext context) {
         logger.info("Test Suite Finished: " + context.getName());
+        CommandMetrics.logSuiteSummary();
     }
 
     @Override
     public void onTestStart(ITestResult result) {
         logger.info("Test Started: " + result.getMethod().getMethodName());
+        CommandMetrics.startTest();
+        FrameRecorder.start();
     }
 
     @Override
     public void onTestSuccess(ITestResult result) {
         logger.info("Test Passed: " + result.getMethod().getMethodName());
+        FrameRecorder.discard();
+        attachCommandMetrics(result);
     }
 
     @Override
     public void onTestFailure(ITestResult result) {
         logger.error("Test Failed: " + result.getMethod().getMethodName());
-        
-        String screenshotPath = ScreenshotUtil.takeScreenshot(result.getMethod().getMethodName());
-        if (screenshotPath != null) {
-            try (InputStream is = Files.newInputStream(Paths.get(screenshotPath))) {
-                Allure.addAttachment("Screenshot", is);
-            } catch (IOException e) {
-                logger.error("Failed to attach screenshot to Allure report", e);
-            }
-        }
+        attachCommandMetrics(result);
+        // Frames leading up to the failure first, then the state the test failed in
+        FrameRecorder.dump(result.getMethod().getMethodName());
+        ScreenshotUtil.takeScreenshotAndAttach(result.getMethod().getMethodName(), false, "Screenshot");
     }
 
     @Override
     public void onTestSkipped(ITestResult result) {
         logger.info("Test Skipped: " + result.getMethod().getMethodName());
+        FrameRecorder.discard();
+        attachCommandMetrics(result);
+    }
+
+    private void attachCommandMetrics(ITestResult result) {
+        String summary = CommandMetrics.finishTest(result.getMethod().getMethodName());
+        if (summary != null) {
+            Allure.addAttachment("WebDriver command latency", "application/json", summary, ".json");
+        }
     }
 }
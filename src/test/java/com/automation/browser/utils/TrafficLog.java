@@ -0,0 +1,341 @@
+package com.automation.browser.utils;
+
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary log of WinAppDriver command traffic. The file starts with a magic number and version,
+ * followed by one length-prefixed record per command: start offset and duration in nanoseconds,
+ * whether the command answered or threw, the session id, command name, parameters and the response
+ * (both as JSON) or the exception. Logs are read through a memory-mapped buffer; a record cut off by
+ * a crash ends the log instead of failing it.
+ * <p>
+ * {@code main} prints the command count and latency differences between two recordings.
+ */
+public class TrafficLog {
+    private static final Logger logger = LoggerFactory.getLogger(TrafficLog.class);
+    private static final int MAGIC = 0x57414454; // "WADT"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 8;
+    private static final Json JSON = new Json();
+
+    private TrafficLog() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * One recorded command and what came back.
+     */
+    public static final class Exchange {
+        private final long startNanos;
+        private final long durationNanos;
+        private final boolean failed;
+        private final String sessionId;
+        private final String command;
+        private final String parameters;
+        private final String result;
+
+        Exchange(long startNanos, long durationNanos, boolean failed, String sessionId, String command,
+                 String parameters, String result) {
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.failed = failed;
+            this.sessionId = sessionId;
+            this.command = command;
+            this.parameters = parameters;
+            this.result = result;
+        }
+
+        /**
+         * Offset from the start of the recording.
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * True if the command threw instead of returning a response, e.g. because the server was unreachable.
+         */
+        public boolean isFailed() {
+            return failed;
+        }
+
+        /**
+         * Session id, or an empty string for commands sent before a session existed.
+         */
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        /**
+         * Command parameters as canonical JSON (keys sorted).
+         */
+        public String getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Response as JSON, or "ExceptionClass: message" for a failed command.
+         */
+        public String getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * Appends exchanges to a new log. Safe to share between threads.
+     */
+    public static final class Writer implements AutoCloseable {
+        private final Path file;
+        private final DataOutputStream out;
+        private final long startNanos = System.nanoTime();
+        private int count;
+        private boolean closed;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(System.currentTimeMillis());
+        }
+
+        /**
+         * @param start {@link System#nanoTime()} when the command was sent
+         */
+        public void append(long start, long durationNanos, boolean failed, String sessionId, String command,
+                           String parameters, String result) {
+            byte[][] strings = {utf8(sessionId), utf8(command), utf8(parameters), utf8(result)};
+            int length = 8 + 8 + 1;
+            for (byte[] string : strings) {
+                length += 4 + string.length;
+            }
+            synchronized (this) {
+                if (closed) {
+                    // e.g. a background screenshot finishing after the suite shut the drivers down
+                    return;
+                }
+                try {
+                    out.writeInt(length);
+                    out.writeLong(start - startNanos);
+                    out.writeLong(durationNanos);
+                    out.writeByte(failed ? 1 : 0);
+                    for (byte[] string : strings) {
+                        out.writeInt(string.length);
+                        out.write(string);
+                    }
+                    count++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to write traffic log " + file, e);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+                logger.info("Recorded {} WinAppDriver commands to {}", count, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to close traffic log " + file, e);
+            }
+        }
+    }
+
+    public static Writer create(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            return new Writer(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create traffic log " + file, e);
+        }
+    }
+
+    public static List<Exchange> read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException(file + " is not a WinAppDriver traffic log");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(file + " has unsupported traffic log version " + version);
+            }
+            buffer.getLong();
+
+            List<Exchange> exchanges = new ArrayList<>();
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    logger.warn("Traffic log {} ends in a truncated record after {} commands", file, exchanges.size());
+                    break;
+                }
+                ByteBuffer record = buffer.slice();
+                record.limit(length);
+                buffer.position(buffer.position() + length);
+                exchanges.add(new Exchange(record.getLong(), record.getLong(), record.get() != 0,
+                        string(record), string(record), string(record), string(record)));
+            }
+            return exchanges;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read traffic log " + file, e);
+        }
+    }
+
+    /**
+     * Per command (and locator strategy): count, p50 and total latency in both recordings,
+     * largest count difference first.
+     */
+    public static String diff(List<Exchange> before, List<Exchange> after) {
+        Map<String, List<Long>> a = latencies(before);
+        Map<String, List<Long>> b = latencies(after);
+        TreeSet<String> commands = new TreeSet<>(a.keySet());
+        commands.addAll(b.keySet());
+        List<String> keys = new ArrayList<>(commands);
+        keys.sort((x, y) -> Integer.compare(
+                Math.abs(size(b.get(y)) - size(a.get(y))), Math.abs(size(b.get(x)) - size(a.get(x)))));
+
+        StringBuilder report = new StringBuilder(String.format("%-44s %7s %7s %7s %10s %10s %10s %10s%n",
+                "command", "count A", "count B", "delta", "p50 A ms", "p50 B ms", "total A ms", "total B ms"));
+        for (String key : keys) {
+            List<Long> x = a.getOrDefault(key, Collections.emptyList());
+            List<Long> y = b.getOrDefault(key, Collections.emptyList());
+            report.append(String.format("%-44s %7d %7d %+7d %10.1f %10.1f %10.1f %10.1f%n", key, x.size(), y.size(),
+                    y.size() - x.size(), millis(median(x)), millis(median(y)), millis(sum(x)), millis(sum(y))));
+        }
+        report.append(String.format("%-44s %7d %7d %+7d %10s %10s %10.1f %10.1f%n", "all", before.size(), after.size(),
+                after.size() - before.size(), "", "", millis(sum(all(a))), millis(sum(all(b)))));
+        return report.toString();
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: TrafficLog <recording A> <recording B>");
+            System.exit(2);
+        }
+        System.out.print(diff(read(Paths.get(args[0])), read(Paths.get(args[1]))));
+    }
+
+    private static Map<String, List<Long>> latencies(List<Exchange> exchanges) {
+        Map<String, List<Long>> byCommand = new TreeMap<>();
+        for (Exchange exchange : exchanges) {
+            String strategy = strategyOf(exchange.getParameters());
+            String key = exchange.getCommand() + (strategy == null ? "" : " [" + strategy + "]");
+            byCommand.computeIfAbsent(key, k -> new ArrayList<>()).add(exchange.getDurationNanos());
+        }
+        return byCommand;
+    }
+
+    private static String strategyOf(String parameters) {
+        if (!parameters.contains("\"using\"")) {
+            return null;
+        }
+        Map<String, Object> command = JSON.toType(parameters, Json.MAP_TYPE);
+        Object using = command.get("using");
+        return using == null ? null : using.toString();
+    }
+
+    /**
+     * JSON with map keys sorted at every level, so equal commands always serialize the same way.
+     */
+    static String canonicalJson(Object value) {
+        return JSON.toJson(canonical(value));
+    }
+
+    private static Object canonical(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            ((Map<?, ?>) value).forEach((key, entry) -> sorted.put(String.valueOf(key), canonical(entry)));
+            return sorted;
+        }
+        if (value instanceof Collection) {
+            List<Object> list = new ArrayList<>();
+            for (Object entry : (Collection<?>) value) {
+                list.add(canonical(entry));
+            }
+            return list;
+        }
+        if (value instanceof Object[]) {
+            return canonical(Arrays.asList((Object[]) value));
+        }
+        return value;
+    }
+
+    private static List<Long> all(Map<String, List<Long>> byCommand) {
+        List<Long> all = new ArrayList<>();
+        byCommand.values().forEach(all::addAll);
+        return all;
+    }
+
+    private static int size(List<Long> values) {
+        return values == null ? 0 : values.size();
+    }
+
+    private static long median(List<Long> values) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static long sum(List<Long> values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,373 @@
+package com.automation.browser.utils;
+
+import io.appium.java_client.MobileBy;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Read-only copy of a session's UI tree taken with a single getPageSource() call.
+ * The XML is streamed into parallel arrays in document order, so every element's subtree
+ * is the contiguous index range [node, subtreeEnd(node)) and queries are answered locally.
+ * Name, AutomationId and ClassName lookups go through hash indexes and name prefixes through
+ * a sorted index, all built on first use, so repeated assertions cost microseconds.
+ * Use {@link #resolve(SearchContext, int)} to get a live element only when it must be interacted with.
+ *
+ * {@link #of(WebDriver)} shares one snapshot per session until {@link #invalidate(WebDriver)}
+ * is called, which every action that can change the UI must do.
+ */
+public final class UiSnapshot {
+    private static final XMLInputFactory XML_INPUT = XMLInputFactory.newInstance();
+    private static final Map<WebDriver, UiSnapshot> current = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private int size;
+    private String[] controlTypes = new String[256];
+    private String[] names = new String[256];
+    private String[] automationIds = new String[256];
+    private String[] classNames = new String[256];
+    private boolean[] offscreen = new boolean[256];
+    private int[] parents = new int[256];
+    private int[] subtreeEnds = new int[256];
+
+    private Index nameIndex;
+    private Index automationIdIndex;
+    private Index classNameIndex;
+    private int[] namesSorted;
+
+    /**
+     * Hash index: first node per value, then a chain of later nodes with the same value.
+     */
+    private static final class Index {
+        private final Map<String, Integer> first = new HashMap<>();
+        private final int[] next;
+
+        private Index(String[] values, int size) {
+            next = new int[size];
+            Map<String, Integer> tail = new HashMap<>();
+            for (int node = 0; node < size; node++) {
+                next[node] = -1;
+                String value = values[node];
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+                Integer previous = tail.put(value, node);
+                if (previous == null) {
+                    first.put(value, node);
+                } else {
+                    next[previous] = node;
+                }
+            }
+        }
+
+        private int first(String value) {
+            Integer node = first.get(value);
+            return node == null ? -1 : node;
+        }
+
+        private int firstWithin(String value, int from, int to) {
+            for (int node = first(value); node >= 0 && node < to; node = next[node]) {
+                if (node >= from) {
+                    return node;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private UiSnapshot() {
+    }
+
+    /**
+     * Takes a fresh snapshot without touching the shared one.
+     */
+    public static UiSnapshot capture(WebDriver driver) {
+        return parse(driver.getPageSource());
+    }
+
+    /**
+     * Returns the session's shared snapshot, capturing it if there is none or it was invalidated.
+     */
+    public static UiSnapshot of(WebDriver driver) {
+        UiSnapshot snapshot = current.get(driver);
+        if (snapshot == null) {
+            snapshot = capture(driver);
+            current.put(driver, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops the session's shared snapshot; call after anything that may have changed the UI.
+     */
+    public static void invalidate(WebDriver driver) {
+        current.remove(driver);
+    }
+
+    public static UiSnapshot parse(String pageSource) {
+        UiSnapshot snapshot = new UiSnapshot();
+        try {
+            XMLStreamReader reader = XML_INPUT.createXMLStreamReader(new StringReader(pageSource));
+            try {
+                snapshot.read(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Page source is not well-formed XML", e);
+        }
+        return snapshot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String controlType(int node) {
+        return controlTypes[node];
+    }
+
+    public String name(int node) {
+        return names[node];
+    }
+
+    public String automationId(int node) {
+        return automationIds[node];
+    }
+
+    public String className(int node) {
+        return classNames[node];
+    }
+
+    public boolean isOffscreen(int node) {
+        return offscreen[node];
+    }
+
+    public int parent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * Exclusive end of the node's subtree; descendants are node + 1 .. subtreeEnd - 1.
+     */
+    public int subtreeEnd(int node) {
+        return subtreeEnds[node];
+    }
+
+    /**
+     * First node in document order with exactly this name, or -1.
+     */
+    public int findByName(String name) {
+        return names().first(name);
+    }
+
+    public int findByAutomationId(String automationId) {
+        return automationIds().first(automationId);
+    }
+
+    public int findByClassName(String className) {
+        return classNames().first(className);
+    }
+
+    /**
+     * First node in document order whose name starts with the prefix, or -1.
+     */
+    public int findNameStartingWith(String prefix) {
+        int[] sorted = namesSorted();
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[sorted[mid]].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int firstNode = -1;
+        for (int i = low; i < sorted.length && names[sorted[i]].startsWith(prefix); i++) {
+            if (firstNode < 0 || sorted[i] < firstNode) {
+                firstNode = sorted[i];
+            }
+        }
+        return firstNode;
+    }
+
+    /**
+     * First node in document order whose name contains the text, or -1.
+     */
+    public int findNameContaining(String part) {
+        return findNameContaining(part, 0, size);
+    }
+
+    /**
+     * First on-screen node in document order whose name contains the text, or -1.
+     */
+    public int findOnScreenNameContaining(String part) {
+        for (int node = findNameContaining(part, 0, size); node >= 0; node = findNameContaining(part, node + 1, size)) {
+            if (!offscreen[node]) {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * First descendant of the container with exactly this name, or -1.
+     */
+    public int findByNameWithin(int container, String name) {
+        return names().firstWithin(name, container + 1, subtreeEnds[container]);
+    }
+
+    /**
+     * Whether an on-screen node matches the locator. Supports name, id / accessibility id
+     * (both matched against AutomationId, as the page objects use them) and class name.
+     */
+    public boolean isDisplayed(By locator) {
+        int node = find(locator);
+        return node >= 0 && !offscreen[node];
+    }
+
+    /**
+     * First node matching the locator, or -1.
+     */
+    public int find(By locator) {
+        String value = locatorValue(locator);
+        if (locator instanceof By.ByName) {
+            return findByName(value);
+        }
+        if (locator instanceof By.ById || locator instanceof MobileBy.ByAccessibilityId) {
+            return findByAutomationId(value);
+        }
+        if (locator instanceof By.ByClassName) {
+            return findByClassName(value);
+        }
+        throw new IllegalArgumentException("Snapshot lookups do not support " + locator);
+    }
+
+    /**
+     * First descendant of the container whose name contains the text, or -1.
+     */
+    public int findNameContainingWithin(int container, String part) {
+        return findNameContaining(part, container + 1, subtreeEnds[container]);
+    }
+
+    /**
+     * Looks the node up in the live session, by AutomationId when it has one, else by name.
+     */
+    public WebElement resolve(SearchContext context, int node) {
+        if (automationIds[node] != null && !automationIds[node].isEmpty()) {
+            return context.findElement(MobileBy.AccessibilityId(automationIds[node]));
+        }
+        if (names[node] != null && !names[node].isEmpty()) {
+            return context.findElement(By.name(names[node]));
+        }
+        throw new NoSuchElementException("Snapshot node " + node + " (" + controlTypes[node] + ") has neither AutomationId nor Name");
+    }
+
+    private int findNameContaining(String part, int from, int to) {
+        for (int node = from; node < to; node++) {
+            if (names[node] != null && names[node].contains(part)) {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    private static String locatorValue(By locator) {
+        // Selenium 3 locators only expose their value through toString(), e.g. "By.name: Next"
+        String description = locator.toString();
+        int separator = description.indexOf(": ");
+        return separator < 0 ? description : description.substring(separator + 2);
+    }
+
+    private Index names() {
+        if (nameIndex == null) {
+            nameIndex = new Index(names, size);
+        }
+        return nameIndex;
+    }
+
+    private Index automationIds() {
+        if (automationIdIndex == null) {
+            automationIdIndex = new Index(automationIds, size);
+        }
+        return automationIdIndex;
+    }
+
+    private Index classNames() {
+        if (classNameIndex == null) {
+            classNameIndex = new Index(classNames, size);
+        }
+        return classNameIndex;
+    }
+
+    private int[] namesSorted() {
+        if (namesSorted == null) {
+            namesSorted = IntStream.range(0, size)
+                    .filter(node -> names[node] != null && !names[node].isEmpty())
+                    .boxed()
+                    .sorted(Comparator.comparing(node -> names[node]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        return namesSorted;
+    }
+
+    private void read(XMLStreamReader reader) throws XMLStreamException {
+        int[] open = new int[64];
+        int depth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                int node = add(reader, depth == 0 ? -1 : open[depth - 1]);
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, depth * 2);
+                }
+                open[depth++] = node;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                int node = open[--depth];
+                subtreeEnds[node] = size;
+            }
+        }
+    }
+
+    private int add(XMLStreamReader reader, int parent) {
+        if (size == names.length) {
+            grow();
+        }
+        int node = size++;
+        controlTypes[node] = reader.getLocalName();
+        names[node] = reader.getAttributeValue(null, "Name");
+        automationIds[node] = reader.getAttributeValue(null, "AutomationId");
+        classNames[node] = reader.getAttributeValue(null, "ClassName");
+        offscreen[node] = "True".equalsIgnoreCase(reader.getAttributeValue(null, "IsOffscreen"));
+        parents[node] = parent;
+        return node;
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        controlTypes = Arrays.copyOf(controlTypes, capacity);
+        names = Arrays.copyOf(names, capacity);
+        automationIds = Arrays.copyOf(automationIds, capacity);
+        classNames = Arrays.copyOf(classNames, capacity);
+        offscreen = Arrays.copyOf(offscreen, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        subtreeEnds = Arrays.copyOf(subtreeEnds, capacity);
+    }
+}
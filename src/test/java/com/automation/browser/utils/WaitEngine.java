@@ -0,0 +1,197 @@
+package com.automation.browser.utils;
+
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Polls a condition with adaptive intervals instead of WebDriverWait's fixed 500 ms.
+ * The first check runs immediately, then the interval backs off exponentially from a
+ * starting point derived from how long the same wait took historically, so fast UI
+ * reacts within tens of milliseconds and slow UI is not hammered with round trips.
+ */
+public class WaitEngine {
+    private static final Logger logger = LoggerFactory.getLogger(WaitEngine.class);
+    private static final WaitEngine INSTANCE = new WaitEngine(20, 500, 1.6);
+    private static final double EWMA_ALPHA = 0.3;
+    // RemoteWebElement describes itself as "[[<driver and session>] -> <locator>]"
+    private static final Pattern FOUND_BY = Pattern.compile("^\\[\\[.*?\\] -> (.*)\\]$");
+
+    /**
+     * The ElementLocator field of a page element proxy's invocation handler, or null if it has none.
+     */
+    private static final ClassValue<Field> LOCATOR_FIELDS = new ClassValue<Field>() {
+        @Override
+        protected Field computeValue(Class<?> handlerClass) {
+            for (Field field : handlerClass.getDeclaredFields()) {
+                if (ElementLocator.class.isAssignableFrom(field.getType())) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+            return null;
+        }
+    };
+
+    private final long minPollMillis;
+    private final long maxPollMillis;
+    private final double backoff;
+    private final Map<String, Double> historyMillis = new ConcurrentHashMap<>();
+
+    public WaitEngine(long minPollMillis, long maxPollMillis, double backoff) {
+        this.minPollMillis = minPollMillis;
+        this.maxPollMillis = maxPollMillis;
+        this.backoff = backoff;
+    }
+
+    public static WaitEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Polls until the condition returns a value other than null or false and returns that value.
+     * WebDriver exceptions thrown by the condition count as "not yet" until the timeout.
+     */
+    public <T> T until(String key, Supplier<T> condition, long timeout, TimeUnit unit) {
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+        long interval = initialInterval(key);
+        int polls = 0;
+        WebDriverException lastError = null;
+
+        while (true) {
+            polls++;
+            try {
+                T value = condition.get();
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    record(key, start, polls);
+                    return value;
+                }
+            } catch (WebDriverException e) {
+                lastError = e;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                logger.warn("Wait for {} timed out after {} ms ({} polls)", key, elapsed, polls);
+                throw new TimeoutException("Timed out after " + elapsed + " ms waiting for " + key, lastError);
+            }
+            sleep(Math.min(interval, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+            interval = Math.min(maxPollMillis, (long) (interval * backoff));
+        }
+    }
+
+    /**
+     * Element is displayed. Resolves a PageFactory proxy once per poll.
+     */
+    public static Supplier<Boolean> visible(WebElement element) {
+        return () -> resolve(element).isDisplayed();
+    }
+
+    /**
+     * Element is displayed and enabled, checked against a single resolved element per poll
+     * instead of two consecutive waits that each re-locate it.
+     */
+    public static Supplier<Boolean> clickable(WebElement element) {
+        return () -> {
+            WebElement resolved = resolve(element);
+            return resolved.isDisplayed() && resolved.isEnabled();
+        };
+    }
+
+    /**
+     * Element is no longer in the tree or no longer displayed.
+     */
+    public static Supplier<Boolean> gone(WebElement element) {
+        return () -> {
+            try {
+                return !resolve(element).isDisplayed();
+            } catch (NoSuchElementException | StaleElementReferenceException e) {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * A UIA property of the element satisfies the predicate, e.g. a toggle state flipping.
+     */
+    public static Supplier<Boolean> attribute(WebElement element, String name, Predicate<String> expected) {
+        return () -> expected.test(resolve(element).getAttribute(name));
+    }
+
+    /**
+     * Names the element by how it is located, so waits for the same field share their history across
+     * page instances and sessions. A page element proxy is not asked for toString(): Selenium's handler
+     * finds the element first, which costs a round trip (the implicit wait if it is absent) and yields
+     * a session-specific description. The locator is read from the proxy's handler instead.
+     */
+    public static String keyOf(WebElement element) {
+        if (Proxy.isProxyClass(element.getClass())) {
+            Object handler = Proxy.getInvocationHandler(element);
+            Field field = LOCATOR_FIELDS.get(handler.getClass());
+            if (field != null) {
+                try {
+                    return String.valueOf(field.get(handler));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read the locator of " + handler.getClass().getName(), e);
+                }
+            }
+        }
+        // A found element answers toString() locally; drop the driver part, which names the session
+        String description = element.toString();
+        Matcher foundBy = FOUND_BY.matcher(description);
+        return foundBy.matches() ? foundBy.group(1) : description;
+    }
+
+    public void logSummary() {
+        historyMillis.forEach((key, millis) -> logger.info("Typical wait for {}: {} ms", key, Math.round(millis)));
+    }
+
+    private static WebElement resolve(WebElement element) {
+        if (element instanceof WrapsElement) {
+            return ((WrapsElement) element).getWrappedElement();
+        }
+        return element;
+    }
+
+    private long initialInterval(String key) {
+        Double typical = historyMillis.get(key);
+        if (typical == null) {
+            return minPollMillis;
+        }
+        // Start around a quarter of the usual wait so a typical wait resolves within a couple of polls
+        return Math.max(minPollMillis, Math.min(maxPollMillis, (long) (typical / 4)));
+    }
+
+    private void record(String key, long startNanos, int polls) {
+        double millis = (System.nanoTime() - startNanos) / 1_000_000.0;
+        historyMillis.merge(key, millis, (old, sample) -> EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * old);
+        logger.info("Waited {} ms for {} ({} polls)", Math.round(millis), key, polls);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting", e);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.automation.browser.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Keeps one session warming up on a background thread so the next request for a session
+ * can be served without paying the session and application start-up cost.
+ * A standby is bound to the key it was prepared for (e.g. the browser path) and is
+ * discarded instead of handed out if the key no longer matches.
+ * <p>
+ * The standby holds a slot of the owner's session limit from {@link #prepare} until it is taken or
+ * discarded, and is only warmed while a slot is free. Taking a standby that is still starting waits
+ * at most the take timeout, like acquiring a session from the pool.
+ */
+public class WarmStandby<S> {
+    private static final Logger logger = LoggerFactory.getLogger(WarmStandby.class);
+
+    private final Function<String, S> creator;
+    private final Predicate<S> healthCheck;
+    private final Consumer<S> destroyer;
+    private final BooleanSupplier reserveSlot;
+    private final Runnable releaseSlot;
+    private final long takeTimeoutNanos;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-prewarm");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    private Pending<S> pending;
+
+    private static final class Warm<S> {
+        private final S session;
+        private final long creationNanos;
+
+        private Warm(S session, long creationNanos) {
+            this.session = session;
+            this.creationNanos = creationNanos;
+        }
+    }
+
+    private static final class Pending<S> {
+        private final String key;
+        private final CompletableFuture<Warm<S>> future;
+
+        private Pending(String key, CompletableFuture<Warm<S>> future) {
+            this.key = key;
+            this.future = future;
+        }
+    }
+
+    public WarmStandby(Function<String, S> creator, Predicate<S> healthCheck, Consumer<S> destroyer,
+                       BooleanSupplier reserveSlot, Runnable releaseSlot, long takeTimeout, TimeUnit unit) {
+        this.creator = creator;
+        this.healthCheck = healthCheck;
+        this.destroyer = destroyer;
+        this.reserveSlot = reserveSlot;
+        this.releaseSlot = releaseSlot;
+        this.takeTimeoutNanos = unit.toNanos(takeTimeout);
+    }
+
+    /**
+     * Starts warming a session for the key unless one is already warming or no session slot is free.
+     */
+    public synchronized void prepare(String key) {
+        if (pending != null || executor.isShutdown()) {
+            return;
+        }
+        if (!reserveSlot.getAsBoolean()) {
+            logger.info("No free session slot, not pre-warming a standby session");
+            return;
+        }
+        logger.info("Pre-warming standby session in the background...");
+        CompletableFuture<Warm<S>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            long start = System.nanoTime();
+            S session;
+            try {
+                session = creator.apply(key);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            if (!future.complete(new Warm<>(session, System.nanoTime() - start))) {
+                // Discarded while it was starting
+                destroyer.accept(session);
+            }
+        });
+        pending = new Pending<>(key, future);
+    }
+
+    /**
+     * Hands out the warm session for the key, waiting up to the take timeout if it is still starting.
+     * Returns null (a miss) if nothing was prepared for the key, the standby is unusable or it did not
+     * start in time.
+     */
+    public S take(String key) {
+        Pending<S> taken;
+        synchronized (this) {
+            taken = pending;
+            pending = null;
+        }
+        if (taken == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        // A served standby moves into the caller's slot; one that is thrown away frees it
+        releaseSlot.run();
+        if (!taken.key.equals(key)) {
+            logger.info("Standby session was prepared for a different target, discarding it");
+            discard(taken);
+            misses.incrementAndGet();
+            return null;
+        }
+
+        long waitStart = System.nanoTime();
+        Warm<S> warm;
+        try {
+            warm = taken.future.get(takeTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Standby session did not start within {} ms, discarding it", TimeUnit.NANOSECONDS.toMillis(takeTimeoutNanos));
+            discard(taken);
+            misses.incrementAndGet();
+            return null;
+        } catch (ExecutionException e) {
+            logger.warn("Standby session failed to start: {}", e.getCause().getMessage());
+            misses.incrementAndGet();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard(taken);
+            misses.incrementAndGet();
+            return null;
+        }
+        long waited = System.nanoTime() - waitStart;
+
+        if (!isHealthy(warm.session)) {
+            logger.warn("Standby session is no longer alive, discarding it");
+            destroyer.accept(warm.session);
+            misses.incrementAndGet();
+            return null;
+        }
+        long saved = Math.max(0, warm.creationNanos - waited);
+        hits.incrementAndGet();
+        savedNanos.addAndGet(saved);
+        logger.info("Served warm standby session (saved {} ms)", TimeUnit.NANOSECONDS.toMillis(saved));
+        return warm.session;
+    }
+
+    public void shutdown() {
+        Pending<S> leftover;
+        synchronized (this) {
+            leftover = pending;
+            pending = null;
+            executor.shutdown();
+        }
+        if (leftover != null) {
+            discard(leftover);
+            releaseSlot.run();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public long getTimeSavedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(savedNanos.get());
+    }
+
+    public void logSummary() {
+        logger.info("Warm standby: {} hits, {} misses, hit rate {}%, time saved {} ms",
+                getHits(), getMisses(), Math.round(getHitRate() * 100), getTimeSavedMillis());
+    }
+
+    private boolean isHealthy(S session) {
+        try {
+            return healthCheck.test(session);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void discard(Pending<S> stale) {
+        // A session that is still starting is quit by the warming task once it has started
+        if (!stale.future.cancel(false)) {
+            stale.future.thenAccept(warm -> destroyer.accept(warm.session));
+        }
+    }
+}
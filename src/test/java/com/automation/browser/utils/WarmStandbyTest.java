@@ -0,0 +1,76 @@
+package com.automation.browser.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WarmStandbyTest {
+    private static final String KEY = "C:\\fake\\shift.exe";
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> destroyed = new CopyOnWriteArrayList<>();
+    private final AtomicInteger slots = new AtomicInteger();
+    private WarmStandby<String> standby;
+
+    @BeforeMethod
+    public void setUp() {
+        standby = new WarmStandby<>(key -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "session for " + key;
+        }, session -> true, destroyed::add, () -> {
+            slots.incrementAndGet();
+            return true;
+        }, slots::decrementAndGet, 300, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        release.countDown();
+        standby.shutdown();
+    }
+
+    @Test
+    public void startedStandbyIsServed() throws Exception {
+        standby.prepare(KEY);
+        release.countDown();
+
+        Assert.assertEquals(standby.take(KEY), "session for " + KEY);
+        Assert.assertEquals(standby.getHits(), 1);
+        Assert.assertEquals(slots.get(), 0, "A served standby moves into the caller's slot");
+    }
+
+    @Test
+    public void standbyThatDoesNotStartInTimeIsDiscarded() throws Exception {
+        standby.prepare(KEY);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        Assert.assertNull(standby.take(KEY));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertTrue(elapsed >= 250 && elapsed < 5000, "Take timeout not honoured: " + elapsed + " ms");
+        Assert.assertEquals(standby.getMisses(), 1);
+        Assert.assertEquals(slots.get(), 0, "The slot of a discarded standby must be freed");
+
+        // Once it has started after all, the session is quit rather than leaked
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (destroyed.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(destroyed, List.of("session for " + KEY));
+    }
+}
@@ -0,0 +1,209 @@
+package com.automation.browser.utils;
+
+import io.appium.java_client.windows.WindowsDriver;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Resolves top-level window handles through one long-lived Root session per WinAppDriver endpoint.
+ * Handles are cached per endpoint and process, and a cached handle is re-validated before it is
+ * reused with a query in the scope it was found in: the desktop's direct children for top-level
+ * windows, the full desktop tree only for windows that had to be searched for there.
+ * <p>
+ * Each endpoint has its own lock, so lookups against one WinAppDriver never wait for another's.
+ */
+public class WindowHandleCache {
+    private static final Logger logger = LoggerFactory.getLogger(WindowHandleCache.class);
+
+    // Keyed by URL string: URL.equals/hashCode resolve host names
+    private static final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * One WinAppDriver's Root session and cached handles; guarded by its own monitor.
+     */
+    private static final class Endpoint {
+        private final URL url;
+        private final Map<String, CachedWindow> handles = new HashMap<>();
+        private WindowsDriver<WebElement> root;
+
+        private Endpoint(URL url) {
+            this.url = url;
+        }
+    }
+
+    private static final class CachedWindow {
+        private final String name;
+        private final String handle;
+        private final boolean topLevel;
+
+        private CachedWindow(String name, String handle, boolean topLevel) {
+            this.name = name;
+            this.handle = handle;
+            this.topLevel = topLevel;
+        }
+    }
+
+    private WindowHandleCache() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns the NativeWindowHandle (decimal) of the first window matching one of the names,
+     * in priority order, or null if no such window exists.
+     */
+    public static String findWindowHandle(URL url, String processKey, List<String> windowNames) {
+        Endpoint endpoint = endpoint(url);
+        synchronized (endpoint) {
+            CachedWindow cached = endpoint.handles.get(processKey);
+            if (cached != null) {
+                if (isStillOpen(endpoint, cached)) {
+                    logger.info("Reusing cached handle {} for window '{}'", cached.handle, cached.name);
+                    return cached.handle;
+                }
+                logger.info("Cached handle {} for window '{}' is gone, searching again", cached.handle, cached.name);
+                endpoint.handles.remove(processKey);
+            }
+
+            CachedWindow found = search(endpoint, windowNames);
+            if (found != null) {
+                endpoint.handles.put(processKey, found);
+                return found.handle;
+            }
+            return null;
+        }
+    }
+
+    public static void invalidate(URL url, String processKey) {
+        Endpoint endpoint = endpoint(url);
+        synchronized (endpoint) {
+            endpoint.handles.remove(processKey);
+        }
+    }
+
+    /**
+     * Returns the shared Root (desktop) session for the endpoint, creating it on first use.
+     * Callers must not quit it; {@link #shutdown()} does that at the end of the suite.
+     */
+    public static WindowsDriver<WebElement> getRootSession(URL url) {
+        Endpoint endpoint = endpoint(url);
+        synchronized (endpoint) {
+            return rootSession(endpoint);
+        }
+    }
+
+    public static void shutdown() {
+        for (Endpoint endpoint : endpoints.values()) {
+            synchronized (endpoint) {
+                if (endpoint.root != null) {
+                    try {
+                        endpoint.root.quit();
+                    } catch (Exception ignored) {}
+                    endpoint.root = null;
+                }
+                endpoint.handles.clear();
+            }
+        }
+    }
+
+    private static Endpoint endpoint(URL url) {
+        return endpoints.computeIfAbsent(url.toString(), key -> new Endpoint(url));
+    }
+
+    private static WindowsDriver<WebElement> rootSession(Endpoint endpoint) {
+        if (endpoint.root == null) {
+            logger.info("Opening Root session at {}", endpoint.url);
+            DesiredCapabilities rootCaps = new DesiredCapabilities();
+            rootCaps.setCapability("app", "Root");
+            rootCaps.setCapability("platformName", "Windows");
+            rootCaps.setCapability("deviceName", "WindowsPC");
+            WindowsDriver<WebElement> root = DriverFactory.newWindowsDriver(endpoint.url, rootCaps);
+            // Lookups below are single queries that must answer immediately instead of waiting out an implicit wait
+            root.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS);
+            endpoint.root = root;
+        }
+        return endpoint.root;
+    }
+
+    private static boolean isStillOpen(Endpoint endpoint, CachedWindow cached) {
+        List<WebElement> windows = query(endpoint, root -> root.findElementsByXPath(xpath("@Name=" + literal(cached.name), cached.topLevel)));
+        for (WebElement window : windows) {
+            if (cached.handle.equals(window.getAttribute("NativeWindowHandle"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CachedWindow search(Endpoint endpoint, List<String> windowNames) {
+        StringBuilder predicate = new StringBuilder();
+        for (String name : windowNames) {
+            if (predicate.length() > 0) {
+                predicate.append(" or ");
+            }
+            predicate.append("@Name=").append(literal(name));
+        }
+        logger.info("Looking for window named any of {}...", windowNames);
+
+        // Top-level windows are direct children of the desktop; only walk the whole tree if none matched
+        boolean topLevel = true;
+        List<WebElement> matches = query(endpoint, root -> root.findElementsByXPath(xpath(predicate.toString(), true)));
+        if (matches.isEmpty()) {
+            topLevel = false;
+            matches = query(endpoint, root -> root.findElementsByXPath(xpath(predicate.toString(), false)));
+        }
+        if (matches.isEmpty()) {
+            return null;
+        }
+
+        Map<String, WebElement> byName = new HashMap<>();
+        for (WebElement match : matches) {
+            byName.putIfAbsent(match.getAttribute("Name"), match);
+        }
+        for (String name : windowNames) {
+            WebElement window = byName.get(name);
+            if (window != null) {
+                String handle = window.getAttribute("NativeWindowHandle");
+                logger.info("Found window with name: {} (handle {})", name, handle);
+                return new CachedWindow(name, handle, topLevel);
+            }
+        }
+        return null;
+    }
+
+    private static List<WebElement> query(Endpoint endpoint, Function<WindowsDriver<WebElement>, List<WebElement>> lookup) {
+        try {
+            return lookup.apply(rootSession(endpoint));
+        } catch (NoSuchSessionException | UnreachableBrowserException e) {
+            // The long-lived Root session died (e.g. WinAppDriver restarted); open a fresh one and retry once
+            logger.warn("Root session at {} is no longer usable, reopening: {}", endpoint.url, e.getMessage());
+            endpoint.root = null;
+            return lookup.apply(rootSession(endpoint));
+        }
+    }
+
+    /**
+     * Matches the desktop's direct children, or any element of the desktop tree.
+     */
+    private static String xpath(String predicate, boolean topLevel) {
+        return (topLevel ? "/*/*[" : "//*[") + predicate + "]";
+    }
+
+    private static String literal(String value) {
+        if (!value.contains("'")) {
+            return "'" + value + "'";
+        }
+        return "\"" + value + "\"";
+    }
+}
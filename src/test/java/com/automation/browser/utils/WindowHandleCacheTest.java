@@ -0,0 +1,61 @@
+package com.automation.browser.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class WindowHandleCacheTest {
+    private static final String PROCESS = "C:\\fake\\shift.exe";
+    private static final List<String> NAMES = List.of("Shift");
+
+    private FakeWinAppDriver server;
+
+    @BeforeMethod
+    public void setUp() {
+        server = FakeWinAppDriver.start(0);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        WindowHandleCache.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void topLevelWindowIsRevalidatedAmongTheDesktopsChildren() {
+        String handle = String.valueOf(server.addWindow(PROCESS, "Shift").getNativeWindowHandle());
+
+        Assert.assertEquals(WindowHandleCache.findWindowHandle(server.getUrl(), PROCESS, NAMES), handle);
+        server.resetCounts();
+        Assert.assertEquals(WindowHandleCache.findWindowHandle(server.getUrl(), PROCESS, NAMES), handle);
+
+        Assert.assertEquals(server.getCount("findElements"), 1, "Reuse should cost one query: " + server.getCounts());
+    }
+
+    @Test
+    public void nestedWindowIsRevalidatedInTheFullTree() {
+        // Not a direct child of the desktop, so only the full-tree fallback finds it
+        FakeWinAppDriver.Node window = server.addWindow(null, "Host").add("Window", "Shift");
+        String handle = String.valueOf(window.getNativeWindowHandle());
+
+        Assert.assertEquals(WindowHandleCache.findWindowHandle(server.getUrl(), PROCESS, NAMES), handle);
+        server.resetCounts();
+        Assert.assertEquals(WindowHandleCache.findWindowHandle(server.getUrl(), PROCESS, NAMES), handle);
+
+        Assert.assertEquals(server.getCount("findElements"), 1,
+                "The cached handle should be re-validated, not searched for again: " + server.getCounts());
+    }
+
+    @Test
+    public void closedWindowIsSearchedForAgain() {
+        FakeWinAppDriver.Node window = server.addWindow(null, "Host").add("Window", "Shift");
+        Assert.assertNotNull(WindowHandleCache.findWindowHandle(server.getUrl(), PROCESS, NAMES));
+
+        window.remove();
+
+        Assert.assertNull(WindowHandleCache.findWindowHandle(server.getUrl(), PROCESS, NAMES));
+    }
+}